@@ -0,0 +1,190 @@
+/**
+ * Precomputed attack tables for the bitboard position model.
+ * Squares are numbered a1 = 0, b1 = 1, ... h8 = 63.
+ * Sliding attacks are looked up through magic bitboards. The magic multipliers were found
+ * offline by random search; the lookup tables are filled from them at class load.
+ */
+public final class Attacks {
+    public static final long[] KNIGHT = new long[64];
+    public static final long[] KING = new long[64];
+    public static final long[][] PAWN = new long[2][64]; // squares attacked by a pawn of the given color
+
+    // Ray directions: the first four step towards higher square numbers
+    private static final int NORTH = 0, EAST = 1, NORTH_EAST = 2, NORTH_WEST = 3;
+    private static final int SOUTH = 4, WEST = 5, SOUTH_WEST = 6, SOUTH_EAST = 7;
+    private static final int[] RANK_STEP = {1, 0, 1, 1, -1, 0, -1, -1};
+    private static final int[] FILE_STEP = {0, 1, 1, -1, 0, -1, -1, 1};
+    private static final long[][] RAYS = new long[8][64];
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+            0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+            0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+            0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+            0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+            0x0442000A00049020L, 0x2100040080020080L, 0x0800120400900148L, 0x0010040A00128541L,
+            0x2800804000800030L, 0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+            0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L, 0x0182085882000401L,
+            0x0220204000808000L, 0x2860100040024022L, 0x0001002004110040L, 0x99101042000A0020L,
+            0x0004080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+            0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+            0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+    };
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = {
+            0xA010041108003100L, 0x006082020A002900L, 0x6810010619200000L, 0x08281A0520000408L,
+            0x0001104001000400L, 0x0018901008048400L, 0x00040A0210245280L, 0x000200210808A402L,
+            0x9140048410821200L, 0x0800091010820041L, 0x20504804832202C0L, 0x0100091401081000L,
+            0x8021011140000012L, 0x0810020804450400L, 0x208B0542109008A2L, 0x0080084A08040204L,
+            0x0040E2A80811244CL, 0x2505022008008108L, 0x0430220100420040L, 0x010A040420220040L,
+            0x1105000290400000L, 0x0093001200822120L, 0x4000A62048043004L, 0x280120048A015004L,
+            0x006090002A020814L, 0x44042000240800D0L, 0x01102800040A4400L, 0x1004080080220040L,
+            0x0001001011004024L, 0x0010044000805040L, 0x0914041200820100L, 0x0004821012821480L,
+            0x0024040500C05021L, 0x0088611002080200L, 0x0116080A00040020L, 0x4000020080080080L,
+            0x2450450140840040L, 0x0000880201484100L, 0x0222020404020092L, 0x8081110600002E00L,
+            0x2842101105000801L, 0x1100809008001025L, 0x00020202221C0400L, 0x0422014022009020L,
+            0x0210046102100C00L, 0xC004008082029102L, 0x00AA461801101200L, 0x0404080080201108L,
+            0x020542108C205002L, 0x0410544804100100L, 0x0040910841100000L, 0x0400200042021100L,
+            0x00004204850400C0L, 0x0200100410A42102L, 0x1040020801210102L, 0x0805040410420000L,
+            0x2884804130100200L, 0x800C262201242000L, 0x1058000194108800L, 0x0014221054420204L,
+            0x0104000012A02200L, 0x0200881003300100L, 0x0140400202840100L, 0x0402020801010201L
+    };
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            int rank = sq >>> 3;
+            int file = sq & 7;
+            KNIGHT[sq] = offsets(rank, file, new int[][]{{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}});
+            KING[sq] = offsets(rank, file, new int[][]{{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}});
+            PAWN[Position.WHITE][sq] = offsets(rank, file, new int[][]{{1, -1}, {1, 1}});
+            PAWN[Position.BLACK][sq] = offsets(rank, file, new int[][]{{-1, -1}, {-1, 1}});
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0L;
+                int r = rank + RANK_STEP[dir];
+                int f = file + FILE_STEP[dir];
+                while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                    ray |= 1L << (r * 8 + f);
+                    r += RANK_STEP[dir];
+                    f += FILE_STEP[dir];
+                }
+                RAYS[dir][sq] = ray;
+            }
+        }
+        ROOK_TABLE = initMagics(true, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET);
+        BISHOP_TABLE = initMagics(false, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET);
+    }
+
+    private Attacks() {
+    }
+
+    private static long offsets(int rank, int file, int[][] deltas) {
+        long bits = 0L;
+        for (int[] d : deltas) {
+            int r = rank + d[0];
+            int f = file + d[1];
+            if (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                bits |= 1L << (r * 8 + f);
+            }
+        }
+        return bits;
+    }
+
+    private static long positiveRay(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][Long.numberOfTrailingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    private static long negativeRay(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][63 - Long.numberOfLeadingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    private static long slidingRook(int sq, long occupied) {
+        return positiveRay(NORTH, sq, occupied) | positiveRay(EAST, sq, occupied)
+                | negativeRay(SOUTH, sq, occupied) | negativeRay(WEST, sq, occupied);
+    }
+
+    private static long slidingBishop(int sq, long occupied) {
+        return positiveRay(NORTH_EAST, sq, occupied) | positiveRay(NORTH_WEST, sq, occupied)
+                | negativeRay(SOUTH_WEST, sq, occupied) | negativeRay(SOUTH_EAST, sq, occupied);
+    }
+
+    private static long[] initMagics(boolean rook, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        final long edges = 0xFF000000000000FFL | 0x8181818181818181L;
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long full = rook ? slidingRook(sq, 0L) : slidingBishop(sq, 0L);
+            // Edge squares never block further, except along the piece's own rank or file
+            long edgeMask = rook
+                    ? ((0xFFL | 0xFF00000000000000L) & ~(0xFFL << (8 * (sq >>> 3))))
+                    | ((0x0101010101010101L | 0x8080808080808080L) & ~(0x0101010101010101L << (sq & 7)))
+                    : edges;
+            masks[sq] = full & ~edgeMask;
+            shifts[sq] = 64 - Long.bitCount(masks[sq]);
+            offsets[sq] = total;
+            total += 1 << Long.bitCount(masks[sq]);
+        }
+        long[] table = new long[total];
+        long[] occupancies = new long[4096];
+        long[] reference = new long[4096];
+        int[] epoch = new int[4096];
+        int generation = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = masks[sq];
+            int size = 0;
+            long subset = 0L;
+            do {
+                occupancies[size] = subset;
+                reference[size] = rook ? slidingRook(sq, subset) : slidingBishop(sq, subset);
+                size++;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            int shift = shifts[sq];
+            int base = offsets[sq];
+            long magic = magics[sq];
+            generation++;
+            for (int i = 0; i < size; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (epoch[index] < generation) {
+                    epoch[index] = generation;
+                    table[base + index] = reference[i];
+                } else if (table[base + index] != reference[i]) {
+                    throw new IllegalStateException("Bad magic for square " + sq);
+                }
+            }
+        }
+        return table;
+    }
+
+    public static long rook(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSET[sq] + (int) (((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+    }
+
+    public static long bishop(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSET[sq] + (int) (((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+    }
+
+    public static long queen(int sq, long occupied) {
+        return rook(sq, occupied) | bishop(sq, occupied);
+    }
+}
@@ -0,0 +1,431 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Analyzes many positions in parallel: every EPD/FEN line of a test suite, or every position
+ * of every game in a PGN database. Input is read as a stream and fanned out over a pool of
+ * worker threads, each with its own {@link Search} and transposition table; results are
+ * written in input order, holding at most a few items per worker in memory.
+ *
+ * <pre>
+ *   java BatchAnalyzer [options] input.epd|input.pgn
+ *     -out FILE        results (default: standard output)
+ *     -threads N       worker threads (default: available processors)
+ *     -hash MB         transposition table per worker (default 16)
+ *     -nodes N         node limit per position (default 100000)
+ *     -depth N         depth limit per position, instead of nodes
+ *     -movetime MS     time limit per position, instead of nodes
+ *     -blunder CP      PGN input: centipawns lost that mark a blunder (default 200)
+ *     -offset N        start here: a byte offset for EPD/FEN input, a game number for PGN
+ *     -resume          continue after the last complete result in -out
+ * </pre>
+ *
+ * <p>EPD/FEN output, one tab-separated line per position: input offset, FEN, best move,
+ * score, depth, nodes, then for EPD records with {@code bm} or {@code am} the {@code id}
+ * and whether the best move solves it. PGN output, one line per game: game number,
+ * players, result, plies, and the blunders found. The first field of each line is where
+ * the item starts in the input, which is how {@code -resume} finds its place.
+ */
+public final class BatchAnalyzer {
+    private static final long PROGRESS_INTERVAL_NANOS = 10_000_000_000L;
+    private static final int MATE_CP = 1000; // mate scores are capped here when measuring blunders
+
+    private final ExecutorService pool;
+    private final ThreadLocal<Search> engines;
+    private final SearchLimits limits;
+    private final int window; // results in flight before the reader waits for the oldest
+
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private long items;
+    private long tested;
+    private long solved;
+    private long startNanos;
+    private long lastProgress;
+
+    // One output line, and whether it was a test position and was solved
+    private static final class Row {
+        final String line;
+        final boolean tested;
+        final boolean solved;
+
+        Row(String line, boolean tested, boolean solved) {
+            this.line = line;
+            this.tested = tested;
+            this.solved = solved;
+        }
+    }
+
+    private interface Source<T> {
+        /** The next item's work, or null at the end of the input. */
+        Callable<T> next() throws IOException;
+    }
+
+    private interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    public BatchAnalyzer(int threads, int hashMb, SearchLimits limits) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.limits = limits;
+        this.window = threads * 4;
+        this.engines = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(hashMb)));
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "analyzer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Analyzes {@code positions} in parallel and hands each result to {@code results} on the
+     * calling thread, in the order the positions came in.
+     */
+    public void analyze(Iterator<Position> positions, Consumer<SearchResult> results) throws IOException {
+        run(() -> {
+            if (!positions.hasNext()) return null;
+            Position pos = positions.next().copy();
+            return () -> search(pos);
+        }, results::accept);
+    }
+
+    /**
+     * Analyzes every FEN or EPD line of {@code in} from byte {@code offset} on, writing one
+     * result line each to {@code out}. An offset inside a line starts at the next one.
+     */
+    public void analyzePositions(Path in, long offset, Writer out) throws IOException {
+        try (LineReader reader = new LineReader(in, offset)) {
+            run(() -> {
+                String line;
+                long lineOffset;
+                do {
+                    lineOffset = reader.offset();
+                    line = reader.readLine();
+                    if (line == null) return null;
+                    line = line.trim();
+                } while (line.isEmpty() || line.startsWith("#"));
+                String record = line;
+                long at = lineOffset;
+                return () -> analyzeRecord(at, record);
+            }, row -> write(out, row));
+        }
+    }
+
+    /**
+     * Analyzes every position of every game in {@code in}, starting with game number
+     * {@code firstGame} (counting from 0), and writes one line per game to {@code out}
+     * listing the moves that lost at least {@code blunderCp} centipawns.
+     */
+    public void annotateGames(Path in, long firstGame, int blunderCp, Writer out) throws IOException {
+        try (PgnReader reader = new PgnReader(in)) {
+            for (long skipped = 0; skipped < firstGame; skipped++) {
+                try {
+                    if (!reader.next(new GameRecord())) return;
+                } catch (IllegalArgumentException e) {
+                    // still one game
+                }
+            }
+            long[] number = {firstGame};
+            run(() -> {
+                GameRecord game = new GameRecord();
+                String error = null;
+                try {
+                    if (!reader.next(game)) return null;
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+                long gameNumber = number[0]++;
+                String failure = error;
+                return () -> failure != null ? new Row(gameNumber + "\terror\t" + failure, false, false)
+                        : annotate(gameNumber, game, blunderCp);
+            }, row -> write(out, row));
+        }
+    }
+
+    private SearchResult search(Position pos) {
+        SearchResult result = engines.get().search(pos, limits);
+        positions.increment();
+        nodes.add(result.nodes());
+        return result;
+    }
+
+    private Row analyzeRecord(long offset, String record) {
+        Position pos;
+        try {
+            pos = Fen.parse(Fen.fromEpd(record));
+        } catch (IllegalArgumentException e) {
+            return new Row(offset + "\terror\t" + e.getMessage(), false, false);
+        }
+        SearchResult result = search(pos);
+        String fen = Fen.toFen(pos);
+        String best = result.bestMove() == Move.NONE ? "-" : San.format(pos, result.bestMove());
+        StringBuilder line = new StringBuilder();
+        line.append(offset).append('\t').append(fen).append('\t').append(best).append('\t').append(result.score())
+                .append('\t').append(result.depth()).append('\t').append(result.nodes());
+
+        // Test suites name the expected (bm) or refuted (am) moves in SAN
+        String bm = operation(record, "bm");
+        String am = operation(record, "am");
+        if (bm == null && am == null) return new Row(line.toString(), false, false);
+        boolean ok = (bm == null || listed(bm, best)) && (am == null || !listed(am, best));
+        String id = operation(record, "id");
+        line.append('\t').append(id == null ? "-" : id).append('\t').append(ok ? "solved" : "failed");
+        return new Row(line.toString(), true, ok);
+    }
+
+    // Operand of an EPD operation such as bm, without quotes, or null if absent
+    static String operation(String record, String opcode) {
+        String[] fields = record.trim().split("\\s+", 5);
+        if (fields.length < 5) return null;
+        for (String op : fields[4].split(";")) {
+            String trimmed = op.trim();
+            if (trimmed.startsWith(opcode + " ")) {
+                return trimmed.substring(opcode.length() + 1).trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    private static boolean listed(String sanList, String san) {
+        String bare = san.replaceAll("[+#]", "");
+        for (String candidate : sanList.split("\\s+")) {
+            if (candidate.replaceAll("[+#!?]", "").equals(bare)) return true;
+        }
+        return false;
+    }
+
+    private Row annotate(long number, GameRecord game, int blunderCp) {
+        Position pos = Fen.parse(game.startFen());
+        int plies = game.moveCount();
+        int[] scores = new int[plies + 1]; // for the side to move before each ply, and after the last
+        int[] best = new int[plies + 1];
+        int[] scratch = new int[MoveGen.MAX_MOVES];
+        for (int ply = 0; ply <= plies; ply++) {
+            if (!MoveGen.hasLegalMove(pos, scratch)) {
+                scores[ply] = pos.inCheck() ? -MATE_CP : 0;
+            } else {
+                SearchResult result = search(pos);
+                scores[ply] = Math.max(-MATE_CP, Math.min(MATE_CP, result.score()));
+                best[ply] = result.bestMove();
+            }
+            if (ply < plies) pos.makeMove(game.move(ply));
+        }
+
+        StringBuilder blunders = new StringBuilder();
+        Fen.load(game.startFen(), pos);
+        for (int ply = 0; ply < plies; ply++) {
+            int move = game.move(ply);
+            int lost = scores[ply] + scores[ply + 1]; // the next score is from the opponent's side
+            if (lost >= blunderCp && move != best[ply]) {
+                if (blunders.length() > 0) blunders.append(", ");
+                blunders.append(pos.fullmoveNumber()).append(pos.sideToMove() == Position.WHITE ? ". " : "... ")
+                        .append(San.format(pos, move))
+                        .append(String.format(Locale.ROOT, " (%+.2f, best %s)", -scores[ply + 1] / 100.0,
+                                San.format(pos, best[ply])));
+            }
+            pos.makeMove(move);
+        }
+        String line = number + "\t" + game.tags().getOrDefault("White", "?") + " - "
+                + game.tags().getOrDefault("Black", "?") + "\t" + game.result() + "\t" + plies + "\t" + blunders;
+        return new Row(line, false, false);
+    }
+
+    private void write(Writer out, Row row) throws IOException {
+        out.write(row.line);
+        out.write('\n');
+        if (row.tested) {
+            tested++;
+            if (row.solved) solved++;
+        }
+    }
+
+    // Keeps up to window items in flight and passes results on in input order
+    private <T> void run(Source<T> source, Sink<T> sink) throws IOException {
+        startNanos = System.nanoTime();
+        lastProgress = startNanos;
+        ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+        for (Callable<T> work = source.next(); work != null; work = source.next()) {
+            inFlight.add(pool.submit(work));
+            while (inFlight.size() >= window || (!inFlight.isEmpty() && inFlight.peek().isDone())) {
+                sink.accept(take(inFlight.poll()));
+                items++;
+                progress();
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            sink.accept(take(inFlight.poll()));
+            items++;
+            progress();
+        }
+    }
+
+    private static <T> T take(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for analysis");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        }
+    }
+
+    private void progress() {
+        long now = System.nanoTime();
+        if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+            lastProgress = now;
+            System.err.println(summary());
+        }
+    }
+
+    /** Items, positions and nodes done so far, with rates since the last run started. */
+    public String summary() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        String rates = String.format("%,d items, %,d positions in %.1f s: %,.1f items/s, %,.1f positions/s, %,.0f nodes/s",
+                items, positions.sum(), seconds, items / seconds, positions.sum() / seconds, nodes.sum() / seconds);
+        return tested == 0 ? rates : rates + String.format(", solved %d/%d", solved, tested);
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Reads lines of a file as UTF-8 starting at a byte offset, tracking the offset of each
+    private static final class LineReader implements AutoCloseable {
+        private final InputStream in;
+        private long offset;
+        private byte[] line = new byte[256];
+
+        LineReader(Path file, long start) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            boolean midLine = false;
+            if (start > 0) {
+                // Starting inside a line skips to the next one, so any offset is a safe place to resume
+                ByteBuffer previous = ByteBuffer.allocate(1);
+                channel.read(previous, start - 1);
+                midLine = previous.get(0) != '\n';
+            }
+            channel.position(start);
+            in = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+            offset = start;
+            if (midLine) readLine();
+        }
+
+        long offset() {
+            return offset;
+        }
+
+        String readLine() throws IOException {
+            int length = 0;
+            int c;
+            while ((c = in.read()) != -1) {
+                offset++;
+                if (c == '\n') break;
+                if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                line[length++] = (byte) c;
+            }
+            if (c == -1 && length == 0) return null;
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Offset of the item after the last complete line of an earlier run's output, which is cut
+    // back to that line; 0 if there is none
+    static long resumeOffset(Path out) throws IOException {
+        if (!Files.exists(out)) return 0;
+        byte[] bytes = Files.readAllBytes(out);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') end--;
+        try (FileChannel channel = FileChannel.open(out, StandardOpenOption.WRITE)) {
+            channel.truncate(end); // drop a line cut short by a crash
+        }
+        if (end == 0) return 0;
+        int start = end - 1;
+        while (start > 0 && bytes[start - 1] != '\n') start--;
+        String last = new String(bytes, start, end - 1 - start, StandardCharsets.UTF_8);
+        return Long.parseLong(last.substring(0, last.indexOf('\t'))) + 1;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String outFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMb = 16;
+        SearchLimits limits = SearchLimits.nodes(100_000);
+        int blunderCp = 200;
+        long offset = 0;
+        boolean resume = false;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "-out": outFile = value; i++; break;
+                case "-threads": threads = Integer.parseInt(value); i++; break;
+                case "-hash": hashMb = Integer.parseInt(value); i++; break;
+                case "-nodes": limits = SearchLimits.nodes(Long.parseLong(value)); i++; break;
+                case "-depth": limits = SearchLimits.depth(Integer.parseInt(value)); i++; break;
+                case "-movetime": limits = SearchLimits.moveTime(Long.parseLong(value)); i++; break;
+                case "-blunder": blunderCp = Integer.parseInt(value); i++; break;
+                case "-offset": offset = Long.parseLong(value); i++; break;
+                case "-resume": resume = true; break;
+                default:
+                    if (args[i].startsWith("-")) throw new IllegalArgumentException("Unknown option " + args[i]);
+                    input = args[i];
+            }
+        }
+        if (input == null || (resume && outFile == null)) {
+            System.err.println("usage: java BatchAnalyzer [options] input.epd|input.pgn  (-resume needs -out)");
+            System.exit(2);
+        }
+        if (resume) offset = resumeOffset(Paths.get(outFile));
+
+        BatchAnalyzer analyzer = new BatchAnalyzer(threads, hashMb, limits);
+        try (Writer out = new BufferedWriter(outFile == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(outFile), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE))) {
+            Path in = Paths.get(input);
+            if (input.toLowerCase(Locale.ROOT).endsWith(".pgn")) {
+                analyzer.annotateGames(in, offset, blunderCp, out);
+            } else {
+                analyzer.analyzePositions(in, offset, out);
+            }
+        } finally {
+            analyzer.shutdown();
+        }
+        System.err.println(analyzer.summary());
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Converts between the GUI's glyph board ({@code String[8][8]}, row 0 = rank 8)
+ * and the bitboard {@link Position}.
+ */
+public final class BoardAdapter {
+    // Indexed by piece code: white pawn..king, then black pawn..king
+    private static final String[] GLYPHS = {"♙", "♘", "♗", "♖", "♕", "♔", "♟", "♞", "♝", "♜", "♛", "♚"};
+
+    private BoardAdapter() {
+    }
+
+    public static int toSquare(int row, int col) {
+        return Position.square(col, 7 - row);
+    }
+
+    public static int toRow(int sq) {
+        return 7 - Position.rank(sq);
+    }
+
+    public static int toCol(int sq) {
+        return Position.file(sq);
+    }
+
+    public static String glyph(int piece) {
+        return piece == Position.NO_PIECE ? "" : GLYPHS[piece];
+    }
+
+    public static int pieceOf(String glyph) {
+        if (glyph == null || glyph.isEmpty()) return Position.NO_PIECE;
+        for (int i = 0; i < GLYPHS.length; i++) {
+            if (GLYPHS[i].equals(glyph)) return i;
+        }
+        return Position.NO_PIECE;
+    }
+
+    public static boolean isWhite(String glyph) {
+        int piece = pieceOf(glyph);
+        return piece != Position.NO_PIECE && Position.colorOf(piece) == Position.WHITE;
+    }
+
+    /**
+     * Loads {@code board} into {@code pos}. Castling rights are inferred from kings and
+     * rooks standing on their home squares, since the glyph board does not record them.
+     */
+    public static void load(String[][] board, boolean whiteToMove, Position pos) {
+        pos.clear();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int piece = pieceOf(board[row][col]);
+                if (piece != Position.NO_PIECE) {
+                    pos.putPiece(piece, toSquare(row, col));
+                }
+            }
+        }
+        pos.setSideToMove(whiteToMove ? Position.WHITE : Position.BLACK);
+        pos.setCastlingRights(inferCastling(pos));
+    }
+
+    public static Position toPosition(String[][] board, boolean whiteToMove) {
+        Position pos = new Position();
+        load(board, whiteToMove, pos);
+        return pos;
+    }
+
+    /** Writes {@code pos} into an existing 8x8 glyph board. */
+    public static void store(Position pos, String[][] board) {
+        for (int sq = 0; sq < 64; sq++) {
+            board[toRow(sq)][toCol(sq)] = glyph(pos.pieceAt(sq));
+        }
+    }
+
+    private static int inferCastling(Position pos) {
+        int rights = 0;
+        int wk = Position.piece(Position.WHITE, Position.KING);
+        int wr = Position.piece(Position.WHITE, Position.ROOK);
+        int bk = Position.piece(Position.BLACK, Position.KING);
+        int br = Position.piece(Position.BLACK, Position.ROOK);
+        if (pos.pieceAt(4) == wk) {
+            if (pos.pieceAt(7) == wr) rights |= Position.WHITE_KINGSIDE;
+            if (pos.pieceAt(0) == wr) rights |= Position.WHITE_QUEENSIDE;
+        }
+        if (pos.pieceAt(60) == bk) {
+            if (pos.pieceAt(63) == br) rights |= Position.BLACK_KINGSIDE;
+            if (pos.pieceAt(56) == br) rights |= Position.BLACK_QUEENSIDE;
+        }
+        return rights;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Redraws a glyph board ({@code String[8][8]}, as kept by {@link BoardAdapter}) square by
+ * square: remembers the glyph shown on each square and hands only those that changed to a
+ * {@link Painter}. It knows nothing about Swing, so the GUI and the redraw benchmark run the
+ * same code.
+ */
+public final class BoardRedraw {
+    /** Shows {@code glyph} on one square, "" for an empty one. */
+    public interface Painter {
+        void paint(int row, int col, String glyph);
+    }
+
+    private final String[][] drawn = new String[8][8]; // Glyph currently shown on each square
+    private final Painter painter;
+
+    /** Starts with every square shown empty. */
+    public BoardRedraw(Painter painter) {
+        this.painter = painter;
+        for (String[] row : drawn) {
+            java.util.Arrays.fill(row, "");
+        }
+    }
+
+    /** Paints the squares of {@code board} that differ from what is shown; returns how many. */
+    public int draw(String[][] board) {
+        int changed = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                String glyph = board[row][col];
+                if (!glyph.equals(drawn[row][col])) {
+                    painter.paint(row, col, glyph);
+                    drawn[row][col] = glyph;
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Builds an {@link OpeningBook} from PGN games:
+ * {@code java BookBuilder games.pgn book.bin [-plies N] [-min N]}.
+ * Every move in the first N plies (default 20) becomes an entry weighted, as in Polyglot,
+ * by two points per win and one per draw for the side that played it. Moves seen in fewer
+ * than the minimum number of games (default 2) and moves that never scored are left out.
+ */
+public final class BookBuilder {
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    // Open-addressing table of (key, move) -> score and game count
+    private long[] keys = new long[1 << 16];
+    private short[] moves = new short[1 << 16];
+    private int[] scores = new int[1 << 16];
+    private int[] counts = new int[1 << 16]; // 0 marks an empty slot
+    private int size;
+
+    /** Records {@code move} played from the position with {@code key}, scoring 0, 1 or 2. */
+    public void add(long key, int move, int score) {
+        if (size * 2 >= keys.length) grow();
+        int slot = slot(key, move);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            moves[slot] = (short) move;
+            size++;
+        }
+        scores[slot] += score;
+        counts[slot]++;
+    }
+
+    /** Adds the first {@code maxPlies} moves of {@code game}. */
+    public void add(GameRecord game, int maxPlies, Position scratch) {
+        int whiteScore;
+        switch (game.result()) {
+            case GameRecord.WHITE_WINS: whiteScore = 2; break;
+            case GameRecord.BLACK_WINS: whiteScore = 0; break;
+            case GameRecord.DRAW: whiteScore = 1; break;
+            default: return; // unfinished games say nothing about the moves
+        }
+        Fen.load(game.startFen(), scratch);
+        int plies = Math.min(maxPlies, game.moveCount());
+        for (int i = 0; i < plies; i++) {
+            int move = game.move(i);
+            int score = scratch.sideToMove() == Position.WHITE ? whiteScore : 2 - whiteScore;
+            add(PolyglotKey.compute(scratch), OpeningBook.encode(move), score);
+            scratch.makeMove(move);
+        }
+    }
+
+    private int slot(long key, int move) {
+        int mask = keys.length - 1;
+        long h = (key ^ move * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        int slot = (int) (h >>> 32) & mask;
+        while (counts[slot] != 0 && (keys[slot] != key || (moves[slot] & 0xFFFF) != move)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        short[] oldMoves = moves;
+        int[] oldScores = scores;
+        int[] oldCounts = counts;
+        int capacity = oldKeys.length * 2;
+        keys = new long[capacity];
+        moves = new short[capacity];
+        scores = new int[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] == 0) continue;
+            int slot = slot(oldKeys[i], oldMoves[i] & 0xFFFF);
+            keys[slot] = oldKeys[i];
+            moves[slot] = oldMoves[i];
+            scores[slot] = oldScores[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    /** Writes the entries seen in at least {@code minGames} games; returns how many were written. */
+    public int write(Path file, int minGames) throws IOException {
+        Integer[] order = new Integer[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] >= minGames && scores[i] > 0) order[n++] = i;
+        }
+        order = Arrays.copyOf(order, n);
+        Arrays.sort(order, (a, b) -> {
+            int byKey = Long.compareUnsigned(keys[a], keys[b]);
+            return byKey != 0 ? byKey : Integer.compare(scores[b], scores[a]);
+        });
+
+        ByteBuffer buf = ByteBuffer.allocate(OpeningBook.ENTRY_SIZE * 4096).order(ByteOrder.BIG_ENDIAN);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < n; ) {
+                // Entries of one position share a scale so the largest weight fits 16 bits
+                int end = i;
+                while (end < n && keys[order[end]] == keys[order[i]]) end++;
+                long max = scores[order[i]];
+                for (int j = i; j < end; j++) {
+                    int e = order[j];
+                    long weight = max > MAX_WEIGHT ? Math.max(1, scores[e] * (long) MAX_WEIGHT / max) : scores[e];
+                    if (!buf.hasRemaining()) flush(buf, out);
+                    buf.putLong(keys[e]).putShort(moves[e]).putShort((short) weight).putInt(0);
+                }
+                i = end;
+            }
+            flush(buf, out);
+        }
+        return n;
+    }
+
+    private static void flush(ByteBuffer buf, FileChannel out) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: java BookBuilder games.pgn book.bin [-plies N] [-min N]");
+            System.exit(2);
+        }
+        int maxPlies = 20;
+        int minGames = 2;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-plies": maxPlies = Integer.parseInt(args[i + 1]); break;
+                case "-min": minGames = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        BookBuilder builder = new BookBuilder();
+        GameRecord game = new GameRecord();
+        Position scratch = new Position();
+        long skipped = 0;
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(Paths.get(args[0]))) {
+            while (true) {
+                try {
+                    if (!reader.next(game)) break;
+                    builder.add(game, maxPlies, scratch);
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                }
+            }
+            int written = builder.write(Paths.get(args[1]), minGames);
+            System.out.printf("%,d games (%,d skipped), %,d book entries written in %.1f s%n",
+                    reader.games(), skipped, written, (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
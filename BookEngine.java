@@ -0,0 +1,28 @@
+/**
+ * {@link Engine} that answers from an {@link OpeningBook} while the position is in it and
+ * falls back to another engine once it is not. Book moves are returned at depth 0.
+ */
+public final class BookEngine implements Engine {
+    private final OpeningBook book;
+    private final Engine engine;
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+
+    public BookEngine(OpeningBook book, Engine engine) {
+        this.book = book;
+        this.engine = engine;
+    }
+
+    @Override
+    public SearchResult search(Position pos, SearchLimits limits, SearchListener listener) {
+        int move = book.probe(pos, scratch);
+        if (move != Move.NONE) {
+            return new SearchResult(move, 0, 0, 0, 0, new int[]{move});
+        }
+        return engine.search(pos, limits, listener);
+    }
+
+    @Override
+    public void stop() {
+        engine.stop();
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+/**
+ * Entry point for using the rules and the engine as a library, without the GUI. Positions
+ * are {@link Position} objects and moves are ints in the {@link Move} encoding; these
+ * helpers cover the common conversions and checks, and hand out engines for analysis.
+ * Positions are not thread-safe, but any number may be used on separate threads.
+ */
+public final class Chess {
+    private Chess() {
+    }
+
+    /** The standard starting position. */
+    public static Position startPosition() {
+        return Position.startPosition();
+    }
+
+    /**
+     * Parses a FEN, or the position part of an EPD record.
+     *
+     * @throws IllegalArgumentException if it is malformed
+     */
+    public static Position position(String fenOrEpd) {
+        return Fen.parse(Fen.fromEpd(fenOrEpd));
+    }
+
+    public static String fen(Position pos) {
+        return Fen.toFen(pos);
+    }
+
+    /** The legal moves in {@code pos}, in generation order. */
+    public static int[] legalMoves(Position pos) {
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        return Arrays.copyOf(moves, MoveGen.generateLegal(pos, moves, 0));
+    }
+
+    /**
+     * The legal move written in UCI ({@code e2e4}) or SAN ({@code e4}) notation.
+     *
+     * @throws IllegalArgumentException if it is not a legal move in {@code pos}
+     */
+    public static int parseMove(Position pos, String move) {
+        int[] scratch = new int[MoveGen.MAX_MOVES];
+        int parsed = Move.parseUci(pos, move, scratch);
+        if (parsed == Move.NONE) parsed = San.parse(pos, move, scratch);
+        if (parsed == Move.NONE) {
+            throw new IllegalArgumentException("Not a legal move in " + Fen.toFen(pos) + ": " + move);
+        }
+        return parsed;
+    }
+
+    public static String san(Position pos, int move) {
+        return San.format(pos, move);
+    }
+
+    public static String uci(int move) {
+        return Move.toUci(move);
+    }
+
+    /** A copy of {@code pos} after playing {@code moves}, each in UCI or SAN. */
+    public static Position play(Position pos, String... moves) {
+        Position after = pos.copy();
+        for (String move : moves) {
+            after.makeMove(parseMove(after, move));
+        }
+        return after;
+    }
+
+    /** An engine searching on {@code threads} threads with a shared table of {@code hashMb} MB. */
+    public static Engine newEngine(int hashMb, int threads) {
+        return threads == 1 ? new Search(new TranspositionTable(hashMb)) : new LazySmp(threads, hashMb);
+    }
+
+    /** Searches {@code pos} once with a fresh single-threaded engine. */
+    public static SearchResult analyze(Position pos, SearchLimits limits) {
+        return new Search().search(pos, limits);
+    }
+}
@@ -1,50 +1,63 @@
 import java.awt.*;
-import java.util.Stack;
-import java.util.UUID;
 import javax.swing.*;
 
 public class ChessBoardGUI {
     private JFrame frame;
     private JPanel boardPanel;
     private JPanel controlPanel; // Added control panel reference
-    private JButton[][] boardSquares;
+    private JButton[][] boardSquares; // Created once; drawBoard only updates squares that changed
+    private BoardRedraw redraw; // Tracks the glyph shown on each square
+    private long highlightedSquares; // Bitboard of squares painted as move targets
+    private static final Font PIECE_FONT = new Font("Serif", Font.PLAIN, 36);
     private String[][] board;
+    private final Position position = new Position(); // Bitboard position; board mirrors it for display
+    private final int[] moveBuffer = new int[MoveGen.MAX_MOVES];
+    private static final long ROBOT_THINK_MILLIS = 1000;
+    private static final int HASH_MB = Integer.getInteger("chess.hashMb", 64); // Transposition table size, -Dchess.hashMb=N
+    private static final int SEARCH_THREADS = Integer.getInteger("chess.threads", 1); // -Dchess.threads=N
+    private static final String NNUE_FILE = System.getProperty("chess.nnue"); // Optional network weights, -Dchess.nnue=path
+    private static final String BOOK_FILE = System.getProperty("chess.book"); // Optional opening book, -Dchess.book=path
+    private static final String TABLEBASE_DIR = System.getProperty("chess.tb"); // Endgame tables, generated if missing, -Dchess.tb=dir
+    private static final int TABLEBASE_PIECES = Integer.getInteger("chess.tbPieces", 3); // -Dchess.tbPieces=N
+    private static final boolean DEBUG_OVERLAY = Boolean.getBoolean("chess.debug"); // Engine metrics next to the scores, -Dchess.debug=true
+    private static final String METRICS_FILE = System.getProperty("chess.metrics"); // Periodic JSON metrics dump, -Dchess.metrics=path (empty for standard output)
+    private static final long METRICS_SECONDS = Long.getLong("chess.metricsSeconds", 10); // -Dchess.metricsSeconds=N
+    private static final String JOURNAL_DIR = System.getProperty("chess.journal"); // Crash-safe journal of the current game, -Dchess.journal=dir
+    private static final String JOURNAL_ID = "current";
+    private static final String SERVER = System.getProperty("chess.server", "localhost:" + GameServer.DEFAULT_PORT); // -Dchess.server=host:port
+    private static final String CLOCK = System.getProperty("chess.clock"); // Starting time control as minutes+seconds, -Dchess.clock=5+3
+    private static final boolean CLOCK_DELAY = "delay".equals(System.getProperty("chess.clockMode")); // Seconds are a delay, not an increment, -Dchess.clockMode=delay
+    private static final boolean PONDER = !"false".equals(System.getProperty("chess.ponder")); // Robot thinks on the human's time, -Dchess.ponder=false to turn off
+    private final EngineService engineService = new EngineService(createEngine());
+    private int robotRequest = 0; // Bumped whenever a pending robot move becomes stale
     private int selectedRow = -1, selectedCol = -1;
-    private Stack<GameState> undoStack = new Stack<>();
-    private Stack<GameState> redoStack = new Stack<>();
+    private final GameHistory history = new GameHistory(position); // Played moves for undo/redo
+    private String startFen = Fen.START; // Position the current game started from
     private boolean isWhiteTurn = true;
+    private GameStatus status = GameStatus.ONGOING; // Updated after every move; a finished game takes no more moves
     private boolean turnMessageDisplayed = false;
     private boolean vsRobot = false;
     private boolean vsOnline = false;
     private String player1Name = "White";
     private String player2Name = "Black";
-    private String gameURL = "";
+    private JournalStore journal; // Journal of the game on the board; null if not enabled or online
+    private OnlineClient online; // Connection to the game server in vs Online mode
+    private int onlineColor = Position.WHITE; // Side this client plays online
+    private boolean onlineStarted = false; // Both players are present and the game is not over
+    private ChessClock clock; // Game clock; null when playing without one
+    private boolean flagReported = false; // The loss on time has been announced
+    private boolean pondering = false; // The robot is searching the reply it expects from the human
+    private int ponderMove = Move.NONE; // The expected reply
+    private long ponderStart; // System.nanoTime() when pondering began
+    private SearchResult ponderResult; // Ponder search that finished before the human moved
     private int whiteScore = 0; // White's score
     private int blackScore = 0; // Black's score
     private JLabel whiteScoreLabel; // Label to display white's score
     private JLabel blackScoreLabel; // Label to display black's score
-
-    private static class GameState {
-        String[][] board;
-        boolean isWhiteTurn;
-        int whiteScore;
-        int blackScore;
-
-        GameState(String[][] board, boolean isWhiteTurn, int whiteScore, int blackScore) {
-            this.board = copyBoard(board);
-            this.isWhiteTurn = isWhiteTurn;
-            this.whiteScore = whiteScore;
-            this.blackScore = blackScore;
-        }
-
-        static String[][] copyBoard(String[][] original) {
-            String[][] copy = new String[8][8];
-            for (int i = 0; i < 8; i++) {
-                System.arraycopy(original[i], 0, copy[i], 0, 8);
-            }
-            return copy;
-        }
-    }
+    private JLabel engineStatusLabel; // Robot search progress
+    private JLabel metricsLabel; // Debug overlay, refreshed once a second
+    private JLabel whiteClockLabel; // Time left for each side, refreshed ten times a second
+    private JLabel blackClockLabel;
 
     public ChessBoardGUI() {
         showGameModeDialog();
@@ -75,7 +88,7 @@ public class ChessBoardGUI {
             vsRobot = false;
             vsOnline = true;
             gameModeDialog.dispose();
-            generateGameURL();
+            showOnlineDialog();
         });
 
         gameModeDialog.add(vsRobotButton);
@@ -88,15 +101,121 @@ public class ChessBoardGUI {
         gameModeDialog.setVisible(true);
     }
 
-    private void generateGameURL() {
-        String gameId = UUID.randomUUID().toString().substring(0, 8);
-        gameURL = "yourchessapp.com/game/" + gameId;
+    private void showOnlineDialog() {
+        JDialog onlineDialog = new JDialog(frame, "Online Game", true);
+        onlineDialog.setLayout(new GridLayout(3, 2));
+
+        JLabel serverLabel = new JLabel("Server:");
+        JTextField serverTextField = new JTextField(SERVER);
+        JLabel gameIdLabel = new JLabel("Game id (empty for new):");
+        JTextField gameIdTextField = new JTextField("");
+        JButton connectButton = new JButton("Connect");
+
+        connectButton.addActionListener(e -> {
+            String gameId = gameIdTextField.getText().trim();
+            try {
+                online = OnlineClient.connect(serverTextField.getText().trim(), new OnlineListener());
+                if (gameId.isEmpty()) {
+                    online.create();
+                } else {
+                    online.join(gameId);
+                }
+            } catch (java.io.IOException ex) {
+                JOptionPane.showMessageDialog(onlineDialog, "Could not reach the server: " + ex.getMessage(),
+                        "Online Game", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            onlineDialog.dispose();
+            initializeGame();
+        });
+
+        onlineDialog.add(serverLabel);
+        onlineDialog.add(serverTextField);
+        onlineDialog.add(gameIdLabel);
+        onlineDialog.add(gameIdTextField);
+        onlineDialog.add(new JLabel());
+        onlineDialog.add(connectButton);
+
+        onlineDialog.setSize(360, 150);
+        onlineDialog.setLocationRelativeTo(frame);
+        onlineDialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        onlineDialog.setVisible(true);
+    }
+
+    // Server events arrive on the client's reader thread and are handled on the EDT
+    private final class OnlineListener implements OnlineClient.Listener {
+        @Override
+        public void onGame(String id, int color, String token) {
+            SwingUtilities.invokeLater(() -> {
+                onlineColor = color;
+                player1Name = color == Position.WHITE ? "You" : "Opponent";
+                player2Name = color == Position.WHITE ? "Opponent" : "You";
+                updateScoreDisplay();
+                if (color == Position.WHITE) {
+                    engineStatusLabel.setText("Game " + id + ", waiting for an opponent");
+                    JOptionPane.showMessageDialog(frame,
+                            "Share this game id with your friend: " + id,
+                            "Online Game",
+                            JOptionPane.INFORMATION_MESSAGE);
+                }
+            });
+        }
+
+        @Override
+        public void onStart() {
+            SwingUtilities.invokeLater(() -> {
+                onlineStarted = true;
+                engineStatusLabel.setText(onlineColor == Position.WHITE ? "Your move" : "Opponent to move");
+            });
+        }
+
+        @Override
+        public void onMove(String uci) {
+            SwingUtilities.invokeLater(() -> {
+                int move = Move.parseUci(position, uci, moveBuffer);
+                if (move == Move.NONE) {
+                    engineStatusLabel.setText("Out of sync with the server");
+                    return;
+                }
+                clearHighlights();
+                selectedRow = -1;
+                selectedCol = -1;
+                applyMove(move);
+                drawBoard();
+                if (onlineStarted) {
+                    engineStatusLabel.setText(isWhiteTurn == (onlineColor == Position.WHITE) ? "Your move" : "Opponent to move");
+                }
+            });
+        }
+
+        @Override
+        public void onOver(String result, String reason) {
+            SwingUtilities.invokeLater(() -> {
+                onlineStarted = false;
+                engineStatusLabel.setText("Game over: " + result);
+                JOptionPane.showMessageDialog(frame, result + " (" + reason.replace('-', ' ') + ")", "Game Over",
+                        JOptionPane.INFORMATION_MESSAGE);
+            });
+        }
+
+        @Override
+        public void onOpponentConnected(boolean connected) {
+            SwingUtilities.invokeLater(() -> engineStatusLabel.setText(connected ? "Opponent is back" : "Opponent disconnected"));
+        }
+
+        @Override
+        public void onError(String message) {
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, message, "Online Game",
+                    JOptionPane.WARNING_MESSAGE));
+        }
 
-        JOptionPane.showMessageDialog(frame,
-                "Share this URL with your friend: " + gameURL + "\n(Online play functionality is not fully implemented in this client-side code.)",
-                "Online Game Link",
-                JOptionPane.INFORMATION_MESSAGE);
-        initializeGame();
+        @Override
+        public void onDisconnected() {
+            SwingUtilities.invokeLater(() -> {
+                onlineStarted = false;
+                engineStatusLabel.setText("Disconnected from the server");
+            });
+        }
     }
 
     private void showPlayerNameDialog() {
@@ -135,8 +254,10 @@ public class ChessBoardGUI {
         frame = new JFrame("Chess Board");
         boardPanel = new JPanel(new GridLayout(8, 8));
         boardSquares = new JButton[8][8];
+        redraw = new BoardRedraw((row, col, glyph) -> boardSquares[row][col].setText(glyph)); // Repaints just this square
         board = new String[8][8];
         initializeBoard();
+        createSquares();
         drawBoard();
 
         frame.add(boardPanel, BorderLayout.CENTER);
@@ -149,22 +270,61 @@ public class ChessBoardGUI {
         JButton redoButton = new JButton("Redo");
         redoButton.addActionListener(e -> redoMove());
 
+        JButton newGameButton = new JButton("New Game");
+        newGameButton.addActionListener(e -> newGame());
+
+        JButton saveButton = new JButton("Save");
+        saveButton.addActionListener(e -> saveGame());
+
+        JButton loadButton = new JButton("Load");
+        loadButton.addActionListener(e -> loadGame());
+
+        JButton clockButton = new JButton("Clock");
+        clockButton.addActionListener(e -> showClockDialog());
+
         JButton quitButton = new JButton("Quit"); // Create the quit button
-        quitButton.addActionListener(e -> System.exit(0)); // Add action to exit the application
+        quitButton.addActionListener(e -> quitGame()); // Add action to exit the application
 
         whiteScoreLabel = new JLabel(player1Name + ": " + whiteScore);
         blackScoreLabel = new JLabel(player2Name + ": " + blackScore);
+        engineStatusLabel = new JLabel("");
+        whiteClockLabel = new JLabel();
+        blackClockLabel = new JLabel();
+        if (CLOCK != null && !vsOnline) {
+            try {
+                clock = ChessClock.parse(CLOCK, CLOCK_DELAY ? ChessClock.Mode.DELAY : ChessClock.Mode.INCREMENT);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+        updateClocks();
 
         controlPanel.add(undoButton);
         controlPanel.add(redoButton);
+        controlPanel.add(newGameButton);
+        controlPanel.add(saveButton);
+        controlPanel.add(loadButton);
+        if (!vsOnline) {
+            controlPanel.add(clockButton);
+        }
         controlPanel.add(quitButton); // Add the quit button to the control panel
         controlPanel.add(whiteScoreLabel); // Add score labels to the control panel
         controlPanel.add(blackScoreLabel);
+        controlPanel.add(whiteClockLabel);
+        controlPanel.add(blackClockLabel);
+        new Timer(100, e -> updateClocks()).start();
+        if (DEBUG_OVERLAY) {
+            metricsLabel = new JLabel(EngineMetrics.global().overlayText());
+            controlPanel.add(metricsLabel);
+            new Timer(1000, e -> metricsLabel.setText(EngineMetrics.global().overlayText())).start();
+        }
+        controlPanel.add(engineStatusLabel);
 
         frame.add(controlPanel, BorderLayout.SOUTH);
         frame.setSize(600, 700); // Increased height to accommodate the quit button
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setVisible(true);
+        openJournal();
 
         if (!turnMessageDisplayed && !vsOnline) {
             JOptionPane.showMessageDialog(frame,
@@ -172,35 +332,115 @@ public class ChessBoardGUI {
                     "Turn Info",
                     JOptionPane.INFORMATION_MESSAGE);
             turnMessageDisplayed = true;
-        } else if (vsOnline && !turnMessageDisplayed) {
-            JOptionPane.showMessageDialog(frame,
-                    "Waiting for the other player to join using the link.",
-                    "Online Game",
-                    JOptionPane.INFORMATION_MESSAGE);
-            turnMessageDisplayed = true;
+        } else if (vsOnline && engineStatusLabel.getText().isEmpty()) {
+            engineStatusLabel.setText("Connecting...");
         }
     }
 
-    private void initializeBoard() {
-        board[0] = new String[]{"♜", "♞", "♝", "♛", "♚", "♝", "♞", "♜"};
-        board[1] = new String[]{"♟", "♟", "♟", "♟", "♟", "♟", "♟", "♟"};
-        for (int i = 2; i < 6; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = "";
+    // Offers to resume the game left in the journal, then journals every move from here on
+    private void openJournal() {
+        if (JOURNAL_DIR == null || vsOnline) return;
+        try {
+            JournalStore store = new JournalStore(java.nio.file.Paths.get(JOURNAL_DIR), 1,
+                    JournalStore.DEFAULT_SYNC_RECORDS, JournalStore.DEFAULT_SYNC_MILLIS);
+            GameJournal.Recovered saved = store.read(JOURNAL_ID);
+            if (saved != null && saved.plies() > 0 && JOptionPane.showConfirmDialog(frame,
+                    "Resume the unfinished game (" + saved.plies() + " moves)?", "Resume Game",
+                    JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                setUpPosition(saved.startFen);
+                for (int i = 0; i < saved.plies(); i++) {
+                    if (!MoveGen.isLegal(position, saved.move(i))) {
+                        throw new IllegalArgumentException("The saved game has an illegal move at ply " + i);
+                    }
+                    applyMove(saved.move(i));
+                }
+                journal = store; // keep appending to the saved game
+                drawBoard();
+                if (vsRobot && !isWhiteTurn) {
+                    makeRobotMove();
+                }
+            } else {
+                journal = store;
+                startJournal();
             }
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(frame, "Could not open the game journal: " + e.getMessage(),
+                    "Game Journal", JOptionPane.ERROR_MESSAGE);
+            journal = null;
+            whiteScore = 0;
+            blackScore = 0;
+            initializeBoard();
+            drawBoard();
         }
-        board[6] = new String[]{"♙", "♙", "♙", "♙", "♙", "♙", "♙", "♙"};
-        board[7] = new String[]{"♖", "♘", "♗", "♕", "♔", "♗", "♘", "♖"};
     }
 
-    private void drawBoard() {
-        boardPanel.removeAll();
+    private void startJournal() {
+        if (journal == null) return;
+        try {
+            journal.create(JOURNAL_ID, startFen, vsRobot ? "robot" : "friends");
+        } catch (java.io.IOException e) {
+            journalFailed(e);
+        }
+    }
+
+    private void journalMove(int move) {
+        if (journal == null) return;
+        try {
+            journal.append(JOURNAL_ID, move, position);
+        } catch (java.io.IOException e) {
+            journalFailed(e);
+        }
+    }
+
+    private void journalUndo() {
+        if (journal == null) return;
+        try {
+            journal.undo(JOURNAL_ID);
+        } catch (java.io.IOException e) {
+            journalFailed(e);
+        }
+    }
+
+    // Stops journaling after a write error rather than reporting it on every move
+    private void journalFailed(java.io.IOException e) {
+        JOptionPane.showMessageDialog(frame, "The game journal failed and is now off: " + e.getMessage(),
+                "Game Journal", JOptionPane.ERROR_MESSAGE);
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (java.io.IOException e) {
+            // nothing more to save
+        }
+        journal = null;
+    }
+
+    private void initializeBoard() {
+        setUpPosition(Fen.START);
+    }
+
+    // Loads a starting position and forgets the moves played so far
+    private void setUpPosition(String fen) {
+        Fen.load(fen, position);
+        startFen = fen;
+        history.reset();
+        startJournal();
+        resetClock();
+        isWhiteTurn = position.sideToMove() == Position.WHITE;
+        updateStatus();
+        BoardAdapter.store(position, board);
+    }
+
+    private void createSquares() {
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                JButton button = new JButton(board[row][col]);
-                button.setFont(new Font("Serif", Font.PLAIN, 36));
+                JButton button = new JButton("");
+                button.setFont(PIECE_FONT);
                 button.setOpaque(true);
-                button.setBackground((row + col) % 2 == 0 ? Color.WHITE : Color.GRAY);
+                button.setBackground(squareColor(row, col));
 
                 int r = row;
                 int c = col;
@@ -210,19 +450,29 @@ public class ChessBoardGUI {
                 boardPanel.add(button);
             }
         }
-        boardPanel.revalidate();
-        boardPanel.repaint();
+    }
+
+    private static Color squareColor(int row, int col) {
+        return (row + col) % 2 == 0 ? Color.WHITE : Color.GRAY;
+    }
+
+    private void drawBoard() {
+        long start = System.nanoTime();
+        clearHighlights();
+        redraw.draw(board);
         updateScoreDisplay(); // Update the score display whenever the board is redrawn
+        EngineMetrics.global().drawBoard().record(System.nanoTime() - start);
     }
 
     private void handleClick(int row, int col) {
-        if (vsOnline) {
-            JOptionPane.showMessageDialog(frame,
-                    "Online play logic is not implemented in this client-side code.\n" +
-                            "Moves would need to be synchronized with the other player via a server.",
-                    "Online Play Info",
-                    JOptionPane.INFORMATION_MESSAGE);
-            return;
+        if (robotThinking()) {
+            return; // Board is locked while the robot is thinking
+        }
+        if (clock != null && clock.flagged() >= 0 || status.isOver()) {
+            return; // Lost on time, or the game has ended on the board
+        }
+        if (vsOnline && (!onlineStarted || isWhiteTurn != (onlineColor == Position.WHITE))) {
+            return; // Not our turn, or the game has not started or is over
         }
 
         if (selectedRow == -1 && selectedCol == -1) {
@@ -241,29 +491,29 @@ public class ChessBoardGUI {
                 }
             }
         } else {
-            if (isValidMove(selectedRow, selectedCol, row, col)) {
-                String capturedPiece = board[row][col];
-                saveState();
-                board[row][col] = board[selectedRow][selectedCol];
-                board[selectedRow][selectedCol] = "";
-
-                if (!capturedPiece.isEmpty()) {
-                    if (isWhiteTurn) {
-                        whiteScore += getPieceValue(capturedPiece);
-                    } else {
-                        blackScore += getPieceValue(capturedPiece);
-                    }
-                }
+            int move = findMove(selectedRow, selectedCol, row, col);
+            if (move != Move.NONE && vsOnline) {
+                // The server validates the move and echoes it to both players; it is applied then
+                sendOnlineMove(move);
+                clearHighlights();
+                selectedRow = -1;
+                selectedCol = -1;
+            } else if (move != Move.NONE) {
+                applyMove(move);
+                pressClock();
 
                 clearHighlights();
                 selectedRow = -1;
                 selectedCol = -1;
 
                 drawBoard();
-                isWhiteTurn = !isWhiteTurn;
 
-                if (vsRobot && !isWhiteTurn) {
-                    makeRobotMove();
+                if (!announceGameOver() && vsRobot && !isWhiteTurn) {
+                    if (pondering && move == ponderMove) {
+                        ponderHit();
+                    } else {
+                        makeRobotMove(); // Replaces any ponder search; the table keeps what it found
+                    }
                 }
 
             } else {
@@ -287,30 +537,62 @@ public class ChessBoardGUI {
         }
     }
 
-    private int getPieceValue(String piece) {
-        switch (piece) {
-            case "♟":
-            case "♙":
-                return 1;
-            case "♞":
-            case "♘":
-            case "♝":
-            case "♗":
-                return 3;
-            case "♜":
-            case "♖":
-                return 5;
-            case "♛":
-            case "♕":
-                return 9;
-            case "♚": // King has no point value for scoring purposes
-            case "♔":
-                return 0;
-            default:
-                return 0;
+    private void sendOnlineMove(int move) {
+        try {
+            online.move(move);
+        } catch (java.io.IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not send the move: " + e.getMessage(),
+                    "Online Game", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    // Promotions from the board always choose a queen
+    private int findMove(int fromRow, int fromCol, int toRow, int toCol) {
+        return MoveGen.findLegal(position, BoardAdapter.toSquare(fromRow, fromCol),
+                BoardAdapter.toSquare(toRow, toCol), Position.QUEEN, moveBuffer);
+    }
+
+    private void applyMove(int move) {
+        history.play(move);
+        journalMove(move);
+        addCaptureScore(position.lastCaptured(), isWhiteTurn, 1);
+        BoardAdapter.store(position, board);
+        isWhiteTurn = !isWhiteTurn;
+        updateStatus();
+    }
+
+    // The server judges online games
+    private void updateStatus() {
+        status = vsOnline ? GameStatus.ONGOING : GameStatus.of(position, moveBuffer);
+    }
+
+    // Stops the clock and tells the players how the game ended; false while it goes on
+    private boolean announceGameOver() {
+        if (!status.isOver()) return false;
+        if (clock != null) clock.stop();
+        String message = status == GameStatus.CHECKMATE
+                ? "Checkmate! " + (isWhiteTurn ? player2Name : player1Name) + " wins."
+                : "Draw by " + status.reason() + ".";
+        engineStatusLabel.setText("Game over: " + status.result(position));
+        JOptionPane.showMessageDialog(frame, message, "Game Over", JOptionPane.INFORMATION_MESSAGE);
+        return true;
+    }
+
+    private void addCaptureScore(int captured, boolean capturedByWhite, int sign) {
+        if (captured == Position.NO_PIECE) return;
+        int value = sign * getPieceValue(BoardAdapter.glyph(captured));
+        if (capturedByWhite) {
+            whiteScore += value;
+        } else {
+            blackScore += value;
+        }
+    }
+
+    private int getPieceValue(String piece) {
+        int code = BoardAdapter.pieceOf(piece);
+        return code == Position.NO_PIECE ? 0 : Position.PIECE_VALUE[Position.typeOf(code)]; // King has no point value
+    }
+
     private void updateScoreDisplay() {
         if (whiteScoreLabel != null) {
             whiteScoreLabel.setText(player1Name + ": " + whiteScore);
@@ -325,209 +607,346 @@ public class ChessBoardGUI {
     }
 
     private void makeRobotMove() {
-        java.util.List<int[]> possibleMoves = new java.util.ArrayList<>();
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                String piece = board[i][j];
-                if (!isWhite(piece)) {
-                    for (int r = 0; r < 8; r++) {
-                        for (int c = 0; c < 8; c++) {
-                            if (isValidMove(i, j, r, c)) {
-                                String targetPiece = board[r][c];
-                                int[] move = {i, j, r, c};
-                                if (!targetPiece.isEmpty() && isWhite(targetPiece)) {
-                                    // Prioritize capturing opponent's pieces
-                                    possibleMoves.add(0, move); // Add to the front for higher priority
-                                } else {
-                                    possibleMoves.add(move);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        if (announceGameOver()) return;
+        int request = ++robotRequest;
+        pondering = false;
+        ponderResult = null;
+        engineStatusLabel.setText("Thinking...");
+        engineService.think(position, robotTime(),
+                        progress -> SwingUtilities.invokeLater(() -> showEngineProgress(request, progress)))
+                .whenComplete((result, error) -> SwingUtilities.invokeLater(() -> finishRobotMove(request, result, error)));
+    }
+
+    // A share of the robot's clock, or a fixed time per move without one
+    private TimeManager robotTime() {
+        if (clock == null) {
+            return TimeManager.fixed(ROBOT_THINK_MILLIS);
         }
+        return TimeManager.forClock(clock.remaining(Position.BLACK), clock.bonusMillis(), 0);
+    }
 
-        if (!possibleMoves.isEmpty()) {
-            int[] move = possibleMoves.get(0); // Robot will prioritize captures if available
-            int startRow = move[0];
-            int startCol = move[1];
-            int endRow = move[2];
-            int endCol = move[3];
-            String capturedPiece = board[endRow][endCol];
+    // Searches the position after the reply the robot expects while the human thinks
+    private void startPonder(SearchResult result) {
+        int[] pv = result.pv();
+        if (!PONDER || pv.length < 2 || !MoveGen.isLegal(position, pv[1])) {
+            return;
+        }
+        Position expected = position.copy();
+        expected.makeMove(pv[1]);
+        int request = ++robotRequest;
+        pondering = true;
+        ponderMove = pv[1];
+        ponderResult = null;
+        ponderStart = System.nanoTime();
+        engineService.ponder(expected, progress -> SwingUtilities.invokeLater(() -> showEngineProgress(request, progress)))
+                .whenComplete((r, error) -> SwingUtilities.invokeLater(() -> finishRobotMove(request, r, error)));
+    }
 
-            saveState();
-            board[endRow][endCol] = board[startRow][startCol];
-            board[startRow][startCol] = "";
+    // The human played the expected move: the ponder search goes on, with the time pondered counting
+    private void ponderHit() {
+        pondering = false;
+        engineStatusLabel.setText("Ponder hit");
+        TimeManager time = robotTime();
+        time.start((System.nanoTime() - ponderStart) / 1_000_000);
+        if (ponderResult != null) {
+            SearchResult result = ponderResult;
+            ponderResult = null;
+            finishRobotMove(robotRequest, result, null);
+        } else {
+            engineService.ponderHit(time);
+        }
+    }
 
-            if (!capturedPiece.isEmpty()) {
-                blackScore += getPieceValue(capturedPiece); // Increment black's score
-            }
+    // The robot is choosing its move; pondering on the human's time does not lock the board
+    private boolean robotThinking() {
+        return engineService.isThinking() && !pondering;
+    }
 
-            isWhiteTurn = true;
-            SwingUtilities.invokeLater(() -> {
-                drawBoard();
-                JOptionPane.showMessageDialog(frame,
-                        player1Name + "'s turn!",
-                        "Turn Info",
-                        JOptionPane.INFORMATION_MESSAGE);
-            });
+    private void showEngineProgress(int request, SearchResult progress) {
+        if (request == robotRequest) {
+            engineStatusLabel.setText((pondering ? "Pondering  " : "") + "Depth " + progress.depth()
+                    + "  score " + progress.score() + "  " + progress.pvString());
+        }
+    }
+
+    // Runs on the EDT once the search finishes; ignored if the game moved on in the meantime
+    private void finishRobotMove(int request, SearchResult result, Throwable error) {
+        if (request != robotRequest || error != null) {
+            return;
+        }
+        if (pondering) {
+            ponderResult = result; // Ran out of depth before the human moved; kept for a ponder hit
+            return;
+        }
+        engineStatusLabel.setText(result.depth() == 0 ? "Book move"
+                : String.format("Depth %d, %,d nodes/s", result.depth(), result.nodesPerSecond()));
+        if (result.bestMove() != Move.NONE) {
+            applyMove(result.bestMove());
+            pressClock();
+            drawBoard();
+            if (announceGameOver()) return;
+            startPonder(result);
+            JOptionPane.showMessageDialog(frame,
+                    player1Name + "'s turn!",
+                    "Turn Info",
+                    JOptionPane.INFORMATION_MESSAGE);
         } else {
-            JOptionPane.showMessageDialog(frame, "Black has no valid moves! (Checkmate/Stalemate?)", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+            updateStatus(); // Only reached when the robot is mated or stalemated
+            announceGameOver();
         }
     }
 
-    private void highlightPossibleMoves(int fromRow, int fromCol) {
-        String piece = board[fromRow][fromCol];
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                if (isValidMove(fromRow, fromCol, row, col)) {
-                    String target = board[row][col];
-                    if (!target.isEmpty() && isWhite(piece) != isWhite(target)) {
-                        boardSquares[row][col].setBackground(Color.RED);
-                    } else {
-                        boardSquares[row][col].setBackground(Color.GREEN);
-                    }
-                }
-            }
+    private void stopRobot() {
+        robotRequest++;
+        pondering = false;
+        ponderResult = null;
+        engineService.cancel();
+        if (engineStatusLabel != null) {
+            engineStatusLabel.setText("");
         }
     }
 
-    private void clearHighlights() {
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                boardSquares[row][col].setBackground((row + col) % 2 == 0 ? Color.WHITE : Color.GRAY);
-            }
+    // The side that just moved hands the clock over
+    private void pressClock() {
+        if (clock != null) {
+            clock.press(isWhiteTurn ? Position.BLACK : Position.WHITE);
+            updateClocks();
         }
     }
 
-    private boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol) {
-        String piece = board[fromRow][fromCol];
-        if (fromRow == toRow && fromCol == toCol) return false;
-        if (!board[toRow][toCol].isEmpty() && isWhite(piece) == isWhite(board[toRow][toCol])) return false;
+    // Takebacks move the clock to the side to move without any increment
+    private void switchClock() {
+        if (clock != null && clock.isRunning()) {
+            clock.switchTo(isWhiteTurn ? Position.WHITE : Position.BLACK);
+        }
+    }
 
-        int rowDiff = toRow - fromRow;
-        int colDiff = toCol - fromCol;
+    private void resetClock() {
+        if (clock != null) {
+            clock.reset();
+        }
+        flagReported = false;
+        updateClocks();
+    }
 
-        switch (piece) {
-            case "♟": // Black Pawn
-                if (fromCol == toCol && board[toRow][toCol].isEmpty()) {
-                    return (toRow == fromRow + 1 || (fromRow == 1 && toRow == fromRow + 2));
-                } else if (Math.abs(fromCol - toCol) == 1 && toRow == fromRow + 1 && !board[toRow][toCol].isEmpty() && isWhite(board[toRow][toCol])) {
-                    return true;
-                }
-                break;
-            case "♙": // White Pawn
-                if (fromCol == toCol && board[toRow][toCol].isEmpty()) {
-                    return (toRow == fromRow - 1 || (fromRow == 6 && toRow == fromRow - 2));
-                } else if (Math.abs(fromCol - toCol) == 1 && toRow == fromRow - 1 && !board[toRow][toCol].isEmpty() && !isWhite(board[toRow][toCol])) {
-                    return true;
-                    }
-                break;
-            case "♖": // White Rook
-            case "♜": // Black Rook
-                if (fromRow == toRow) {
-                    int step = (toCol - fromCol) > 0 ? 1 : -1;
-                    for (int c = fromCol + step; c != toCol; c += step) {
-                        if (!board[fromRow][c].isEmpty()) return false;
-                    }
-                    return true;
-                } else if (fromCol == toCol) {
-                    int step = (toRow - fromRow) > 0 ? 1 : -1;
-                    for (int r = fromRow + step; r != toRow; r += step) {
-                        if (!board[r][fromCol].isEmpty()) return false;
-                    }
-                    return true;
-                }
-                break;
-            case "♘": // White Knight
-            case "♞": // Black Knight
-                return (Math.abs(rowDiff) == 2 && Math.abs(colDiff) == 1) ||
-                        (Math.abs(rowDiff) == 1 && Math.abs(colDiff) == 2);
-            case "♗": // White Bishop
-            case "♝": // Black Bishop
-                if (Math.abs(rowDiff) == Math.abs(colDiff)) {
-                    int rowStep = rowDiff > 0 ? 1 : -1;
-                    int colStep = colDiff > 0 ? 1 : -1;
-                    int r = fromRow + rowStep;
-                    int c = fromCol + colStep;
-                    while (r != toRow && c != toCol) {
-                        if (!board[r][c].isEmpty()) return false;
-                        r += rowStep;
-                        c += colStep;
-                    }
-                    return true;
-                }
-                break;
-            case "♕": // White Queen
-            case "♛": // Black Queen
-                if (fromRow == toRow || fromCol == toCol) {
-                    if (fromRow == toRow) {
-                        int step = (toCol - fromCol) > 0 ? 1 : -1;
-                        for (int c = fromCol + step; c != toCol; c += step) {
-                            if (!board[fromRow][c].isEmpty()) return false;
-                        }
-                        return true;
-                    } else {
-                        int step = (toRow - fromRow) > 0 ? 1 : -1;
-                        for (int r = fromRow + step; r != toRow; r += step) {
-                            if (!board[r][fromCol].isEmpty()) return false;
-                        }
-                        return true;
-                    }
-                } else if (Math.abs(rowDiff) == Math.abs(colDiff)) {
-                    int rowStep = rowDiff > 0 ? 1 : -1;
-                    int colStep = colDiff > 0 ? 1 : -1;
-                    int r = fromRow + rowStep;
-                    int c = fromCol + colStep;
-                    while (r != toRow && c != toCol) {
-                        if (!board[r][c].isEmpty()) return false;
-                        r += rowStep;
-                        c += colStep;
-                    }
-                    return true;
-                }
-                break;
-            case "♔": // White King
-            case "♚": // Black King
-                return Math.abs(rowDiff) <= 1 && Math.abs(colDiff) <= 1;
+    private void updateClocks() {
+        if (whiteClockLabel == null) return;
+        whiteClockLabel.setVisible(clock != null);
+        blackClockLabel.setVisible(clock != null);
+        if (clock == null) return;
+        whiteClockLabel.setText(ChessClock.format(clock.remaining(Position.WHITE)));
+        blackClockLabel.setText(ChessClock.format(clock.remaining(Position.BLACK)));
+        int flagged = clock.flagged();
+        if (flagged >= 0 && !flagReported) {
+            flagReported = true;
+            stopRobot();
+            JOptionPane.showMessageDialog(frame,
+                    (flagged == Position.WHITE ? player1Name : player2Name) + " ran out of time!",
+                    "Game Over", JOptionPane.INFORMATION_MESSAGE);
         }
-        return false;
     }
 
-    private boolean isWhite(String piece) {
-        return "♖♘♗♕♔♙".contains(piece);
+    // Sets the time control; the new clock starts with the next move
+    private void showClockDialog() {
+        JTextField minutesField = new JTextField(clock == null ? "5" : Double.toString(clock.initialMillis() / 60_000.0));
+        JTextField secondsField = new JTextField(clock == null ? "3" : Double.toString(clock.bonusMillis() / 1000.0));
+        JComboBox<String> modeBox = new JComboBox<>(new String[]{"No clock", "Increment", "Delay"});
+        modeBox.setSelectedIndex(clock == null ? 0 : clock.mode() == ChessClock.Mode.DELAY ? 2 : 1);
+        JPanel panel = new JPanel(new GridLayout(3, 2));
+        panel.add(new JLabel("Minutes:"));
+        panel.add(minutesField);
+        panel.add(new JLabel("Bonus seconds:"));
+        panel.add(secondsField);
+        panel.add(new JLabel("Mode:"));
+        panel.add(modeBox);
+        if (JOptionPane.showConfirmDialog(frame, panel, "Clock", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            clock = modeBox.getSelectedIndex() == 0 ? null
+                    : ChessClock.parse(minutesField.getText() + "+" + secondsField.getText(),
+                            modeBox.getSelectedIndex() == 2 ? ChessClock.Mode.DELAY : ChessClock.Mode.INCREMENT);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(frame, e.getMessage(), "Clock", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        resetClock();
     }
 
-    private void saveState() {
-        undoStack.push(new GameState(board, isWhiteTurn, whiteScore, blackScore));
-        redoStack.clear();
+    private void newGame() {
+        if (vsOnline) return; // The server owns the online game
+        stopRobot();
+        clearHighlights();
+        selectedRow = -1;
+        selectedCol = -1;
+        isWhiteTurn = true;
+        whiteScore = 0;
+        blackScore = 0;
+        initializeBoard();
+        drawBoard();
+    }
+
+    private void saveGame() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("game.pgn"));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        GameRecord game = new GameRecord();
+        game.setTag("Event", vsRobot ? "Game vs Robot" : "Casual game");
+        game.setTag("Date", new java.text.SimpleDateFormat("yyyy.MM.dd").format(new java.util.Date()));
+        game.setTag("White", player1Name);
+        game.setTag("Black", player2Name);
+        game.setStartFen(startFen);
+        for (int i = 0; i < history.ply(); i++) {
+            game.addMove(history.moveAt(i));
+        }
+        try (java.io.Writer out = java.nio.file.Files.newBufferedWriter(chooser.getSelectedFile().toPath(),
+                java.nio.charset.StandardCharsets.UTF_8)) {
+            new PgnWriter(out).write(game);
+        } catch (java.io.IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not save the game: " + e.getMessage(),
+                    "Save Game", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Loads the first game of a PGN file and replays it on the board
+    private void loadGame() {
+        if (vsOnline) return;
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        GameRecord game = new GameRecord();
+        try (PgnReader reader = new PgnReader(chooser.getSelectedFile().toPath())) {
+            if (!reader.next(game)) {
+                throw new IllegalArgumentException("The file contains no games");
+            }
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(frame, "Could not load the game: " + e.getMessage(),
+                    "Load Game", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        stopRobot();
+        clearHighlights();
+        selectedRow = -1;
+        selectedCol = -1;
+        whiteScore = 0;
+        blackScore = 0;
+        setUpPosition(game.startFen());
+        for (int i = 0; i < game.moveCount(); i++) {
+            applyMove(game.move(i));
+        }
+        String white = game.tag("White");
+        String black = game.tag("Black");
+        if (white != null && !white.equals("?")) player1Name = white;
+        if (black != null && !black.equals("?")) player2Name = black;
+        drawBoard();
+        if (vsRobot && !isWhiteTurn) {
+            makeRobotMove();
+        }
+    }
+
+    private void quitGame() {
+        stopRobot();
+        closeJournal();
+        if (online != null) {
+            try {
+                online.close();
+            } catch (java.io.IOException e) {
+                // exiting anyway
+            }
+        }
+        engineService.shutdown();
+        System.exit(0);
+    }
+
+    private void highlightPossibleMoves(int fromRow, int fromCol) {
+        int from = BoardAdapter.toSquare(fromRow, fromCol);
+        int count = MoveGen.generateLegal(position, moveBuffer, 0);
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer[i];
+            if (Move.from(move) != from) continue;
+            int to = Move.to(move);
+            boardSquares[BoardAdapter.toRow(to)][BoardAdapter.toCol(to)]
+                    .setBackground(Move.isCapture(move) ? Color.RED : Color.GREEN);
+            highlightedSquares |= 1L << to;
+        }
+    }
+
+    private void clearHighlights() {
+        while (highlightedSquares != 0) {
+            int sq = Long.numberOfTrailingZeros(highlightedSquares);
+            highlightedSquares &= highlightedSquares - 1;
+            int row = BoardAdapter.toRow(sq);
+            int col = BoardAdapter.toCol(sq);
+            boardSquares[row][col].setBackground(squareColor(row, col));
+        }
+    }
+
+    private boolean isWhite(String piece) {
+        return BoardAdapter.isWhite(piece);
     }
 
     private void undoMove() {
-        if (!undoStack.isEmpty()) {
-            redoStack.push(new GameState(board, isWhiteTurn, whiteScore, blackScore));
-            GameState previousState = undoStack.pop();
-            board = previousState.board;
-            isWhiteTurn = previousState.isWhiteTurn;
-            whiteScore = previousState.whiteScore;
-            blackScore = previousState.blackScore;
+        if (vsOnline) return;
+        stopRobot();
+        if (history.canUndo()) {
+            int captured = position.lastCaptured();
+            history.undo();
+            journalUndo();
+            isWhiteTurn = !isWhiteTurn;
+            switchClock();
+            updateStatus();
+            addCaptureScore(captured, isWhiteTurn, -1);
+            BoardAdapter.store(position, board);
             drawBoard();
         }
     }
 
     private void redoMove() {
-        if (!redoStack.isEmpty()) {
-            undoStack.push(new GameState(board, isWhiteTurn, whiteScore, blackScore));
-            GameState nextState = redoStack.pop();
-            board = nextState.board;
-            isWhiteTurn = nextState.isWhiteTurn;
-            whiteScore = nextState.whiteScore;
-            blackScore = nextState.blackScore;
+        if (robotThinking() || vsOnline) return;
+        if (history.canRedo()) {
+            stopRobot();
+            journalMove(history.redo());
+            addCaptureScore(position.lastCaptured(), isWhiteTurn, 1);
+            isWhiteTurn = !isWhiteTurn;
+            switchClock();
+            updateStatus();
+            BoardAdapter.store(position, board);
             drawBoard();
         }
     }
 
+    private static Engine createEngine() {
+        EngineMetrics.global().registerMBean();
+        if (METRICS_FILE != null) {
+            EngineMetrics.global().startDump(METRICS_FILE.isEmpty() ? null : java.nio.file.Paths.get(METRICS_FILE), METRICS_SECONDS);
+        }
+        LazySmp engine = new LazySmp(SEARCH_THREADS, HASH_MB);
+        if (NNUE_FILE != null) {
+            try {
+                engine.setNetwork(Nnue.load(java.nio.file.Paths.get(NNUE_FILE)));
+            } catch (java.io.IOException e) {
+                System.err.println("Could not load network, using the built-in evaluation: " + e.getMessage());
+            }
+        }
+        if (TABLEBASE_DIR != null) {
+            try {
+                engine.setTablebase(Tablebase.open(java.nio.file.Paths.get(TABLEBASE_DIR), TABLEBASE_PIECES, 16));
+            } catch (java.io.IOException e) {
+                System.err.println("Could not open endgame tables: " + e.getMessage());
+            }
+        }
+        if (BOOK_FILE != null) {
+            try {
+                return new BookEngine(OpeningBook.open(java.nio.file.Paths.get(BOOK_FILE)), engine);
+            } catch (java.io.IOException e) {
+                System.err.println("Could not open opening book: " + e.getMessage());
+            }
+        }
+        return engine;
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(ChessBoardGUI::new);
     }
@@ -0,0 +1,149 @@
+import java.util.function.LongSupplier;
+
+/**
+ * A two-sided game clock. Each side starts with the same time; after each move the mover
+ * either gains a bonus ({@link Mode#INCREMENT}, Fischer style) or had the first part of
+ * their thinking time for free ({@link Mode#DELAY}, Bronstein/US style, so time never
+ * grows). Sides are {@link Position#WHITE} and {@link Position#BLACK}.
+ *
+ * <p>Not thread-safe; the GUI uses it on the event thread only.
+ */
+public final class ChessClock {
+    public enum Mode { INCREMENT, DELAY }
+
+    private final long initialMillis;
+    private final long bonusMillis;
+    private final Mode mode;
+    private final long[] remaining = new long[2];
+    private int running = -1; // side whose time is running, -1 when stopped
+    private long turnStart; // nanoTime when the running side's turn began
+    private int flagged = -1;
+    LongSupplier nanoTime = System::nanoTime; // tests substitute a clock they advance by hand
+
+    public ChessClock(long initialMillis, long bonusMillis, Mode mode) {
+        if (initialMillis <= 0) throw new IllegalArgumentException("Clock needs some time: " + initialMillis);
+        this.initialMillis = initialMillis;
+        this.bonusMillis = Math.max(0, bonusMillis);
+        this.mode = mode;
+        reset();
+    }
+
+    /**
+     * Parses a time control written {@code minutes+seconds}, such as {@code 5+3}, or just
+     * {@code minutes}.
+     *
+     * @throws IllegalArgumentException if it is malformed
+     */
+    public static ChessClock parse(String control, Mode mode) {
+        String[] parts = control.trim().split("\\+");
+        try {
+            double minutes = Double.parseDouble(parts[0]);
+            double seconds = parts.length > 1 ? Double.parseDouble(parts[1]) : 0;
+            if (parts.length > 2) throw new NumberFormatException();
+            return new ChessClock((long) (minutes * 60_000), (long) (seconds * 1000), mode);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a time control: " + control);
+        }
+    }
+
+    public long initialMillis() {
+        return initialMillis;
+    }
+
+    public long bonusMillis() {
+        return bonusMillis;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Both sides back to the initial time, clock stopped. */
+    public void reset() {
+        remaining[Position.WHITE] = initialMillis;
+        remaining[Position.BLACK] = initialMillis;
+        running = -1;
+        flagged = -1;
+    }
+
+    /** {@code side} finished a move: charge its time, add any increment and start the opponent. */
+    public void press(int side) {
+        if (flagged >= 0) return;
+        if (running == side) {
+            charge(side);
+            if (flagged >= 0) return;
+            if (mode == Mode.INCREMENT) remaining[side] += bonusMillis;
+        }
+        run(side ^ 1);
+    }
+
+    /** Runs {@code side}'s time without a bonus for the other, e.g. after a takeback. */
+    public void switchTo(int side) {
+        if (flagged >= 0) return;
+        if (running >= 0) charge(running);
+        if (flagged < 0) run(side);
+    }
+
+    public void stop() {
+        if (running >= 0) charge(running);
+        running = -1;
+    }
+
+    public boolean isRunning() {
+        return running >= 0;
+    }
+
+    /** The side whose time is running, or -1. */
+    public int runningSide() {
+        return running;
+    }
+
+    /** Time left for {@code side} as of now, never negative. */
+    public long remaining(int side) {
+        return Math.max(0, side == running ? remaining[side] - used() : remaining[side]);
+    }
+
+    /** The side that has run out of time, or -1. Stops the clock once a flag falls. */
+    public int flagged() {
+        if (flagged < 0 && running >= 0 && remaining(running) == 0) {
+            stop();
+        }
+        return flagged;
+    }
+
+    private void run(int side) {
+        running = side;
+        turnStart = nanoTime.getAsLong();
+    }
+
+    // Time the running side has used this turn, less the delay
+    private long used() {
+        long elapsed = (nanoTime.getAsLong() - turnStart) / 1_000_000;
+        return mode == Mode.DELAY ? Math.max(0, elapsed - bonusMillis) : elapsed;
+    }
+
+    private void charge(int side) {
+        remaining[side] -= used();
+        turnStart = nanoTime.getAsLong();
+        if (remaining[side] <= 0) {
+            remaining[side] = 0;
+            flagged = side;
+            running = -1;
+        }
+    }
+
+    /** {@code m:ss}, with tenths under ten seconds. */
+    public static String format(long millis) {
+        if (millis < 10_000) return String.format("%d.%d", millis / 1000, millis / 100 % 10);
+        long seconds = (millis + 999) / 1000;
+        return seconds >= 3600
+                ? String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                : String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    @Override
+    public String toString() {
+        long seconds = bonusMillis / 1000;
+        return initialMillis / 60_000 + "+" + seconds + (mode == Mode.DELAY ? " delay" : "");
+    }
+}
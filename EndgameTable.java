@@ -0,0 +1,132 @@
+/**
+ * Layout of one endgame table: the material it covers and how its positions map to entries.
+ * Slots hold the white king, the black king and then the other pieces ordered by piece code;
+ * tables are stored with the stronger side as white. An entry index packs the side to move,
+ * the white king (mirrored into files a-d, and ranks 1-4 when there are no pawns) and the
+ * other squares, six bits each. Identical pieces are kept in ascending square order, so
+ * every position has exactly one index.
+ */
+final class EndgameTable {
+    private static final String LETTERS = "PNBRQK";
+
+    final String name;
+    final int[] pieces;
+    final boolean pawns;
+    final int materialKey;
+    private final int kingSquares;
+    final int size;
+
+    /** A table for the two kings plus {@code others}, piece codes in ascending order. */
+    EndgameTable(int[] others) {
+        pieces = new int[others.length + 2];
+        pieces[0] = Position.piece(Position.WHITE, Position.KING);
+        pieces[1] = Position.piece(Position.BLACK, Position.KING);
+        System.arraycopy(others, 0, pieces, 2, others.length);
+        boolean anyPawn = false;
+        int[] counts = new int[12];
+        for (int piece : others) {
+            anyPawn |= Position.typeOf(piece) == Position.PAWN;
+            counts[piece]++;
+        }
+        pawns = anyPawn;
+        materialKey = materialKey(counts);
+        kingSquares = pawns ? 32 : 16;
+        long entries = 2L * kingSquares;
+        for (int i = 1; i < pieces.length; i++) entries *= 64;
+        if (entries > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many pieces for a table: " + pieces.length);
+        size = (int) entries;
+        name = side(counts, Position.WHITE) + "v" + side(counts, Position.BLACK);
+    }
+
+    private static String side(int[] counts, int color) {
+        StringBuilder sb = new StringBuilder("K");
+        for (int type = Position.QUEEN; type >= Position.PAWN; type--) {
+            for (int i = 0; i < counts[Position.piece(color, type)]; i++) sb.append(LETTERS.charAt(type));
+        }
+        return sb.toString();
+    }
+
+    /** Key identifying a material balance, from piece counts indexed by piece code; kings are implied. */
+    static int materialKey(int[] counts) {
+        int key = 0;
+        for (int type = Position.PAWN; type < Position.KING; type++) {
+            key |= counts[Position.piece(Position.WHITE, type)] << (3 * type);
+            key |= counts[Position.piece(Position.BLACK, type)] << (3 * (type + 5));
+        }
+        return key;
+    }
+
+    /** Material key of {@code pos}; counts must fit three bits, as they do for tablebase material. */
+    static int materialKey(Position pos) {
+        int key = 0;
+        for (int type = Position.PAWN; type < Position.KING; type++) {
+            key |= Long.bitCount(pos.pieces[Position.piece(Position.WHITE, type)]) << (3 * type);
+            key |= Long.bitCount(pos.pieces[Position.piece(Position.BLACK, type)]) << (3 * (type + 5));
+        }
+        return key;
+    }
+
+    /** The same material with colors swapped. */
+    static int flipColors(int materialKey) {
+        return (materialKey >>> 15) | (materialKey & 0x7FFF) << 15;
+    }
+
+    /**
+     * Entry index for {@code sideToMove} and the squares by slot. The squares are mirrored
+     * and sorted in place.
+     */
+    int index(int sideToMove, int[] squares) {
+        int n = pieces.length;
+        int flip = 0;
+        if (Position.file(squares[0]) > 3) flip ^= 7;
+        if (!pawns && Position.rank(squares[0]) > 3) flip ^= 56;
+        for (int i = 0; i < n; i++) squares[i] ^= flip;
+        for (int i = 3; i < n; i++) {
+            // Insertion sort within runs of identical pieces
+            for (int j = i; j > 2 && pieces[j] == pieces[j - 1] && squares[j] < squares[j - 1]; j--) {
+                int t = squares[j];
+                squares[j] = squares[j - 1];
+                squares[j - 1] = t;
+            }
+        }
+        int wk = squares[0];
+        int index = sideToMove * kingSquares + Position.rank(wk) * 4 + Position.file(wk);
+        for (int i = 1; i < n; i++) index = index * 64 + squares[i];
+        return index;
+    }
+
+    /**
+     * Entry index of {@code pos}, which must have this table's material, or the color-swapped
+     * material when {@code flip} is set. {@code squares} is scratch space for the squares by slot.
+     */
+    int index(Position pos, boolean flip, int[] squares) {
+        int mirror = flip ? 56 : 0;
+        for (int i = 0; i < pieces.length; ) {
+            int piece = pieces[i];
+            if (flip) piece = Position.piece(Position.colorOf(piece) ^ 1, Position.typeOf(piece));
+            for (long bb = pos.pieces[piece]; bb != 0; bb &= bb - 1) {
+                squares[i++] = Long.numberOfTrailingZeros(bb) ^ mirror;
+            }
+        }
+        return index(flip ? pos.sideToMove ^ 1 : pos.sideToMove, squares);
+    }
+
+    /** Fills {@code squares} with the position at {@code index} and returns the side to move. */
+    int decode(int index, int[] squares) {
+        for (int i = pieces.length - 1; i > 0; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        int king = index % kingSquares;
+        squares[0] = Position.square(king & 3, king >> 2);
+        return index / kingSquares;
+    }
+
+    /** Whether identical pieces at {@code squares} are in the order {@link #index} produces. */
+    boolean isCanonical(int[] squares) {
+        for (int i = 3; i < pieces.length; i++) {
+            if (pieces[i] == pieces[i - 1] && squares[i] <= squares[i - 1]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * A chess engine that picks a move for a position within some search limits.
+ */
+public interface Engine {
+    /**
+     * Searches {@code pos} and returns the best move found. The position is left as it was
+     * given. Blocks until the limits are reached or {@link #stop()} is called.
+     */
+    default SearchResult search(Position pos, SearchLimits limits) {
+        return search(pos, limits, null);
+    }
+
+    /** As {@link #search(Position, SearchLimits)}, reporting each completed iteration to {@code listener} if non-null. */
+    SearchResult search(Position pos, SearchLimits limits, SearchListener listener);
+
+    /** Asks a running search to return as soon as possible; safe to call from any thread. */
+    void stop();
+}
@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters for the engine and the board display. {@link Search} keeps its
+ * own plain counters per node and adds them here once per iteration and once per search,
+ * so the hot path pays nothing extra; the GUI records each {@code drawBoard} into a
+ * {@link LatencyHistogram}.
+ *
+ * <p>The numbers can be read through JMX ({@link #registerMBean()}), written periodically
+ * as JSON ({@link #startDump(Path, long)}), or shown in one line ({@link #overlayText()}).
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+    public static final int MAX_DEPTH = 64;
+    private static final String OBJECT_NAME = "chessboard:type=EngineMetrics";
+    private static final EngineMetrics GLOBAL = new EngineMetrics();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder qnodes = new LongAdder();
+    private final LongAdder moveGenCalls = new LongAdder();
+    private final LongAdder movesGenerated = new LongAdder();
+    private final LongAdder ttProbes = new LongAdder();
+    private final LongAdder ttHits = new LongAdder();
+    private final LongAdder branchingMillis = new LongAdder(); // sum of node ratios, times 1000
+    private final LongAdder branchingSamples = new LongAdder();
+    private final AtomicLongArray depthNanos = new AtomicLongArray(MAX_DEPTH + 1);
+    private final AtomicLongArray depthCounts = new AtomicLongArray(MAX_DEPTH + 1);
+    private final LatencyHistogram drawBoard = new LatencyHistogram();
+    private ScheduledExecutorService dumper;
+
+    /** The metrics shared by every engine and board in this process. */
+    public static EngineMetrics global() {
+        return GLOBAL;
+    }
+
+    /** Adds the work done by one search thread. */
+    void recordNodes(long nodes, long qnodes, long moveGenCalls, long movesGenerated) {
+        this.nodes.add(nodes);
+        this.qnodes.add(qnodes);
+        this.moveGenCalls.add(moveGenCalls);
+        this.movesGenerated.add(movesGenerated);
+    }
+
+    /** Adds one finished search, timed and counted once however many threads took part. */
+    void recordSearch(long nanos, long ttProbes, long ttHits) {
+        searches.increment();
+        searchNanos.add(nanos);
+        this.ttProbes.add(ttProbes);
+        this.ttHits.add(ttHits);
+    }
+
+    /** Adds one completed iteration; {@code previousNodes} is 0 for the first. */
+    void recordIteration(int depth, long nanos, long nodes, long previousNodes) {
+        int d = Math.min(depth, MAX_DEPTH);
+        depthNanos.addAndGet(d, nanos);
+        depthCounts.incrementAndGet(d);
+        if (previousNodes > 0) {
+            branchingMillis.add(nodes * 1000 / previousNodes);
+            branchingSamples.increment();
+        }
+    }
+
+    /** Time taken to redraw the board. */
+    public LatencyHistogram drawBoard() {
+        return drawBoard;
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : (long) (getNodes() * 1e9 / nanos);
+    }
+
+    @Override
+    public double getQuiescenceRatio() {
+        long total = getNodes();
+        return total == 0 ? 0 : (double) qnodes.sum() / total;
+    }
+
+    @Override
+    public double getBranchingFactor() {
+        long samples = branchingSamples.sum();
+        return samples == 0 ? 0 : branchingMillis.sum() / 1000.0 / samples;
+    }
+
+    @Override
+    public double getTtHitRate() {
+        long probes = ttProbes.sum();
+        return probes == 0 ? 0 : (double) ttHits.sum() / probes;
+    }
+
+    @Override
+    public double getMovesPerGeneration() {
+        long calls = moveGenCalls.sum();
+        return calls == 0 ? 0 : (double) movesGenerated.sum() / calls;
+    }
+
+    @Override
+    public double[] getDepthMillis() {
+        int deepest = 0;
+        for (int d = 0; d <= MAX_DEPTH; d++) {
+            if (depthCounts.get(d) > 0) deepest = d;
+        }
+        double[] millis = new double[deepest + 1];
+        for (int d = 0; d <= deepest; d++) {
+            long count = depthCounts.get(d);
+            millis[d] = count == 0 ? 0 : depthNanos.get(d) / 1e6 / count;
+        }
+        return millis;
+    }
+
+    @Override
+    public long getDrawBoardCount() {
+        return drawBoard.count();
+    }
+
+    @Override
+    public double getDrawBoardP50Micros() {
+        return drawBoard.percentile(0.50) / 1e3;
+    }
+
+    @Override
+    public double getDrawBoardP99Micros() {
+        return drawBoard.percentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getDrawBoardMaxMicros() {
+        return drawBoard.max() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        searches.reset();
+        searchNanos.reset();
+        nodes.reset();
+        qnodes.reset();
+        moveGenCalls.reset();
+        movesGenerated.reset();
+        ttProbes.reset();
+        ttHits.reset();
+        branchingMillis.reset();
+        branchingSamples.reset();
+        for (int d = 0; d <= MAX_DEPTH; d++) {
+            depthNanos.set(d, 0);
+            depthCounts.set(d, 0);
+        }
+        drawBoard.reset();
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder depths = new StringBuilder();
+        for (double millis : getDepthMillis()) {
+            if (depths.length() > 0) depths.append(',');
+            depths.append(String.format(Locale.ROOT, "%.3f", millis));
+        }
+        return String.format(Locale.ROOT,
+                "{\"time\":%d,\"searches\":%d,\"nodes\":%d,\"nodesPerSecond\":%d,\"quiescenceRatio\":%.4f,"
+                        + "\"branchingFactor\":%.3f,\"ttHitRate\":%.4f,\"movesPerGeneration\":%.2f,"
+                        + "\"depthMillis\":[%s],\"drawBoard\":%s}",
+                System.currentTimeMillis(), getSearches(), getNodes(), getNodesPerSecond(), getQuiescenceRatio(),
+                getBranchingFactor(), getTtHitRate(), getMovesPerGeneration(), depths, drawBoard.toJson());
+    }
+
+    /** A short summary for a status line. */
+    public String overlayText() {
+        return String.format("%,d nps  qs %.0f%%  ebf %.1f  tt %.0f%%  draw p99 %.2f ms",
+                getNodesPerSecond(), getQuiescenceRatio() * 100, getBranchingFactor(), getTtHitRate() * 100,
+                getDrawBoardP99Micros() / 1e3);
+    }
+
+    /** Registers with the platform MBean server; does nothing if already registered. */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register engine metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes {@link #toJson()} every {@code seconds} on a daemon thread: replacing
+     * {@code file}, or as a line on standard output when {@code file} is null.
+     */
+    public synchronized void startDump(Path file, long seconds) {
+        if (dumper != null) dumper.shutdownNow();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    private void dump(Path file) {
+        String json = toJson();
+        if (file == null) {
+            System.out.println(json);
+            return;
+        }
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, (json + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * JMX view of {@link EngineMetrics}, registered as {@code chessboard:type=EngineMetrics}.
+ */
+public interface EngineMetricsMBean {
+    long getSearches();
+
+    long getNodes();
+
+    long getNodesPerSecond();
+
+    /** Fraction of nodes spent in quiescence search. */
+    double getQuiescenceRatio();
+
+    /** Average ratio of nodes between consecutive iterations. */
+    double getBranchingFactor();
+
+    double getTtHitRate();
+
+    /** Average number of pseudo-legal moves per move generation call. */
+    double getMovesPerGeneration();
+
+    /** Average time in milliseconds of each iteration, indexed by depth. */
+    double[] getDepthMillis();
+
+    long getDrawBoardCount();
+
+    double getDrawBoardP50Micros();
+
+    double getDrawBoardP99Micros();
+
+    double getDrawBoardMaxMicros();
+
+    String toJson();
+
+    void reset();
+}
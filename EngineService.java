@@ -0,0 +1,170 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an {@link Engine} on its own thread so callers such as the Swing event thread never
+ * block on a search. One search runs at a time; starting a new one cancels the previous.
+ * A cancelled search stops within a few milliseconds and its future completes with a
+ * {@link CancellationException}.
+ *
+ * <p>A search can also ponder: run without limit on the position after the move the
+ * opponent is expected to play, then on {@link #ponderHit(TimeManager)} carry on against
+ * the clock, keeping the depth already reached.
+ */
+public final class EngineService {
+    private final Engine engine;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private volatile Task current;
+
+    private static final class Task {
+        final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        volatile boolean cancelled;
+        volatile boolean stopped; // stop early but keep the result
+        volatile TimeManager time; // set when the search runs against the clock
+        volatile ScheduledFuture<?> deadline;
+    }
+
+    public EngineService(Engine engine) {
+        this.engine = engine;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "engine");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "engine-timer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts searching a snapshot of {@code pos}. {@code listener}, if non-null, is called on
+     * the engine thread after each completed iteration.
+     */
+    public CompletableFuture<SearchResult> think(Position pos, SearchLimits limits, SearchListener listener) {
+        return start(pos, limits, null, listener);
+    }
+
+    /**
+     * Like {@link #think(Position, SearchLimits, SearchListener)}, but spends the time
+     * {@code time} decides on: usually stopping between iterations once the best move has
+     * settled, and never later than its maximum.
+     */
+    public CompletableFuture<SearchResult> think(Position pos, TimeManager time, SearchListener listener) {
+        return start(pos, SearchLimits.moveTime(time.maximumMillis()), time, listener);
+    }
+
+    /**
+     * Searches {@code pos} without limit until {@link #ponderHit(TimeManager)}, {@link #stop()}
+     * or {@link #cancel()}; the future may complete on its own if the search runs out of depth.
+     */
+    public CompletableFuture<SearchResult> ponder(Position pos, SearchListener listener) {
+        return start(pos, SearchLimits.infinite(), null, listener);
+    }
+
+    private CompletableFuture<SearchResult> start(Position pos, SearchLimits limits, TimeManager time,
+            SearchListener listener) {
+        cancel();
+        Position snapshot = pos.copy();
+        Task task = new Task();
+        current = task;
+        if (time != null) clock(task, time);
+        executor.execute(() -> run(task, snapshot, limits, listener));
+        return task.future;
+    }
+
+    // Arms the hard deadline for the task, stopping at once if its time was already used up pondering
+    private void clock(Task task, TimeManager time) {
+        if (!time.started()) time.start();
+        task.time = time;
+        long elapsed = time.elapsedMillis();
+        if (elapsed >= time.optimumMillis()) {
+            stop(task);
+        } else {
+            task.deadline = timer.schedule(() -> stop(task), time.maximumMillis() - elapsed, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run(Task task, Position pos, SearchLimits limits, SearchListener listener) {
+        if (task.cancelled) {
+            task.future.completeExceptionally(new CancellationException());
+            return;
+        }
+        try {
+            SearchResult result = engine.search(pos, limits, progress -> {
+                if (task.cancelled) {
+                    engine.stop(); // a stop issued before the search started would have been reset
+                    return;
+                }
+                if (listener != null) {
+                    listener.onIteration(progress);
+                }
+                TimeManager time = task.time;
+                if (task.stopped || time != null && time.onIteration(progress)) {
+                    engine.stop();
+                }
+            });
+            if (task.cancelled) {
+                task.future.completeExceptionally(new CancellationException());
+            } else {
+                task.future.complete(result);
+            }
+        } catch (RuntimeException e) {
+            task.future.completeExceptionally(e);
+        } finally {
+            ScheduledFuture<?> deadline = task.deadline;
+            if (deadline != null) deadline.cancel(false);
+        }
+    }
+
+    /**
+     * The expected move was played: the ponder search carries on, now against {@code time}.
+     * Time already credited to {@code time} counts, so a long ponder can mean moving at once.
+     * Does nothing if no search is running.
+     */
+    public void ponderHit(TimeManager time) {
+        Task task = current;
+        if (task != null && !task.future.isDone()) clock(task, time);
+    }
+
+    /** Stops the running search, if any; its future completes with the best move found so far. */
+    public void stop() {
+        Task task = current;
+        if (task != null) stop(task);
+    }
+
+    private void stop(Task task) {
+        if (current != task) return;
+        task.stopped = true;
+        engine.stop();
+    }
+
+    /** Stops the running search, if any, and discards its result. */
+    public void cancel() {
+        Task task = current;
+        if (task != null) {
+            task.cancelled = true;
+            engine.stop();
+            current = null;
+        }
+    }
+
+    /** Whether a search has been started and has neither finished nor been cancelled. */
+    public boolean isThinking() {
+        Task task = current;
+        return task != null && !task.future.isDone();
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Forsyth-Edwards Notation support for {@link Position}.
+ */
+public final class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk"; // indexed by piece code
+
+    private Fen() {
+    }
+
+    public static Position parse(String fen) {
+        Position pos = new Position();
+        load(fen, pos);
+        return pos;
+    }
+
+    /**
+     * Loads {@code fen} into {@code pos}. The move clocks may be omitted, as in EPD records.
+     *
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static void load(String fen, Position pos) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
+        }
+        pos.clear();
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (file != 8) throw new IllegalArgumentException("Bad rank length in FEN: " + fen);
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = PIECE_CHARS.indexOf(c);
+                if (piece < 0 || file > 7 || rank < 0) {
+                    throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+                }
+                pos.putPiece(piece, Position.square(file, rank));
+                file++;
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+        }
+        if (Long.bitCount(pos.pieces(Position.WHITE, Position.KING)) != 1
+                || Long.bitCount(pos.pieces(Position.BLACK, Position.KING)) != 1) {
+            throw new IllegalArgumentException("FEN must have exactly one king per side: " + fen);
+        }
+
+        switch (fields[1]) {
+            case "w":
+                pos.setSideToMove(Position.WHITE);
+                break;
+            case "b":
+                pos.setSideToMove(Position.BLACK);
+                break;
+            default:
+                throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+        }
+
+        int rights = 0;
+        if (!fields[2].equals("-")) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                int index = "KQkq".indexOf(fields[2].charAt(i));
+                if (index < 0) throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+                rights |= 1 << index;
+            }
+        }
+        pos.setCastlingRights(rights & possibleCastling(pos));
+
+        if (fields[3].equals("-")) {
+            pos.setEpSquare(Position.NO_SQUARE);
+        } else {
+            int ep = Move.parseSquare(fields[3]);
+            if (ep == Position.NO_SQUARE) throw new IllegalArgumentException("Bad en-passant square in FEN: " + fen);
+            // Kept only when a pawn can capture, matching what makeMove records, so equal positions hash equally
+            int us = pos.sideToMove();
+            if ((Attacks.PAWN[us ^ 1][ep] & pos.pieces(us, Position.PAWN)) != 0) {
+                pos.setEpSquare(ep);
+            }
+        }
+
+        try {
+            pos.setHalfmoveClock(fields.length > 4 ? Integer.parseInt(fields[4]) : 0);
+            pos.setFullmoveNumber(fields.length > 5 ? Math.max(1, Integer.parseInt(fields[5])) : 1);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad move counters in FEN: " + fen, e);
+        }
+    }
+
+    /**
+     * The FEN part of a line holding either a FEN or an EPD record. EPD operations such as
+     * {@code bm} and {@code id} are dropped and the move counters default to "0 1".
+     */
+    public static String fromEpd(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + line);
+        }
+        boolean counters = fields.length >= 6 && fields[4].matches("\\d+") && fields[5].matches("\\d+");
+        return counters ? String.join(" ", java.util.Arrays.copyOf(fields, 6))
+                : String.join(" ", java.util.Arrays.copyOf(fields, 4)) + " 0 1";
+    }
+
+    /** FEN for {@code pos}; the en-passant square appears only when a capture there is possible. */
+    public static String toFen(Position pos) {
+        StringBuilder sb = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = pos.pieceAt(Position.square(file, rank));
+                if (piece == Position.NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(PIECE_CHARS.charAt(piece));
+            }
+            if (empty > 0) sb.append(empty);
+            if (rank > 0) sb.append('/');
+        }
+        sb.append(pos.sideToMove() == Position.WHITE ? " w " : " b ");
+        int rights = pos.castlingRights();
+        if (rights == 0) {
+            sb.append('-');
+        } else {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & 1 << i) != 0) sb.append("KQkq".charAt(i));
+            }
+        }
+        sb.append(' ').append(pos.epSquare() == Position.NO_SQUARE ? "-" : Move.squareName(pos.epSquare()));
+        sb.append(' ').append(pos.halfmoveClock()).append(' ').append(pos.fullmoveNumber());
+        return sb.toString();
+    }
+
+    // Drops castling rights whose king or rook is not on its home square
+    private static int possibleCastling(Position pos) {
+        int rights = 0;
+        int wr = Position.piece(Position.WHITE, Position.ROOK);
+        int br = Position.piece(Position.BLACK, Position.ROOK);
+        if (pos.pieceAt(4) == Position.piece(Position.WHITE, Position.KING)) {
+            if (pos.pieceAt(7) == wr) rights |= Position.WHITE_KINGSIDE;
+            if (pos.pieceAt(0) == wr) rights |= Position.WHITE_QUEENSIDE;
+        }
+        if (pos.pieceAt(60) == Position.piece(Position.BLACK, Position.KING)) {
+            if (pos.pieceAt(63) == br) rights |= Position.BLACK_KINGSIDE;
+            if (pos.pieceAt(56) == br) rights |= Position.BLACK_QUEENSIDE;
+        }
+        return rights;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Move history of a game played on a {@link Position}, with undo and redo. Moves are kept
+ * in their 16-bit encoding in a growable short array; the captured piece, castling rights,
+ * en-passant square and hash needed to take a move back live in the position's own undo
+ * stack. Undo and redo are therefore a single unmake/make with no allocation.
+ */
+public final class GameHistory {
+    private final Position position;
+    private short[] moves = new short[256];
+    private int played;   // moves currently on the board
+    private int recorded; // moves available, including ones that can be redone
+
+    public GameHistory(Position position) {
+        this.position = position;
+    }
+
+    public Position position() {
+        return position;
+    }
+
+    /** Forgets all moves; call after loading a new starting position. */
+    public void reset() {
+        played = 0;
+        recorded = 0;
+    }
+
+    /** Plays a legal move, discarding any moves that could have been redone. */
+    public void play(int move) {
+        if (played == moves.length) {
+            moves = java.util.Arrays.copyOf(moves, played * 2);
+        }
+        position.makeMove(move);
+        moves[played++] = (short) move;
+        recorded = played;
+    }
+
+    public boolean canUndo() {
+        return played > 0;
+    }
+
+    public boolean canRedo() {
+        return played < recorded;
+    }
+
+    /** Takes back the last move and returns it, or {@link Move#NONE} if there is none. */
+    public int undo() {
+        if (played == 0) return Move.NONE;
+        int move = moves[--played] & 0xFFFF;
+        position.unmakeMove(move);
+        return move;
+    }
+
+    /** Replays the last undone move and returns it, or {@link Move#NONE} if there is none. */
+    public int redo() {
+        if (played == recorded) return Move.NONE;
+        int move = moves[played++] & 0xFFFF;
+        position.makeMove(move);
+        return move;
+    }
+
+    /** Number of moves currently played. */
+    public int ply() {
+        return played;
+    }
+
+    public int moveAt(int index) {
+        return moves[index] & 0xFFFF;
+    }
+}
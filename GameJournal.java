@@ -0,0 +1,283 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only record of one game, written as it is played so the game survives a crash.
+ *
+ * <p>The file starts with a header: the magic {@code "CGJ1"}, then the starting FEN and a
+ * free-form metadata string, each as a 2-byte length and UTF-8 bytes. After it come
+ * records, each a big-endian short:
+ * <ul>
+ *   <li>a non-zero short is a move in its 16-bit encoding, so a ply costs two bytes;
+ *   <li>zero is an escape followed by a tag byte: {@code 'U'} takes back the last move, and
+ *       {@code 'C'} followed by a length and FEN checkpoints the position after the moves so
+ *       far, written every {@link #CHECKPOINT_INTERVAL} plies.
+ * </ul>
+ * Every record goes to the operating system as soon as it is appended, so a process crash
+ * loses nothing; {@code fsync} is batched, once every {@code syncEvery} records or when
+ * {@link #syncIfDue(long)} finds records older than {@code syncMillis}. A record torn by a
+ * crash is dropped on recovery and overwritten by the next append.
+ */
+public final class GameJournal implements Closeable {
+    public static final int CHECKPOINT_INTERVAL = 64;
+    private static final int MAGIC = 0x43474A31; // "CGJ1"
+    private static final byte UNDO = 'U', CHECKPOINT = 'C';
+    private static final int MAX_STRING = 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(8 + MAX_STRING);
+    private final int syncEvery;
+    private final long syncMillis;
+    private int plies;
+    private int lastCheckpoint; // ply of the last checkpoint, 0 for the start position
+    private int unsynced; // records written since the last fsync
+    private long unsyncedSince;
+
+    /** A journal as read back from disk. */
+    public static final class Recovered {
+        public final String startFen;
+        public final String meta;
+        final short[] moves;
+        final int count;
+        final String checkpointFen; // position after checkpointPly moves, or startFen
+        final int checkpointPly;
+        final long validLength; // bytes up to the end of the last complete record
+
+        Recovered(String startFen, String meta, short[] moves, int count, String checkpointFen, int checkpointPly,
+                long validLength) {
+            this.startFen = startFen;
+            this.meta = meta;
+            this.moves = moves;
+            this.count = count;
+            this.checkpointFen = checkpointFen;
+            this.checkpointPly = checkpointPly;
+            this.validLength = validLength;
+        }
+
+        /** Number of moves on the board. */
+        public int plies() {
+            return count;
+        }
+
+        public int move(int ply) {
+            return moves[ply] & 0xFFFF;
+        }
+
+        /** The moves as a compact array, two bytes per ply. */
+        public short[] moves() {
+            return Arrays.copyOf(moves, count);
+        }
+
+        /**
+         * The current position, rebuilt from the last checkpoint and the moves after it.
+         * Throws IllegalArgumentException if one of those moves is not legal.
+         */
+        public Position position() {
+            Position pos = Fen.parse(checkpointFen);
+            for (int ply = checkpointPly; ply < count; ply++) {
+                int move = move(ply);
+                if (!MoveGen.isLegal(pos, move)) {
+                    throw new IllegalArgumentException("Illegal move " + Move.toUci(move) + " at ply " + ply);
+                }
+                pos.makeMove(move);
+            }
+            return pos;
+        }
+    }
+
+    private GameJournal(FileChannel channel, int plies, int lastCheckpoint, int syncEvery, long syncMillis) {
+        this.channel = channel;
+        this.plies = plies;
+        this.lastCheckpoint = lastCheckpoint;
+        this.syncEvery = syncEvery;
+        this.syncMillis = syncMillis;
+    }
+
+    /** Starts a new journal at {@code file}, replacing any old one. */
+    public static GameJournal create(Path file, String startFen, String meta, int syncEvery, long syncMillis)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        GameJournal journal = new GameJournal(channel, 0, 0, syncEvery, syncMillis);
+        try {
+            journal.buffer.clear();
+            journal.buffer.putInt(MAGIC);
+            putString(journal.buffer, startFen);
+            putString(journal.buffer, meta);
+            journal.write();
+            journal.sync();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /** Reopens an existing journal for appending, dropping a torn final record if there is one. */
+    public static GameJournal open(Path file, int syncEvery, long syncMillis) throws IOException {
+        Recovered game = read(file);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.truncate(game.validLength);
+        channel.position(game.validLength);
+        return new GameJournal(channel, game.count, game.checkpointPly, syncEvery, syncMillis);
+    }
+
+    /**
+     * Reopens a journal this process wrote and closed cleanly, appending after {@code plies}
+     * moves without reading it back; {@code lastCheckpoint} is the value
+     * {@link #lastCheckpoint()} had at close.
+     */
+    public static GameJournal reopen(Path file, int plies, int lastCheckpoint, int syncEvery, long syncMillis)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new GameJournal(channel, plies, lastCheckpoint, syncEvery, syncMillis);
+    }
+
+    /** Reads a journal; throws IOException if the header is missing or damaged. */
+    public static Recovered read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        String startFen;
+        String meta;
+        try {
+            if (in.getInt() != MAGIC) throw new IOException("Not a game journal: " + file);
+            startFen = getString(in);
+            meta = getString(in);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Truncated journal header: " + file);
+        }
+        short[] moves = new short[Math.max(16, in.remaining() / 2)];
+        int count = 0;
+        // Checkpoints still valid after the undos seen so far, by ply
+        int[] checkpointPlies = new int[4];
+        String[] checkpointFens = new String[4];
+        int checkpoints = 0;
+        long valid = in.position();
+        while (in.remaining() >= 2) {
+            short record = in.getShort();
+            if (record != 0) {
+                moves[count++] = record;
+            } else {
+                if (!in.hasRemaining()) break;
+                byte tag = in.get();
+                if (tag == UNDO) {
+                    if (count > 0) count--;
+                    while (checkpoints > 0 && checkpointPlies[checkpoints - 1] > count) checkpoints--;
+                } else if (tag == CHECKPOINT) {
+                    if (in.remaining() < 2) break;
+                    int length = in.getShort() & 0xFFFF;
+                    if (in.remaining() < length) break;
+                    byte[] fen = new byte[length];
+                    in.get(fen);
+                    if (checkpoints == checkpointPlies.length) {
+                        checkpointPlies = Arrays.copyOf(checkpointPlies, checkpoints * 2);
+                        checkpointFens = Arrays.copyOf(checkpointFens, checkpoints * 2);
+                    }
+                    checkpointPlies[checkpoints] = count;
+                    checkpointFens[checkpoints++] = new String(fen, StandardCharsets.UTF_8);
+                } else {
+                    break; // garbage, most likely a torn write
+                }
+            }
+            valid = in.position();
+        }
+        String checkpointFen = checkpoints == 0 ? startFen : checkpointFens[checkpoints - 1];
+        int checkpointPly = checkpoints == 0 ? 0 : checkpointPlies[checkpoints - 1];
+        return new Recovered(startFen, meta, moves, count, checkpointFen, checkpointPly, valid);
+    }
+
+    /** Number of moves on the board. */
+    public int plies() {
+        return plies;
+    }
+
+    /** Ply of the last checkpoint written, 0 for none. */
+    public int lastCheckpoint() {
+        return lastCheckpoint;
+    }
+
+    /** Records {@code move}; {@code after} is the position it led to, used for checkpoints. */
+    public void append(int move, Position after) throws IOException {
+        buffer.clear();
+        buffer.putShort((short) move);
+        plies++;
+        if (plies - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+            buffer.putShort((short) 0).put(CHECKPOINT);
+            putString(buffer, Fen.toFen(after));
+            lastCheckpoint = plies;
+        }
+        write();
+    }
+
+    /** Records that the last move was taken back. */
+    public void undo() throws IOException {
+        if (plies == 0) return;
+        buffer.clear();
+        buffer.putShort((short) 0).put(UNDO);
+        plies--;
+        // The reader drops checkpoints past the current ply; start counting from here
+        if (lastCheckpoint > plies) lastCheckpoint = plies;
+        write();
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (unsynced++ == 0) unsyncedSince = System.currentTimeMillis();
+        if (unsynced >= syncEvery) sync();
+    }
+
+    /** Forces written records to disk if some have waited longer than the sync interval. */
+    public void syncIfDue(long nowMillis) throws IOException {
+        if (unsynced > 0 && nowMillis - unsyncedSince >= syncMillis) sync();
+    }
+
+    public void sync() throws IOException {
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    /**
+     * Forces written records to disk without touching the batching counters, so another
+     * thread can do it while this one appends. For journals created with syncing left to
+     * the caller.
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    /** Closes without forcing records to disk, for callers that {@link #force()} them themselves. */
+    public void closeWithoutSync() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (unsynced > 0) sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void putString(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING) throw new IllegalArgumentException("Journal string too long: " + s);
+        out.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
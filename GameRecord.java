@@ -0,0 +1,69 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A finished or loaded game: PGN tag pairs, the starting position and the moves played.
+ */
+public final class GameRecord {
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN = "*";
+
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private String startFen = Fen.START;
+    private short[] moves = new short[128];
+    private int moveCount;
+    private String result = UNKNOWN;
+
+    public Map<String, String> tags() {
+        return tags;
+    }
+
+    public String tag(String name) {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    public String startFen() {
+        return startFen;
+    }
+
+    public void setStartFen(String fen) {
+        startFen = fen;
+    }
+
+    public void addMove(int move) {
+        if (moveCount == moves.length) {
+            moves = java.util.Arrays.copyOf(moves, moveCount * 2);
+        }
+        moves[moveCount++] = (short) move;
+    }
+
+    public int moveCount() {
+        return moveCount;
+    }
+
+    public int move(int index) {
+        return moves[index] & 0xFFFF;
+    }
+
+    public String result() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /** Clears the record so it can be reused for the next game. */
+    public void clear() {
+        tags.clear();
+        startFen = Fen.START;
+        moveCount = 0;
+        result = UNKNOWN;
+    }
+}
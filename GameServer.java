@@ -0,0 +1,526 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Online play server: {@code java GameServer [port] [-idle minutes] [-journal dir]}. One thread runs a
+ * non-blocking selector over every connection, so the server holds as many games as it has
+ * sockets. Each game costs a small object and two bytes per ply; the position is rebuilt by
+ * replaying the moves whenever one arrives, and every move is checked by {@link MoveGen}
+ * before it is relayed.
+ *
+ * <p>Line protocol over TCP, one ASCII command per line:
+ * <pre>
+ *   client                       server
+ *   NEW                          GAME id white token
+ *   JOIN id                      GAME id black token, then START to both players
+ *   REJOIN id token              GAME id color token, MOVES m1 m2 ..., START if both joined
+ *   MOVE e2e4                    MOVED e2e4 to both players, then OVER result reason at the end
+ *   RESIGN                       OVER result resignation to both players
+ *   PING / STATS                 PONG / STATS games=N connections=N heapMB=N
+ *                                LEFT or BACK when the opponent disconnects or returns
+ *                                ERROR message when a command is refused
+ * </pre>
+ * A game outlives its connections, so a player can reconnect with its token; games nobody
+ * is connected to are dropped after the idle timeout.
+ *
+ * <p>With {@code -journal dir} every started game is journaled to a {@link JournalStore} as
+ * it is played and recovered on startup, so a restarted server resumes its games and the
+ * players rejoin with their old tokens. A game waiting for its second player is not saved.
+ */
+public final class GameServer implements Closeable {
+    public static final int DEFAULT_PORT = 7777;
+    private static final int MAX_LINE = 256;
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+    private static final long SWEEP_INTERVAL_MILLIS = 10_000;
+    private static final long DEFAULT_IDLE_MINUTES = 30;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final long idleTimeoutMillis;
+    private final JournalStore journals; // null when games are not persisted
+    private final HashMap<Integer, Game> games = new HashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final Position start = Position.startPosition();
+    private final Position pos = new Position();
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+    private int connections;
+    private volatile boolean running = true;
+
+    // One game; the position is the start position plus the moves
+    private static final class Game {
+        final int id;
+        final long whiteToken, blackToken;
+        Connection white, black;
+        short[] moves = new short[8];
+        int moveCount;
+        boolean started; // both players have joined
+        long lastActive;
+
+        Game(int id, long whiteToken, long blackToken) {
+            this.id = id;
+            this.whiteToken = whiteToken;
+            this.blackToken = blackToken;
+        }
+
+        Connection player(int color) {
+            return color == Position.WHITE ? white : black;
+        }
+
+        void setPlayer(int color, Connection c) {
+            if (color == Position.WHITE) white = c; else black = c;
+        }
+
+        long token(int color) {
+            return color == Position.WHITE ? whiteToken : blackToken;
+        }
+
+        void add(int move) {
+            if (moveCount == moves.length) moves = java.util.Arrays.copyOf(moves, moveCount * 2);
+            moves[moveCount++] = (short) move;
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        byte[] partial; // start of a line split across reads, null when there is none
+        ByteBuffer pending; // output the socket could not take yet, null when there is none
+        Game game;
+        int color;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    public GameServer(int port, long idleTimeoutMillis) throws IOException {
+        this(port, idleTimeoutMillis, null);
+    }
+
+    /** A server that journals its games to {@code journals} and resumes the ones saved there. */
+    public GameServer(int port, long idleTimeoutMillis, JournalStore journals) throws IOException {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.journals = journals;
+        if (journals != null) recover(journals.recoverAll());
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    // Restores saved games with nobody connected; the players rejoin with their tokens
+    private void recover(Map<String, GameJournal.Recovered> saved) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, GameJournal.Recovered> entry : saved.entrySet()) {
+            GameJournal.Recovered journal = entry.getValue();
+            try {
+                if (!journal.startFen.equals(Fen.START)) throw new IllegalArgumentException("not from the start position");
+                long whiteToken = 0, blackToken = 0;
+                for (String field : journal.meta.split(" ")) {
+                    if (field.startsWith("white=")) whiteToken = Long.parseUnsignedLong(field.substring(6), 16);
+                    if (field.startsWith("black=")) blackToken = Long.parseUnsignedLong(field.substring(6), 16);
+                }
+                journal.position(); // checks the moves after the last checkpoint
+                Game game = new Game(Integer.parseInt(entry.getKey(), 36), whiteToken, blackToken);
+                if (journal.plies() > 0) {
+                    game.moves = journal.moves();
+                    game.moveCount = journal.plies();
+                }
+                game.started = true;
+                game.lastActive = now;
+                games.put(game.id, game);
+            } catch (RuntimeException e) {
+                System.err.println("Skipping saved game " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Number of games held, including ones nobody is connected to. */
+    public int games() {
+        return games.size();
+    }
+
+    /** The port the server is listening on. */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Serves connections on the calling thread until {@link #close()}. */
+    public void run() throws IOException {
+        long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+        try {
+            while (running) {
+                selector.select(SWEEP_INTERVAL_MILLIS);
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection c = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) read(c);
+                        if (key.isValid() && key.isWritable()) flush(c);
+                    } catch (IOException e) {
+                        disconnect(c);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextSweep) {
+                    sweep(now);
+                    nextSweep = now + SWEEP_INTERVAL_MILLIS;
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            if (journals != null) journals.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+            connections++;
+        }
+    }
+
+    private void read(Connection c) throws IOException {
+        readBuffer.clear();
+        int n = c.channel.read(readBuffer);
+        if (n < 0) {
+            disconnect(c);
+            return;
+        }
+        readBuffer.flip();
+        while (readBuffer.hasRemaining() && c.key.isValid()) {
+            int lineStart = readBuffer.position();
+            int end = lineStart;
+            while (end < readBuffer.limit() && readBuffer.get(end) != '\n') end++;
+            int length = end - lineStart;
+            int carried = c.partial == null ? 0 : c.partial.length;
+            if (carried + length > MAX_LINE) {
+                disconnect(c); // not speaking the protocol
+                return;
+            }
+            byte[] line = new byte[carried + length];
+            if (carried > 0) System.arraycopy(c.partial, 0, line, 0, carried);
+            readBuffer.get(line, carried, length);
+            if (end == readBuffer.limit()) {
+                c.partial = line; // the rest of the line has not arrived yet
+                return;
+            }
+            readBuffer.get(); // the newline
+            c.partial = null;
+            execute(c, new String(line, StandardCharsets.US_ASCII).trim());
+        }
+    }
+
+    private void execute(Connection c, String line) throws IOException {
+        if (line.isEmpty()) return;
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "NEW":
+                leave(c);
+                create(c);
+                break;
+            case "JOIN":
+                if (tokens.length < 2) {
+                    send(c, "ERROR usage: JOIN id");
+                } else {
+                    leave(c);
+                    join(c, tokens[1]);
+                }
+                break;
+            case "REJOIN":
+                if (tokens.length < 3) {
+                    send(c, "ERROR usage: REJOIN id token");
+                } else {
+                    leave(c);
+                    rejoin(c, tokens[1], tokens[2]);
+                }
+                break;
+            case "MOVE":
+                if (tokens.length < 2) {
+                    send(c, "ERROR usage: MOVE e2e4");
+                } else {
+                    move(c, tokens[1]);
+                }
+                break;
+            case "RESIGN":
+                if (c.game == null || !c.game.started) {
+                    send(c, "ERROR no game in progress");
+                } else {
+                    finish(c.game, (c.color == Position.WHITE ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS)
+                            + " resignation");
+                }
+                break;
+            case "PING":
+                send(c, "PONG");
+                break;
+            case "STATS":
+                Runtime rt = Runtime.getRuntime();
+                send(c, "STATS games=" + games.size() + " connections=" + connections
+                        + " heapMB=" + (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024));
+                break;
+            default:
+                send(c, "ERROR unknown command " + tokens[0]);
+        }
+    }
+
+    private void create(Connection c) throws IOException {
+        int id;
+        do {
+            id = random.nextInt(Integer.MAX_VALUE);
+        } while (games.containsKey(id));
+        Game game = new Game(id, random.nextLong(), random.nextLong());
+        games.put(id, game);
+        attach(c, game, Position.WHITE);
+        send(c, "GAME " + Integer.toString(id, 36) + " white " + Long.toHexString(game.whiteToken));
+    }
+
+    private void join(Connection c, String id) throws IOException {
+        Game game = find(id);
+        if (game == null) {
+            send(c, "ERROR no such game " + id);
+        } else if (game.started) {
+            send(c, "ERROR game " + id + " already has two players");
+        } else {
+            attach(c, game, Position.BLACK);
+            game.started = true;
+            journalStart(game);
+            send(c, "GAME " + id + " black " + Long.toHexString(game.blackToken));
+            broadcast(game, "START");
+        }
+    }
+
+    private void rejoin(Connection c, String id, String token) throws IOException {
+        Game game = find(id);
+        int color;
+        if (game != null && token.equals(Long.toHexString(game.whiteToken))) {
+            color = Position.WHITE;
+        } else if (game != null && game.started && token.equals(Long.toHexString(game.blackToken))) {
+            color = Position.BLACK;
+        } else {
+            send(c, "ERROR no such game " + id);
+            return;
+        }
+        Connection old = game.player(color);
+        if (old != null) {
+            send(old, "ERROR replaced by a new connection");
+            old.game = null;
+        }
+        attach(c, game, color);
+        send(c, "GAME " + id + " " + (color == Position.WHITE ? "white" : "black") + " " + token);
+        StringBuilder moves = new StringBuilder("MOVES");
+        for (int i = 0; i < game.moveCount; i++) {
+            moves.append(' ').append(Move.toUci(game.moves[i] & 0xFFFF));
+        }
+        send(c, moves.toString());
+        if (game.started) send(c, "START");
+        Connection opponent = game.player(color ^ 1);
+        if (opponent != null) send(opponent, "BACK");
+    }
+
+    private Game find(String id) {
+        try {
+            return games.get(Integer.parseInt(id, 36));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void attach(Connection c, Game game, int color) {
+        c.game = game;
+        c.color = color;
+        game.setPlayer(color, c);
+        game.lastActive = System.currentTimeMillis();
+    }
+
+    // Detaches c from its game, telling the opponent
+    private void leave(Connection c) throws IOException {
+        Game game = c.game;
+        if (game == null) return;
+        c.game = null;
+        game.setPlayer(c.color, null);
+        game.lastActive = System.currentTimeMillis();
+        Connection opponent = game.player(c.color ^ 1);
+        if (opponent != null) send(opponent, "LEFT");
+    }
+
+    private void move(Connection c, String uci) throws IOException {
+        Game game = c.game;
+        if (game == null || !game.started) {
+            send(c, "ERROR no game in progress");
+            return;
+        }
+        pos.copyFrom(start);
+        for (int i = 0; i < game.moveCount; i++) {
+            pos.makeMove(game.moves[i] & 0xFFFF);
+        }
+        if (pos.sideToMove() != c.color) {
+            send(c, "ERROR not your turn");
+            return;
+        }
+        int move = Move.parseUci(pos, uci, scratch);
+        if (move == Move.NONE) {
+            send(c, "ERROR illegal move " + uci);
+            return;
+        }
+        pos.makeMove(move);
+        game.add(move);
+        journalMove(game, move);
+        game.lastActive = System.currentTimeMillis();
+        broadcast(game, "MOVED " + Move.toUci(move));
+        GameStatus status = GameStatus.of(pos, scratch);
+        if (status.isOver()) finish(game, status.result(pos) + " " + status.reason().replace(' ', '-'));
+    }
+
+    private void finish(Game game, String resultAndReason) throws IOException {
+        broadcast(game, "OVER " + resultAndReason);
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            Connection c = game.player(color);
+            if (c != null) c.game = null;
+        }
+        games.remove(game.id);
+        journalDelete(game);
+    }
+
+    // Journal failures are reported but never stop play
+
+    private void journalStart(Game game) {
+        if (journals == null) return;
+        try {
+            journals.create(Integer.toString(game.id, 36), Fen.START, "white=" + Long.toHexString(game.whiteToken)
+                    + " black=" + Long.toHexString(game.blackToken));
+        } catch (IOException e) {
+            System.err.println("Could not journal game " + Integer.toString(game.id, 36) + ": " + e.getMessage());
+        }
+    }
+
+    private void journalMove(Game game, int move) {
+        if (journals == null) return;
+        try {
+            journals.append(Integer.toString(game.id, 36), move, pos);
+        } catch (IOException e) {
+            System.err.println("Could not journal game " + Integer.toString(game.id, 36) + ": " + e.getMessage());
+        }
+    }
+
+    private void journalDelete(Game game) {
+        if (journals == null) return;
+        try {
+            journals.delete(Integer.toString(game.id, 36));
+        } catch (IOException e) {
+            System.err.println("Could not delete journal of game " + Integer.toString(game.id, 36) + ": " + e.getMessage());
+        }
+    }
+
+    private void broadcast(Game game, String line) throws IOException {
+        if (game.white != null) send(game.white, line);
+        if (game.black != null) send(game.black, line);
+    }
+
+    private void send(Connection c, String line) throws IOException {
+        if (!c.key.isValid()) return;
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+        if (c.pending == null) {
+            ByteBuffer out = ByteBuffer.wrap(bytes);
+            try {
+                c.channel.write(out);
+            } catch (IOException e) {
+                disconnect(c);
+                return;
+            }
+            if (!out.hasRemaining()) return;
+            c.pending = out;
+            c.key.interestOps(c.key.interestOps() | SelectionKey.OP_WRITE);
+        } else {
+            if (c.pending.remaining() + bytes.length > MAX_PENDING_OUTPUT) {
+                disconnect(c); // not reading its updates
+                return;
+            }
+            ByteBuffer joined = ByteBuffer.allocate(c.pending.remaining() + bytes.length);
+            joined.put(c.pending).put(bytes).flip();
+            c.pending = joined;
+        }
+    }
+
+    private void flush(Connection c) throws IOException {
+        c.channel.write(c.pending);
+        if (!c.pending.hasRemaining()) {
+            c.pending = null;
+            c.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void disconnect(Connection c) throws IOException {
+        if (!c.key.isValid()) return;
+        c.key.cancel();
+        c.channel.close();
+        connections--;
+        leave(c);
+    }
+
+    // Drops games nobody has been connected to for the idle timeout
+    private void sweep(long now) {
+        for (Iterator<Game> it = games.values().iterator(); it.hasNext(); ) {
+            Game game = it.next();
+            if (game.white == null && game.black == null && now - game.lastActive > idleTimeoutMillis) {
+                it.remove();
+                journalDelete(game);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long idleMinutes = DEFAULT_IDLE_MINUTES;
+        String journalDir = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-idle") && i + 1 < args.length) {
+                idleMinutes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-journal") && i + 1 < args.length) {
+                journalDir = args[++i];
+            } else {
+                port = Integer.parseInt(args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        JournalStore journals = journalDir == null ? null : new JournalStore(java.nio.file.Paths.get(journalDir));
+        GameServer server = new GameServer(port, idleMinutes * 60_000, journals);
+        if (journals != null) {
+            System.out.printf("Resumed %d saved games in %.2f s%n", server.games(), (System.nanoTime() - start) / 1e9);
+        }
+        System.out.println("Game server listening on port " + server.port());
+        server.run();
+    }
+}
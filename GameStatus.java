@@ -0,0 +1,52 @@
+/**
+ * Whether a game is still going after the last move or which rule ended it. Checks mate and
+ * stalemate first, so a mating move beats the fifty-move rule, then the draws: fifty moves
+ * without a capture or pawn move, a third occurrence of the position, or too little
+ * material for either side to mate.
+ */
+public enum GameStatus {
+    ONGOING(null),
+    CHECKMATE("checkmate"),
+    STALEMATE("stalemate"),
+    FIFTY_MOVE_RULE("fifty-move rule"),
+    THREEFOLD_REPETITION("threefold repetition"),
+    INSUFFICIENT_MATERIAL("insufficient material");
+
+    private final String reason;
+
+    GameStatus(String reason) {
+        this.reason = reason;
+    }
+
+    /** The status of {@code pos}, whose history must hold the game's moves for repetitions to count. */
+    public static GameStatus of(Position pos, int[] scratch) {
+        if (!MoveGen.hasLegalMove(pos, scratch)) {
+            return pos.inCheck() ? CHECKMATE : STALEMATE;
+        }
+        if (pos.halfmoveClock() >= 100) return FIFTY_MOVE_RULE;
+        if (pos.repetitions() >= 2) return THREEFOLD_REPETITION;
+        if (pos.hasInsufficientMaterial()) return INSUFFICIENT_MATERIAL;
+        return ONGOING;
+    }
+
+    public boolean isOver() {
+        return this != ONGOING;
+    }
+
+    /** Human-readable cause, such as {@code "threefold repetition"}; null while the game goes on. */
+    public String reason() {
+        return reason;
+    }
+
+    /** The PGN result when {@code pos} has this status: the side to move has lost if mated. */
+    public String result(Position pos) {
+        switch (this) {
+            case ONGOING:
+                return GameRecord.UNKNOWN;
+            case CHECKMATE:
+                return pos.sideToMove() == Position.WHITE ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS;
+            default:
+                return GameRecord.DRAW;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Zobrist keys of the positions before each move made, most recent last, in a fixed ring of
+ * longs. A position can only repeat one reached since the last capture or pawn move, so
+ * only the last {@code halfmoveClock} keys ever matter; the ring keeps {@link #CAPACITY} of
+ * them, enough for the fifty-move rule plus the deepest search line, and silently drops
+ * older ones. Pushing and popping are a store and an index update, with no allocation.
+ */
+public final class HashHistory {
+    public static final int CAPACITY = 256; // more than 100 plies of the fifty-move rule plus Search.MAX_PLY
+    private static final int MASK = CAPACITY - 1;
+
+    private final long[] keys = new long[CAPACITY];
+    private int head; // index the next key goes to
+    private int size; // keys held, at most CAPACITY
+
+    public void push(long key) {
+        keys[head] = key;
+        head = (head + 1) & MASK;
+        if (size < CAPACITY) size++;
+    }
+
+    /** Drops the most recent key, if it is still held. */
+    public void pop() {
+        if (size > 0) {
+            head = (head - 1) & MASK;
+            size--;
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The key {@code plies} moves back, 1 being the position before the last move. */
+    public long get(int plies) {
+        if (plies < 1 || plies > size) throw new IndexOutOfBoundsException("No key " + plies + " plies back");
+        return keys[(head - plies) & MASK];
+    }
+
+    /**
+     * Number of earlier positions with {@code key} among the last {@code halfmoveClock}
+     * plies, checking only those with the same side to move and starting four plies back,
+     * the closest a position can repeat. With {@code stopAtFirst} it returns at the first.
+     */
+    public int count(long key, int halfmoveClock, boolean stopAtFirst) {
+        int limit = Math.min(halfmoveClock, size);
+        int count = 0;
+        for (int plies = 4; plies <= limit; plies += 2) {
+            if (keys[(head - plies) & MASK] == key) {
+                count++;
+                if (stopAtFirst) break;
+            }
+        }
+        return count;
+    }
+
+    public void copyFrom(HashHistory other) {
+        System.arraycopy(other.keys, 0, keys, 0, CAPACITY);
+        head = other.head;
+        size = other.size;
+    }
+}
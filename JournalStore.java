@@ -0,0 +1,285 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A directory of {@link GameJournal}s, one file per game named {@code <id>.cgj}. Keeps up to
+ * {@code maxOpen} journals open, closing the least recently used, so a server with many
+ * more games than file descriptors can still journal all of them. The ply count and last
+ * checkpoint of every journal stay in memory, so reopening an evicted one is a plain open
+ * for appending.
+ *
+ * <p>{@code fsync} is a group commit on a background thread: every {@code syncMillis}, or as
+ * soon as one journal has {@code syncEvery} records waiting, it forces all journals written
+ * since the last commit, so each game costs at most one {@code fsync} per commit. Evicted
+ * journals are closed at once and forced later by file name, so neither appends nor
+ * evictions wait for the disk. A failed commit is thrown by the next call that writes.
+ *
+ * <p>Not thread-safe: use it from one thread, such as the server's selector thread.
+ */
+public final class JournalStore implements Closeable {
+    public static final int DEFAULT_MAX_OPEN = 256;
+    public static final int DEFAULT_SYNC_RECORDS = 32;
+    public static final long DEFAULT_SYNC_MILLIS = 1000;
+    private static final String SUFFIX = ".cgj";
+
+    private final Path dir;
+    private final int maxOpen;
+    private final int syncEvery;
+    private final long syncMillis;
+    private final LinkedHashMap<String, GameJournal> open = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Tail> tails = new HashMap<>(); // journals written by this process
+
+    // Shared with the commit thread
+    private final Map<GameJournal, Pending> dirty = new ConcurrentHashMap<>(); // written since the last commit
+    private final Set<Path> closedDirty = ConcurrentHashMap.newKeySet(); // evicted before their commit
+    private final Thread committer;
+    private volatile boolean due; // a journal has syncEvery records waiting
+    private volatile boolean closing;
+    private volatile IOException commitFailure;
+
+    // A journal's file and records written since the last commit
+    private static final class Pending {
+        final Path file;
+        final AtomicInteger records = new AtomicInteger();
+
+        Pending(Path file) {
+            this.file = file;
+        }
+    }
+
+    // Where an evicted journal left off, so it can be reopened without reading it back
+    private static final class Tail {
+        int plies;
+        int lastCheckpoint;
+    }
+
+    public JournalStore(Path dir) throws IOException {
+        this(dir, DEFAULT_MAX_OPEN, DEFAULT_SYNC_RECORDS, DEFAULT_SYNC_MILLIS);
+    }
+
+    public JournalStore(Path dir, int maxOpen, int syncEvery, long syncMillis) throws IOException {
+        if (maxOpen < 1) throw new IllegalArgumentException("maxOpen must be at least 1: " + maxOpen);
+        this.dir = Files.createDirectories(dir);
+        this.maxOpen = maxOpen;
+        this.syncEvery = Math.max(1, syncEvery);
+        this.syncMillis = Math.max(1, syncMillis);
+        this.committer = new Thread(this::commitLoop, "journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    private Path file(String id) {
+        return dir.resolve(id + SUFFIX);
+    }
+
+    public boolean exists(String id) {
+        return Files.exists(file(id));
+    }
+
+    /** Starts the journal for game {@code id}, replacing any earlier one. */
+    public void create(String id, String startFen, String meta) throws IOException {
+        checkCommits();
+        close(id);
+        // The journal never syncs on its own; the commit thread does it for all of them
+        GameJournal journal = GameJournal.create(file(id), startFen, meta, Integer.MAX_VALUE, Long.MAX_VALUE);
+        tails.put(id, new Tail());
+        put(id, journal);
+    }
+
+    public void append(String id, int move, Position after) throws IOException {
+        checkCommits();
+        GameJournal journal = journal(id);
+        journal.append(move, after);
+        written(id, journal);
+    }
+
+    public void undo(String id) throws IOException {
+        checkCommits();
+        GameJournal journal = journal(id);
+        journal.undo();
+        written(id, journal);
+    }
+
+    /** Reads back one game, or null if it has no journal. */
+    public GameJournal.Recovered read(String id) throws IOException {
+        return Files.exists(file(id)) ? GameJournal.read(file(id)) : null;
+    }
+
+    /** Removes the journal of a finished or abandoned game. */
+    public void delete(String id) throws IOException {
+        close(id);
+        tails.remove(id);
+        Files.deleteIfExists(file(id));
+    }
+
+    /**
+     * Reads every journal in the directory, by game id. Damaged ones are reported on
+     * standard error and left out.
+     */
+    public Map<String, GameJournal.Recovered> recoverAll() throws IOException {
+        Map<String, GameJournal.Recovered> games = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(0, name.length() - SUFFIX.length());
+                try {
+                    games.put(id, GameJournal.read(file));
+                } catch (IOException e) {
+                    System.err.println("Skipping damaged journal " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        return games;
+    }
+
+    private GameJournal journal(String id) throws IOException {
+        GameJournal journal = open.get(id);
+        if (journal == null) {
+            Tail tail = tails.get(id);
+            if (tail == null) {
+                // Written by an earlier process: read it once, dropping a torn final record
+                journal = GameJournal.open(file(id), Integer.MAX_VALUE, Long.MAX_VALUE);
+                tails.put(id, new Tail());
+            } else {
+                journal = GameJournal.reopen(file(id), tail.plies, tail.lastCheckpoint, Integer.MAX_VALUE, Long.MAX_VALUE);
+            }
+            put(id, journal);
+        }
+        return journal;
+    }
+
+    private void put(String id, GameJournal journal) throws IOException {
+        open.put(id, journal);
+        if (open.size() > maxOpen) {
+            Iterator<Map.Entry<String, GameJournal>> eldest = open.entrySet().iterator();
+            Map.Entry<String, GameJournal> entry = eldest.next();
+            eldest.remove();
+            GameJournal evicted = entry.getValue();
+            remember(entry.getKey(), evicted);
+            Pending unsynced = dirty.remove(evicted);
+            if (unsynced != null) closedDirty.add(unsynced.file);
+            evicted.closeWithoutSync();
+        }
+    }
+
+    private void remember(String id, GameJournal journal) {
+        Tail tail = tails.get(id);
+        if (tail != null) {
+            tail.plies = journal.plies();
+            tail.lastCheckpoint = journal.lastCheckpoint();
+        }
+    }
+
+    // Closes without forcing; used when the game starts over or its journal is deleted
+    private void close(String id) throws IOException {
+        GameJournal journal = open.remove(id);
+        if (journal != null) {
+            dirty.remove(journal);
+            journal.closeWithoutSync();
+        }
+    }
+
+    private void written(String id, GameJournal journal) {
+        Pending pending = dirty.get(journal);
+        if (pending == null) {
+            pending = new Pending(file(id));
+            dirty.put(journal, pending);
+        }
+        if (pending.records.incrementAndGet() == syncEvery) {
+            due = true;
+            LockSupport.unpark(committer);
+        }
+    }
+
+    private void checkCommits() throws IOException {
+        IOException failure = commitFailure;
+        if (failure != null) {
+            commitFailure = null;
+            throw failure;
+        }
+    }
+
+    private void commitLoop() {
+        while (!closing) {
+            if (!due) LockSupport.parkNanos(syncMillis * 1_000_000);
+            try {
+                commit();
+            } catch (IOException e) {
+                commitFailure = e;
+            }
+        }
+    }
+
+    // Forces every journal written since the last commit, by file name if it was closed meanwhile
+    private void commit() throws IOException {
+        due = false;
+        IOException failure = null;
+        for (Iterator<Map.Entry<GameJournal, Pending>> it = dirty.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<GameJournal, Pending> entry = it.next();
+            it.remove();
+            try {
+                entry.getKey().force();
+            } catch (ClosedChannelException e) {
+                closedDirty.add(entry.getValue().file); // evicted or deleted while we got here
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        for (Iterator<Path> it = closedDirty.iterator(); it.hasNext(); ) {
+            Path file = it.next();
+            it.remove();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.force(false); // fsync reaches the file's data through any descriptor
+            } catch (NoSuchFileException e) {
+                // deleted: the game is over
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /** Forces everything written so far to disk and closes all journals. */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(committer);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException failure = commitFailure;
+        try {
+            commit();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+        for (GameJournal journal : open.values()) {
+            try {
+                journal.closeWithoutSync(); // forced by the commit above
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        open.clear();
+        tails.clear();
+        if (failure != null) throw failure;
+    }
+}
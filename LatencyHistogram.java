@@ -0,0 +1,104 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets, in the style of
+ * HdrHistogram: values below 128 get a bucket each, and every power of two above that is
+ * split into 64 buckets, so any recorded value is reported within 1/64 (about 1.6%).
+ * Values from 0 to {@link #MAX_VALUE} (about 68 s) fit in under 2,000 counters; larger ones
+ * are clamped.
+ *
+ * <p>{@link #record(long)} allocates nothing and takes no lock, so it can sit on hot paths
+ * and be called from several threads while another thread reads percentiles.
+ */
+public final class LatencyHistogram {
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 7; // 128 linear buckets below the first split
+    private static final int HALF_BUCKET = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucketIndex(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * HALF_BUCKET + (int) (value >>> shift);
+    }
+
+    // Smallest value that falls in bucket index
+    static long bucketStart(int index) {
+        int shift = index < 2 * HALF_BUCKET ? 0 : index / HALF_BUCKET - 1;
+        return (long) (index - shift * HALF_BUCKET) << shift;
+    }
+
+    // Largest value that falls in bucket index
+    static long bucketEnd(int index) {
+        int shift = index < 2 * HALF_BUCKET ? 0 : index / HALF_BUCKET - 1;
+        return bucketStart(index) + (1L << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(MAX_VALUE, Math.max(0, nanos));
+        counts.incrementAndGet(bucketIndex(value));
+        total.increment();
+        sum.add(value);
+        for (long seen = max.get(); value > seen && !max.compareAndSet(seen, value); seen = max.get()) {
+            // retry until this value is recorded or a larger one is
+        }
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * The value at or below which {@code fraction} (0 to 1) of the recorded values fall,
+     * reported as the top of its bucket; 0 when nothing was recorded.
+     */
+    public long percentile(double fraction) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(bucketEnd(i), max());
+        }
+        return max();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /** Count, mean, p50, p90, p99 and max in microseconds as a JSON object. */
+    public String toJson() {
+        return String.format(java.util.Locale.ROOT,
+                "{\"count\":%d,\"meanMicros\":%.1f,\"p50Micros\":%.1f,\"p90Micros\":%.1f,\"p99Micros\":%.1f,\"maxMicros\":%.1f}",
+                count(), mean() / 1e3, percentile(0.50) / 1e3, percentile(0.90) / 1e3, percentile(0.99) / 1e3, max() / 1e3);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.0fus p90=%.0fus p99=%.0fus max=%.0fus",
+                count(), percentile(0.50) / 1e3, percentile(0.90) / 1e3, percentile(0.99) / 1e3, max() / 1e3);
+    }
+}
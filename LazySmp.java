@@ -0,0 +1,137 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazy SMP parallel {@link Engine}: the calling thread runs the main search while helper
+ * threads search the same position, communicating only through the shared lock-free
+ * {@link TranspositionTable}. The main thread's result is returned once it hits its limits;
+ * helpers are then stopped and their nodes added to the total.
+ */
+public class LazySmp implements Engine {
+    private TranspositionTable tt;
+    private Search main;
+    private Search[] helpers;
+    private ExecutorService pool;
+    private Nnue network;
+    private Tablebase tablebase;
+
+    public LazySmp(int threads, int hashMegabytes) {
+        tt = new TranspositionTable(hashMegabytes);
+        configure(threads);
+    }
+
+    private void configure(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        shutdown();
+        main = new Search(tt, 0);
+        main.setNetwork(network);
+        main.setTablebase(tablebase);
+        helpers = new Search[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(tt, i + 1);
+            helpers[i].setNetwork(network);
+            helpers[i].setTablebase(tablebase);
+        }
+        if (helpers.length > 0) {
+            AtomicInteger counter = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(helpers.length, r -> {
+                Thread t = new Thread(r, "search-helper-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public int threads() {
+        return helpers.length + 1;
+    }
+
+    /** Changes the number of search threads; must not be called while a search is running. */
+    public void setThreads(int threads) {
+        if (threads != threads()) {
+            configure(threads);
+        }
+    }
+
+    /** Replaces the transposition table; must not be called while a search is running. */
+    public void setHashMegabytes(int megabytes) {
+        int threads = threads();
+        tt = new TranspositionTable(megabytes);
+        configure(threads);
+    }
+
+    /** Evaluates with {@code network}, or with the hand-crafted evaluation when null. */
+    public void setNetwork(Nnue network) {
+        this.network = network;
+        main.setNetwork(network);
+        for (Search helper : helpers) {
+            helper.setNetwork(network);
+        }
+    }
+
+    /** Probes {@code tablebase} for endings it covers, or never when null. */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        main.setTablebase(tablebase);
+        for (Search helper : helpers) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    public TranspositionTable transpositionTable() {
+        return tt;
+    }
+
+    @Override
+    public SearchResult search(Position pos, SearchLimits limits, SearchListener listener) {
+        Future<?>[] running = new Future<?>[helpers.length];
+        // Helpers run until the main thread is done; they ignore time and node limits
+        SearchLimits helperLimits = SearchLimits.depth(limits.depth());
+        main.prepare();
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = helpers[i];
+            helper.prepare();
+            running[i] = pool.submit(() -> helper.searchPrepared(pos, helperLimits, null));
+        }
+
+        SearchResult result = main.searchPrepared(pos, limits, listener);
+
+        long nodes = result.nodes();
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stop();
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            try {
+                running[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+            nodes += helpers[i].nodes();
+        }
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), nodes,
+                result.elapsedNanos(), result.pv());
+    }
+
+    @Override
+    public void stop() {
+        main.stop();
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+    }
+
+    /** Stops the helper threads; the engine must not be used afterwards. */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+}
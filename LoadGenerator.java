@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Load test client for {@link GameServer}. Opens two connections per game, creates and
+ * joins every game, then plays random legal moves in all of them at once and reports
+ * throughput and the round-trip latency from sending a move to seeing it relayed. With
+ * {@code -hold} the games are then left open and idle, to measure what the server needs to
+ * keep them.
+ *
+ * <pre>
+ *   java LoadGenerator [options]
+ *     -host HOST      server host (default localhost)
+ *     -port N         server port (default 7777)
+ *     -games N        concurrent games (default 1000)
+ *     -plies N        moves to play in each game (default 40)
+ *     -hold SECONDS   keep the games open and idle afterwards (default 0)
+ *     -seed N         random seed for move choice (default 1)
+ * </pre>
+ */
+public final class LoadGenerator {
+    private static final long TIMEOUT_MILLIS = 120_000;
+
+    private final Selector selector;
+    private final Random random;
+    private final int plies;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+    private long[] latencies = new long[1 << 16];
+    private int latencyCount;
+    private int games;
+    private int gamesDone;
+    private int errors;
+    private String lastStats;
+
+    // Both sides of one game
+    private static final class Pair {
+        final Position pos = Position.startPosition();
+        final Player[] players = new Player[2];
+        String id;
+        int moves;
+        boolean done;
+    }
+
+    private static final class Player {
+        final Pair pair;
+        final int color;
+        final SocketChannel channel;
+        final StringBuilder partial = new StringBuilder();
+        String sent; // move awaiting its echo, null if none
+        long sentAt;
+
+        Player(Pair pair, int color, SocketChannel channel) {
+            this.pair = pair;
+            this.color = color;
+            this.channel = channel;
+        }
+    }
+
+    private LoadGenerator(int plies, long seed) throws IOException {
+        this.plies = plies;
+        this.random = new Random(seed);
+        this.selector = Selector.open();
+    }
+
+    private Player connect(InetSocketAddress address, Pair pair, int color) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        Player player = new Player(pair, color, channel);
+        channel.register(selector, SelectionKey.OP_READ, player);
+        pair.players[color] = player;
+        return player;
+    }
+
+    // Handles events until every game is done or the deadline passes
+    private void pump(long deadline) throws IOException {
+        while (gamesDone < games && System.currentTimeMillis() < deadline) {
+            poll();
+        }
+    }
+
+    // Reads whatever has arrived and handles each complete line
+    private void poll() throws IOException {
+        selector.select(100);
+        for (SelectionKey key : selector.selectedKeys()) {
+            Player player = (Player) key.attachment();
+            readBuffer.clear();
+            if (player.channel.read(readBuffer) < 0) {
+                key.cancel();
+                finish(player.pair);
+                continue;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                char c = (char) readBuffer.get();
+                if (c == '\n') {
+                    receive(player, player.partial.toString());
+                    player.partial.setLength(0);
+                } else {
+                    player.partial.append(c);
+                }
+            }
+        }
+        selector.selectedKeys().clear();
+    }
+
+    private void receive(Player player, String line) throws IOException {
+        String[] tokens = line.split(" ");
+        Pair pair = player.pair;
+        switch (tokens[0]) {
+            case "GAME":
+                if (player.color == Position.WHITE) {
+                    pair.id = tokens[1];
+                    send(pair.players[Position.BLACK], "JOIN " + pair.id);
+                }
+                break;
+            case "START":
+                if (player.color == Position.WHITE) playNext(pair);
+                break;
+            case "MOVED":
+                // Only the mover's own echo counts; the opponent's copy may arrive after it
+                if (pair.done || !tokens[1].equals(player.sent)) break;
+                recordLatency(System.nanoTime() - player.sentAt);
+                player.sent = null;
+                pair.pos.makeMove(Move.parseUci(pair.pos, tokens[1], scratch));
+                pair.moves++;
+                playNext(pair);
+                break;
+            case "OVER":
+                finish(pair);
+                break;
+            case "STATS":
+                lastStats = line;
+                break;
+            case "ERROR":
+                if (++errors <= 10) System.out.println("Game " + pair.id + ": " + line);
+                finish(pair);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void playNext(Pair pair) throws IOException {
+        if (pair.done) return;
+        if (pair.moves >= plies) {
+            finish(pair); // left idle, not resigned, so the server keeps the game
+            return;
+        }
+        if (GameStatus.of(pair.pos, scratch).isOver()) {
+            return; // the server ends the game and sends OVER
+        }
+        int count = MoveGen.generateLegal(pair.pos, scratch, 0);
+        Player mover = pair.players[pair.pos.sideToMove()];
+        mover.sent = Move.toUci(scratch[random.nextInt(count)]);
+        mover.sentAt = System.nanoTime();
+        send(mover, "MOVE " + mover.sent);
+    }
+
+    private void finish(Pair pair) {
+        if (!pair.done) {
+            pair.done = true;
+            gamesDone++;
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        if (latencyCount == latencies.length) latencies = Arrays.copyOf(latencies, latencyCount * 2);
+        latencies[latencyCount++] = nanos;
+    }
+
+    private static void send(Player player, String line) throws IOException {
+        ByteBuffer out = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        while (out.hasRemaining()) {
+            player.channel.write(out); // a few bytes at a time, so the socket buffer never stays full
+        }
+    }
+
+    // Asks the server for its counters through the given connection
+    private String stats(Player player) throws IOException {
+        lastStats = null;
+        send(player, "STATS");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lastStats == null && System.currentTimeMillis() < deadline) {
+            poll();
+        }
+        return lastStats == null ? "no STATS reply" : lastStats;
+    }
+
+    private double percentile(double p) {
+        if (latencyCount == 0) return 0;
+        int index = (int) Math.min(latencyCount - 1, Math.round(p * (latencyCount - 1)));
+        return latencies[index] / 1e3;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = GameServer.DEFAULT_PORT;
+        int games = 1000;
+        int plies = 40;
+        long holdSeconds = 0;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-host": host = args[i + 1]; break;
+                case "-port": port = Integer.parseInt(args[i + 1]); break;
+                case "-games": games = Integer.parseInt(args[i + 1]); break;
+                case "-plies": plies = Integer.parseInt(args[i + 1]); break;
+                case "-hold": holdSeconds = Long.parseLong(args[i + 1]); break;
+                case "-seed": seed = Long.parseLong(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        LoadGenerator load = new LoadGenerator(plies, seed);
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        List<Pair> pairs = new ArrayList<>(games);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            Pair pair = new Pair();
+            load.connect(address, pair, Position.WHITE);
+            load.connect(address, pair, Position.BLACK);
+            pairs.add(pair);
+        }
+        long connected = System.nanoTime();
+        System.out.printf("%,d connections opened in %.2f s%n", 2 * games, (connected - start) / 1e9);
+
+        load.games = games;
+        for (Pair pair : pairs) {
+            send(pair.players[Position.WHITE], "NEW");
+        }
+        load.pump(System.currentTimeMillis() + TIMEOUT_MILLIS);
+        double seconds = (System.nanoTime() - connected) / 1e9;
+        Arrays.sort(load.latencies, 0, load.latencyCount);
+        System.out.printf("%,d/%,d games finished, %,d moves in %.2f s: %,.0f moves/s, %d errors%n",
+                load.gamesDone, games, load.latencyCount, seconds, load.latencyCount / seconds, load.errors);
+        System.out.printf("move round trip: p50 %.0f us, p90 %.0f us, p99 %.0f us, max %.0f us%n",
+                load.percentile(0.50), load.percentile(0.90), load.percentile(0.99), load.percentile(1.0));
+        if (games > 0) System.out.println(load.stats(pairs.get(0).players[Position.WHITE]));
+
+        if (holdSeconds > 0) {
+            System.out.printf("Holding %,d idle games for %d s%n", games, holdSeconds);
+            Thread.sleep(holdSeconds * 1000);
+            System.out.println(load.stats(pairs.get(0).players[Position.WHITE]));
+        }
+        for (Pair pair : pairs) {
+            for (Player player : pair.players) player.channel.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Compact 16-bit move encoding: bits 0-5 from square, bits 6-11 to square, bits 12-15 flag.
+ * Moves are passed around as plain ints so move lists can live in reusable int arrays.
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EP_CAPTURE = 5;
+    public static final int PROMOTION = 8; // + promoted type - KNIGHT
+    public static final int PROMOTION_CAPTURE = 12; // + promoted type - KNIGHT
+
+    private static final String PROMOTION_CHARS = "nbrq";
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flag(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flag(move) & PROMOTION) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flag = flag(move);
+        return flag == KING_CASTLE || flag == QUEEN_CASTLE;
+    }
+
+    /** Piece type promoted to, only meaningful when {@link #isPromotion} is true. */
+    public static int promotionType(int move) {
+        return (flag(move) & 3) + Position.KNIGHT;
+    }
+
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + Position.file(sq)) + (char) ('1' + Position.rank(sq));
+    }
+
+    public static int parseSquare(String name) {
+        if (name.length() != 2) return Position.NO_SQUARE;
+        int file = name.charAt(0) - 'a';
+        int rank = name.charAt(1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) return Position.NO_SQUARE;
+        return Position.square(file, rank);
+    }
+
+    /**
+     * The legal move in {@code pos} written in UCI notation, or {@link #NONE} if there is none.
+     * {@code scratch} must hold {@link MoveGen#MAX_MOVES} moves.
+     */
+    public static int parseUci(Position pos, String uci, int[] scratch) {
+        if (uci.length() != 4 && uci.length() != 5) return NONE;
+        int from = parseSquare(uci.substring(0, 2));
+        int to = parseSquare(uci.substring(2, 4));
+        if (from == Position.NO_SQUARE || to == Position.NO_SQUARE) return NONE;
+        int promotion = Position.QUEEN;
+        if (uci.length() == 5) {
+            int index = PROMOTION_CHARS.indexOf(Character.toLowerCase(uci.charAt(4)));
+            if (index < 0) return NONE;
+            promotion = index + Position.KNIGHT;
+        }
+        return MoveGen.findLegal(pos, from, to, promotion, scratch);
+    }
+
+    /** Long algebraic notation as used by UCI, e.g. {@code e2e4} or {@code e7e8q}. */
+    public static String toUci(int move) {
+        if (move == NONE) return "0000";
+        String uci = squareName(from(move)) + squareName(to(move));
+        if (isPromotion(move)) {
+            uci += PROMOTION_CHARS.charAt(promotionType(move) - Position.KNIGHT);
+        }
+        return uci;
+    }
+}
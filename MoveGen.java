@@ -0,0 +1,199 @@
+/**
+ * Move generator writing encoded moves (see {@link Move}) into a caller-supplied int array.
+ * Every generator takes the index to start writing at and returns the index after the
+ * last move written, so one array can hold the move lists of a whole search path.
+ */
+public final class MoveGen {
+    public static final int MAX_MOVES = 256; // upper bound on moves in any legal position
+
+    private static final long RANK_1 = 0xFFL;
+    private static final long RANK_8 = 0xFF00000000000000L;
+
+    private MoveGen() {
+    }
+
+    /** All pseudo-legal moves; some may leave the mover's king in check. */
+    public static int generate(Position pos, int[] moves, int start) {
+        return generate(pos, moves, start, false);
+    }
+
+    /** Pseudo-legal captures and queen promotions, for quiescence search. */
+    public static int generateCaptures(Position pos, int[] moves, int start) {
+        return generate(pos, moves, start, true);
+    }
+
+    /** All legal moves. */
+    public static int generateLegal(Position pos, int[] moves, int start) {
+        int end = generate(pos, moves, start, false);
+        int count = start;
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            if (isLegal(pos, move)) {
+                moves[count++] = move;
+            }
+        }
+        return count;
+    }
+
+    /** Whether the pseudo-legal {@code move} keeps the mover's king out of check. */
+    public static boolean isLegal(Position pos, int move) {
+        pos.makeMove(move);
+        boolean legal = !pos.leftKingInCheck();
+        pos.unmakeMove(move);
+        return legal;
+    }
+
+    public static boolean hasLegalMove(Position pos, int[] scratch) {
+        int end = generate(pos, scratch, 0, false);
+        for (int i = 0; i < end; i++) {
+            if (isLegal(pos, scratch[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the legal move from {@code from} to {@code to}, or {@link Move#NONE}.
+     * {@code promotionType} selects the piece for promotions.
+     */
+    public static int findLegal(Position pos, int from, int to, int promotionType, int[] scratch) {
+        int end = generate(pos, scratch, 0, false);
+        for (int i = 0; i < end; i++) {
+            int move = scratch[i];
+            if (Move.from(move) != from || Move.to(move) != to) continue;
+            if (Move.isPromotion(move) && Move.promotionType(move) != promotionType) continue;
+            if (isLegal(pos, move)) return move;
+        }
+        return Move.NONE;
+    }
+
+    private static int generate(Position pos, int[] moves, int n, boolean capturesOnly) {
+        int us = pos.sideToMove;
+        int them = us ^ 1;
+        long own = pos.occupancy[us];
+        long enemy = pos.occupancy[them];
+        long occupied = pos.occupied;
+        long targets = capturesOnly ? enemy : ~own;
+
+        n = generatePawnMoves(pos, moves, n, us, enemy, occupied, capturesOnly);
+
+        long knights = pos.pieces[Position.piece(us, Position.KNIGHT)];
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            n = addMoves(moves, n, from, Attacks.KNIGHT[from] & targets, enemy);
+        }
+        long bishops = pos.pieces[Position.piece(us, Position.BISHOP)] | pos.pieces[Position.piece(us, Position.QUEEN)];
+        while (bishops != 0) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            n = addMoves(moves, n, from, Attacks.bishop(from, occupied) & targets, enemy);
+        }
+        long rooks = pos.pieces[Position.piece(us, Position.ROOK)] | pos.pieces[Position.piece(us, Position.QUEEN)];
+        while (rooks != 0) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            n = addMoves(moves, n, from, Attacks.rook(from, occupied) & targets, enemy);
+        }
+        int king = pos.kingSquare(us);
+        n = addMoves(moves, n, king, Attacks.KING[king] & targets, enemy);
+
+        if (!capturesOnly && pos.castling != 0) {
+            n = generateCastling(pos, moves, n, us, occupied);
+        }
+        return n;
+    }
+
+    private static int addMoves(int[] moves, int n, int from, long targets, long enemy) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[n++] = Move.encode(from, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+        }
+        return n;
+    }
+
+    private static int generatePawnMoves(Position pos, int[] moves, int n, int us, long enemy, long occupied,
+                                         boolean capturesOnly) {
+        long pawns = pos.pieces[Position.piece(us, Position.PAWN)];
+        long empty = ~occupied;
+        int forward = us == Position.WHITE ? 8 : -8;
+        long promotionRank = us == Position.WHITE ? RANK_8 : RANK_1;
+
+        long single = us == Position.WHITE ? (pawns << 8) & empty : (pawns >>> 8) & empty;
+        long pushes = capturesOnly ? single & promotionRank : single;
+        while (pushes != 0) {
+            int to = Long.numberOfTrailingZeros(pushes);
+            pushes &= pushes - 1;
+            int from = to - forward;
+            if (((1L << to) & promotionRank) != 0) {
+                n = addPromotions(moves, n, from, to, Move.PROMOTION, capturesOnly);
+            } else {
+                moves[n++] = Move.encode(from, to, Move.QUIET);
+            }
+        }
+        if (!capturesOnly) {
+            long doubles = us == Position.WHITE
+                    ? ((single & 0xFF0000L) << 8) & empty
+                    : ((single & 0xFF0000000000L) >>> 8) & empty;
+            while (doubles != 0) {
+                int to = Long.numberOfTrailingZeros(doubles);
+                doubles &= doubles - 1;
+                moves[n++] = Move.encode(to - 2 * forward, to, Move.DOUBLE_PUSH);
+            }
+        }
+
+        long attackers = pawns;
+        while (attackers != 0) {
+            int from = Long.numberOfTrailingZeros(attackers);
+            attackers &= attackers - 1;
+            long attacks = Attacks.PAWN[us][from];
+            long captures = attacks & enemy;
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if (((1L << to) & promotionRank) != 0) {
+                    n = addPromotions(moves, n, from, to, Move.PROMOTION_CAPTURE, capturesOnly);
+                } else {
+                    moves[n++] = Move.encode(from, to, Move.CAPTURE);
+                }
+            }
+            if (pos.epSquare != Position.NO_SQUARE && (attacks & (1L << pos.epSquare)) != 0) {
+                moves[n++] = Move.encode(from, pos.epSquare, Move.EP_CAPTURE);
+            }
+        }
+        return n;
+    }
+
+    private static int addPromotions(int[] moves, int n, int from, int to, int baseFlag, boolean queenOnly) {
+        moves[n++] = Move.encode(from, to, baseFlag + Position.QUEEN - Position.KNIGHT);
+        if (!queenOnly) {
+            moves[n++] = Move.encode(from, to, baseFlag + Position.ROOK - Position.KNIGHT);
+            moves[n++] = Move.encode(from, to, baseFlag + Position.BISHOP - Position.KNIGHT);
+            moves[n++] = Move.encode(from, to, baseFlag);
+        }
+        return n;
+    }
+
+    private static int generateCastling(Position pos, int[] moves, int n, int us, long occupied) {
+        int them = us ^ 1;
+        int kingSide = us == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenSide = us == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        int king = us == Position.WHITE ? 4 : 60;
+        if ((pos.castling & (kingSide | queenSide)) == 0 || pos.isSquareAttacked(king, them)) {
+            return n;
+        }
+        if ((pos.castling & kingSide) != 0
+                && (occupied & (3L << (king + 1))) == 0
+                && !pos.isSquareAttacked(king + 1, them)
+                && !pos.isSquareAttacked(king + 2, them)) {
+            moves[n++] = Move.encode(king, king + 2, Move.KING_CASTLE);
+        }
+        if ((pos.castling & queenSide) != 0
+                && (occupied & (7L << (king - 3))) == 0
+                && !pos.isSquareAttacked(king - 1, them)
+                && !pos.isSquareAttacked(king - 2, them)) {
+            moves[n++] = Move.encode(king, king - 2, Move.QUEEN_CASTLE);
+        }
+        return n;
+    }
+}
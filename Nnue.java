@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Small quantized neural-network evaluator: 768 inputs (piece code x square) feed a hidden
+ * layer of int16 units, computed once from each side's perspective, followed by a clipped
+ * ReLU and a single output. The hidden layer is kept in an {@link Accumulator} that
+ * {@link Position} updates on every putPiece/removePiece, so a move costs a few vector adds
+ * rather than a full forward pass.
+ *
+ * <p>Weight file layout, little-endian: the int32 magic {@code "CBN1"}, the int32 hidden
+ * size H, int16 feature weights [768][H], int16 feature biases [H], int16 output weights
+ * [2][H] (side to move first), then the int16 output bias. Hidden activations are quantized
+ * by 255 and output weights by 64; the output is scaled to centipawns by 400.
+ */
+public final class Nnue {
+    public static final int INPUTS = 768;
+    private static final int MAGIC = 0x314E4243; // "CBN1"
+    private static final int QA = 255;
+    private static final int QB = 64;
+    private static final int SCALE = 400;
+
+    final int hidden;
+    final short[] featureWeights;
+    final short[] featureBias;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private Nnue(int hidden, short[] featureWeights, short[] featureBias, short[] outputWeights, int outputBias) {
+        this.hidden = hidden;
+        this.featureWeights = featureWeights;
+        this.featureBias = featureBias;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /** Reads a network in the format described above. */
+    public static Nnue load(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.remaining() < 8 || buf.getInt() != MAGIC) {
+            throw new IOException("Not a network file: " + file);
+        }
+        int hidden = buf.getInt();
+        long expected = 2L * ((long) INPUTS * hidden + hidden + 2L * hidden + 1);
+        if (hidden <= 0 || buf.remaining() != expected) {
+            throw new IOException("Network file " + file + " is " + (buf.remaining() + 8)
+                    + " bytes, expected " + (expected + 8) + " for hidden size " + hidden);
+        }
+        ShortBuffer shorts = buf.asShortBuffer();
+        short[] featureWeights = new short[INPUTS * hidden];
+        short[] featureBias = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        shorts.get(featureWeights).get(featureBias).get(outputWeights);
+        return new Nnue(hidden, featureWeights, featureBias, outputWeights, shorts.get());
+    }
+
+    public int hiddenSize() {
+        return hidden;
+    }
+
+    Accumulator newAccumulator() {
+        return new Accumulator(this);
+    }
+
+    /**
+     * Hidden-layer sums for both perspectives. Black's perspective sees the board flipped
+     * vertically with colors swapped, so one set of weights serves both sides. Adds and
+     * removes are exact integer operations, so unmaking a move restores the previous state.
+     */
+    static final class Accumulator {
+        final Nnue net;
+        private final short[] white;
+        private final short[] black;
+
+        Accumulator(Nnue net) {
+            this.net = net;
+            white = net.featureBias.clone();
+            black = net.featureBias.clone();
+        }
+
+        void reset() {
+            System.arraycopy(net.featureBias, 0, white, 0, net.hidden);
+            System.arraycopy(net.featureBias, 0, black, 0, net.hidden);
+        }
+
+        void copyFrom(Accumulator other) {
+            System.arraycopy(other.white, 0, white, 0, net.hidden);
+            System.arraycopy(other.black, 0, black, 0, net.hidden);
+        }
+
+        void add(int piece, int sq) {
+            int n = net.hidden;
+            short[] w = net.featureWeights;
+            int whiteOffset = whiteFeature(piece, sq) * n;
+            int blackOffset = blackFeature(piece, sq) * n;
+            for (int i = 0; i < n; i++) {
+                white[i] += w[whiteOffset + i];
+            }
+            for (int i = 0; i < n; i++) {
+                black[i] += w[blackOffset + i];
+            }
+        }
+
+        void remove(int piece, int sq) {
+            int n = net.hidden;
+            short[] w = net.featureWeights;
+            int whiteOffset = whiteFeature(piece, sq) * n;
+            int blackOffset = blackFeature(piece, sq) * n;
+            for (int i = 0; i < n; i++) {
+                white[i] -= w[whiteOffset + i];
+            }
+            for (int i = 0; i < n; i++) {
+                black[i] -= w[blackOffset + i];
+            }
+        }
+
+        private static int whiteFeature(int piece, int sq) {
+            return piece * 64 + sq;
+        }
+
+        // Black sees its own pieces as white ones on the vertically mirrored square
+        private static int blackFeature(int piece, int sq) {
+            int flipped = piece < 6 ? piece + 6 : piece - 6;
+            return flipped * 64 + (sq ^ 56);
+        }
+
+        /** Network output in centipawns from {@code sideToMove}'s point of view. */
+        int evaluate(int sideToMove) {
+            short[] us = sideToMove == Position.WHITE ? white : black;
+            short[] them = sideToMove == Position.WHITE ? black : white;
+            int n = net.hidden;
+            short[] out = net.outputWeights;
+            int sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += clippedRelu(us[i]) * out[i];
+            }
+            for (int i = 0; i < n; i++) {
+                sum += clippedRelu(them[i]) * out[n + i];
+            }
+            return (int) ((sum + (long) net.outputBias) * SCALE / (QA * QB));
+        }
+
+        private static int clippedRelu(short x) {
+            return Math.min(Math.max(x, 0), QA);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client side of the {@link GameServer} protocol for the GUI. Server messages are read on a
+ * daemon thread and passed to the {@link Listener} on that thread, so a Swing caller must
+ * hand them to the event thread. Commands may be sent from any thread.
+ */
+public final class OnlineClient implements Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    /** Server events; called on the client's reader thread. */
+    public interface Listener {
+        /** Joined game {@code id} as {@code color}; {@code token} lets this player reconnect. */
+        void onGame(String id, int color, String token);
+
+        /** Both players are present; moves may be played. */
+        void onStart();
+
+        /** A move by either player, after the server accepted it. */
+        void onMove(String uci);
+
+        /** The game ended, e.g. {@code "1-0", "checkmate"}. */
+        void onOver(String result, String reason);
+
+        /** The opponent disconnected or came back. */
+        void onOpponentConnected(boolean connected);
+
+        /** The server refused a command. */
+        void onError(String message);
+
+        /** The connection was closed by the server or failed. */
+        void onDisconnected();
+    }
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final Listener listener;
+    private volatile boolean closed;
+
+    private OnlineClient(Socket socket, Listener listener) throws IOException {
+        this.socket = socket;
+        this.out = socket.getOutputStream();
+        this.listener = listener;
+        Thread reader = new Thread(this::readLoop, "online-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** Connects to a server given as {@code host:port} or just {@code host}. */
+    public static OnlineClient connect(String address, Listener listener) throws IOException {
+        String host = address;
+        int port = GameServer.DEFAULT_PORT;
+        int colon = address.lastIndexOf(':');
+        if (colon >= 0) {
+            host = address.substring(0, colon);
+            try {
+                port = Integer.parseInt(address.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad port in " + address);
+            }
+        }
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        return new OnlineClient(socket, listener);
+    }
+
+    /** Starts a new game as white. */
+    public void create() throws IOException {
+        send("NEW");
+    }
+
+    public void join(String id) throws IOException {
+        send("JOIN " + id);
+    }
+
+    public void rejoin(String id, String token) throws IOException {
+        send("REJOIN " + id + " " + token);
+    }
+
+    public void move(int move) throws IOException {
+        send("MOVE " + Move.toUci(move));
+    }
+
+    public void resign() throws IOException {
+        send("RESIGN");
+    }
+
+    private synchronized void send(String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private void readLoop() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.US_ASCII))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                dispatch(line.trim().split("\\s+"));
+            }
+        } catch (IOException e) {
+            // reported below as a disconnect
+        }
+        if (!closed) listener.onDisconnected();
+    }
+
+    private void dispatch(String[] tokens) {
+        switch (tokens[0]) {
+            case "GAME":
+                if (tokens.length >= 4) {
+                    listener.onGame(tokens[1], tokens[2].equals("white") ? Position.WHITE : Position.BLACK, tokens[3]);
+                }
+                break;
+            case "START":
+                listener.onStart();
+                break;
+            case "MOVED":
+                if (tokens.length >= 2) listener.onMove(tokens[1]);
+                break;
+            case "MOVES":
+                // The game so far, after a reconnect
+                for (int i = 1; i < tokens.length; i++) {
+                    listener.onMove(tokens[i]);
+                }
+                break;
+            case "OVER":
+                listener.onOver(tokens.length > 1 ? tokens[1] : GameRecord.UNKNOWN, tokens.length > 2 ? tokens[2] : "");
+                break;
+            case "LEFT":
+                listener.onOpponentConnected(false);
+                break;
+            case "BACK":
+                listener.onOpponentConnected(true);
+                break;
+            case "ERROR":
+                listener.onError(String.join(" ", java.util.Arrays.copyOfRange(tokens, 1, tokens.length)));
+                break;
+            default:
+                break; // PONG, STATS and anything newer
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-only opening book in the Polyglot layout: 16-byte big-endian entries of key, move,
+ * weight and learn value, sorted by key. The file is memory-mapped, so probing is a binary
+ * search directly over the page cache with no copying or allocation. Every engine in a
+ * process shares one mapping per file through {@link #open}, and separate processes share
+ * the same cached pages.
+ *
+ * <p>Moves use the Polyglot encoding: to-square in bits 0-5, from-square in bits 6-11 and
+ * the promotion piece (knight 1 .. queen 4) in bits 12-14, with castling written as the king
+ * taking its own rook. Keys are {@link PolyglotKey}s, so books from other Polyglot tools work
+ * here and books from {@link BookBuilder} work in them.
+ */
+public final class OpeningBook {
+    static final int ENTRY_SIZE = 16;
+
+    private static final ConcurrentHashMap<Path, OpeningBook> OPEN = new ConcurrentHashMap<>();
+
+    private final MappedByteBuffer data;
+    private final int entries;
+
+    private OpeningBook(MappedByteBuffer data) {
+        this.data = data;
+        this.entries = data.capacity() / ENTRY_SIZE;
+    }
+
+    /** Maps the book at {@code file}, or returns the mapping already open in this process. */
+    public static OpeningBook open(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        OpeningBook book = OPEN.get(key);
+        if (book != null) return book;
+        try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_SIZE != 0 || size / ENTRY_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Not a book file: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            data.order(ByteOrder.BIG_ENDIAN);
+            OPEN.putIfAbsent(key, new OpeningBook(data));
+        }
+        return OPEN.get(key);
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /** Index of the first entry for {@code key}, or -1 if the book has none. */
+    public int find(long key) {
+        int lo = 0;
+        int hi = entries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < entries && keyAt(lo) == key ? lo : -1;
+    }
+
+    long keyAt(int index) {
+        return data.getLong(index * ENTRY_SIZE);
+    }
+
+    int moveAt(int index) {
+        return data.getShort(index * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    int weightAt(int index) {
+        return data.getShort(index * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    /**
+     * A book move for {@code pos}, chosen at random in proportion to the entry weights, or
+     * {@link Move#NONE} if the position is not in the book. {@code scratch} must hold
+     * {@link MoveGen#MAX_MOVES} moves.
+     */
+    public int probe(Position pos, int[] scratch) {
+        long key = PolyglotKey.compute(pos);
+        int first = find(key);
+        if (first < 0) return Move.NONE;
+        int total = 0;
+        for (int i = first; i < entries && keyAt(i) == key; i++) {
+            total += weightAt(i);
+        }
+        if (total == 0) return Move.NONE;
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int i = first; ; i++) {
+            pick -= weightAt(i);
+            if (pick < 0) return toMove(pos, moveAt(i), scratch);
+        }
+    }
+
+    /** The highest-weighted book move for {@code pos}, or {@link Move#NONE}. */
+    public int bestMove(Position pos, int[] scratch) {
+        int first = find(PolyglotKey.compute(pos));
+        // Entries for a key are stored by descending weight
+        return first < 0 ? Move.NONE : toMove(pos, moveAt(first), scratch);
+    }
+
+    /** Polyglot encoding of a legal move. */
+    static int encode(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.flag(move) == Move.KING_CASTLE) {
+            to = from + 3;
+        } else if (Move.flag(move) == Move.QUEEN_CASTLE) {
+            to = from - 4;
+        }
+        int promotion = Move.isPromotion(move) ? Move.promotionType(move) : 0;
+        return to | from << 6 | promotion << 12;
+    }
+
+    // Finds the legal move matching a Polyglot move; NONE if the entry does not fit the position
+    private static int toMove(Position pos, int bookMove, int[] scratch) {
+        int from = bookMove >>> 6 & 63;
+        int to = bookMove & 63;
+        int promotion = bookMove >>> 12 & 7;
+        int piece = pos.pieceAt(from);
+        if (piece != Position.NO_PIECE && Position.typeOf(piece) == Position.KING
+                && pos.pieceAt(to) == Position.piece(Position.colorOf(piece), Position.ROOK)) {
+            to = to > from ? from + 2 : from - 2; // king takes own rook: castling
+        }
+        int move = MoveGen.findLegal(pos, from, to, promotion == 0 ? Position.QUEEN : promotion, scratch);
+        return move != Move.NONE && encode(move) == bookMove ? move : Move.NONE;
+    }
+}
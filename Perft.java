@@ -0,0 +1,103 @@
+/**
+ * Perft driver: counts leaf nodes of the legal move tree to check the move generator
+ * against published totals, and reports throughput in nodes per second.
+ *
+ * <pre>
+ *   java Perft                 run the standard suite
+ *   java Perft 5               run the standard suite at depth 5
+ *   java Perft 4 "&lt;fen&gt;"     divide: per-move counts for one position
+ * </pre>
+ */
+public class Perft {
+    private static final int MAX_PLY = 64;
+
+    // FEN, depth to run by default, expected node counts at depth 1..n
+    private static final Object[][] SUITE = {
+            {Fen.START, 5, new long[]{20, 400, 8902, 197281, 4865609, 119060324}},
+            {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4,
+                    new long[]{48, 2039, 97862, 4085603, 193690690}},
+            {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5,
+                    new long[]{14, 191, 2812, 43238, 674624, 11030083}},
+            {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4,
+                    new long[]{6, 264, 9467, 422333, 15833292}},
+            {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4,
+                    new long[]{44, 1486, 62379, 2103487, 89941194}},
+            {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4,
+                    new long[]{46, 2079, 89890, 3894594, 164075551}},
+    };
+
+    private final int[] moves = new int[MAX_PLY * MoveGen.MAX_MOVES];
+
+    public long perft(Position pos, int depth) {
+        return perft(pos, depth, 0);
+    }
+
+    private long perft(Position pos, int depth, int start) {
+        int end = MoveGen.generate(pos, moves, start);
+        long nodes = 0;
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            pos.makeMove(move);
+            if (!pos.leftKingInCheck()) {
+                nodes += depth == 1 ? 1 : perft(pos, depth - 1, end);
+            }
+            pos.unmakeMove(move);
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        Perft perft = new Perft();
+        if (args.length >= 2) {
+            divide(perft, Fen.parse(args[1]), Integer.parseInt(args[0]));
+            return;
+        }
+        int depthOverride = args.length == 1 ? Integer.parseInt(args[0]) : 0;
+
+        long totalNodes = 0;
+        long totalNanos = 0;
+        boolean allPassed = true;
+        for (Object[] entry : SUITE) {
+            String fen = (String) entry[0];
+            long[] expected = (long[]) entry[2];
+            int depth = depthOverride > 0 ? Math.min(depthOverride, expected.length) : (Integer) entry[1];
+
+            Position pos = Fen.parse(fen);
+            long start = System.nanoTime();
+            long nodes = perft.perft(pos, depth);
+            long elapsed = System.nanoTime() - start;
+            boolean passed = nodes == expected[depth - 1];
+            allPassed &= passed;
+            totalNodes += nodes;
+            totalNanos += elapsed;
+            System.out.printf("%-4s depth %d  nodes %,14d  expected %,14d  %7.3f s  %,12d nps  %s%n",
+                    passed ? "OK" : "FAIL", depth, nodes, expected[depth - 1], elapsed / 1e9,
+                    nodesPerSecond(nodes, elapsed), fen);
+        }
+        System.out.printf("Total %,d nodes in %.3f s, %,d nps%n",
+                totalNodes, totalNanos / 1e9, nodesPerSecond(totalNodes, totalNanos));
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    private static void divide(Perft perft, Position pos, int depth) {
+        int[] rootMoves = new int[MoveGen.MAX_MOVES];
+        int count = MoveGen.generateLegal(pos, rootMoves, 0);
+        long total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            pos.makeMove(rootMoves[i]);
+            long nodes = depth <= 1 ? 1 : perft.perft(pos, depth - 1);
+            pos.unmakeMove(rootMoves[i]);
+            total += nodes;
+            System.out.println(Move.toUci(rootMoves[i]) + ": " + nodes);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%nMoves %d, nodes %,d, %,d nps%n", count, total, nodesPerSecond(total, elapsed));
+    }
+
+    static long nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
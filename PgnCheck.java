@@ -0,0 +1,56 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Replays every game of a PGN database and reports the ones that fail to parse or contain
+ * illegal moves: {@code java PgnCheck games.pgn [out.pgn]}. With a second argument, the
+ * valid games are written back out as normalized PGN.
+ */
+public final class PgnCheck {
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final int PROGRESS_INTERVAL = 100_000;
+
+    private PgnCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: java PgnCheck games.pgn [out.pgn]");
+            System.exit(2);
+        }
+        Path in = Paths.get(args[0]);
+        long size = Files.size(in);
+        long invalid = 0;
+        long plies = 0;
+        long start = System.nanoTime();
+        GameRecord game = new GameRecord();
+        try (PgnReader reader = new PgnReader(in);
+             Writer out = args.length > 1 ? new BufferedWriter(Files.newBufferedWriter(Paths.get(args[1]),
+                     StandardCharsets.UTF_8), 1 << 16) : null) {
+            PgnWriter writer = out == null ? null : new PgnWriter(out);
+            while (true) {
+                try {
+                    if (!reader.next(game)) break;
+                    plies += game.moveCount();
+                    if (writer != null) writer.write(game);
+                } catch (IllegalArgumentException e) {
+                    if (++invalid <= MAX_REPORTED_ERRORS) System.out.println(e.getMessage());
+                }
+                if (reader.games() % PROGRESS_INTERVAL == 0) {
+                    System.out.printf("%,d games, %.0f%% of input%n", reader.games(), 100.0 * reader.bytesRead() / size);
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            double seconds = nanos / 1e9;
+            System.out.printf("%,d games (%,d invalid), %,d plies in %.1f s: %,.0f games/s, %,.0f plies/s, %.1f MB/s%n",
+                    reader.games(), invalid, plies, seconds, reader.games() / seconds, plies / seconds,
+                    reader.bytesRead() / 1e6 / seconds);
+        }
+        if (invalid > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming PGN reader. The file is read through a fixed 1 MB buffer and parsed one game at
+ * a time, so memory use does not depend on the size of the database. Movetext is replayed
+ * as it is read: every SAN move is resolved against the current position, which validates
+ * the game and yields moves in their 16-bit encoding. Comments, variations and NAGs are
+ * skipped.
+ */
+public final class PgnReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    private int bufferPos;
+    private int bufferLimit;
+    private int pushedBack = -1;
+    private long bytesRead;
+    private int line = 1;
+    private int games;
+
+    private final Position pos = new Position();
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+    private final StringBuilder token = new StringBuilder(32);
+    private byte[] text = new byte[256];
+
+    public PgnReader(Path file) throws IOException {
+        this(Files.newByteChannel(file));
+    }
+
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads the next game into {@code game}, replacing its contents.
+     *
+     * @return false at end of input
+     * @throws IllegalArgumentException if the game has a bad FEN tag or an illegal or
+     *                                  ambiguous move; the rest of the game has been consumed,
+     *                                  so reading can continue with the next one
+     */
+    public boolean next(GameRecord game) throws IOException {
+        game.clear();
+        boolean started = false;
+        boolean inMoves = false;
+        int gameLine = line;
+        String error = null;
+        String result = null;
+
+        for (int c = read(); ; c = read()) {
+            if (c == -1) {
+                if (!started) return false;
+                break;
+            }
+            if (c <= ' ' || c >= 0x80) continue; // whitespace, or a byte order mark
+            if (!started) {
+                started = true;
+                gameLine = line;
+            }
+            if (c == '[') {
+                if (inMoves) {
+                    pushedBack = c; // next game's tags: this one had no result
+                    break;
+                }
+                readTag(game);
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';' || c == '%') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readToken(c);
+            } else {
+                if (!inMoves) {
+                    inMoves = true;
+                    error = setUp(game);
+                }
+                readToken(c);
+                if (isResult(token)) {
+                    result = token.toString();
+                    break;
+                }
+                if (error == null) {
+                    error = playToken(game);
+                }
+            }
+        }
+
+        if (!inMoves) {
+            String setUpError = setUp(game);
+            if (error == null) error = setUpError;
+        }
+        if (result == null) {
+            result = game.tags().getOrDefault("Result", GameRecord.UNKNOWN);
+        }
+        game.setResult(result);
+        games++;
+        if (error != null) {
+            throw new IllegalArgumentException("Game " + games + " (line " + gameLine + "): " + error);
+        }
+        return true;
+    }
+
+    /** Games returned so far, including ones that failed to validate. */
+    public int games() {
+        return games;
+    }
+
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String setUp(GameRecord game) {
+        String fen = game.tag("FEN");
+        if (fen == null) fen = Fen.START;
+        game.setStartFen(fen);
+        try {
+            Fen.load(fen, pos);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Plays the move in the token, after any move number; returns an error message or null
+    private String playToken(GameRecord game) {
+        int start = 0;
+        while (start < token.length() && Character.isDigit(token.charAt(start))) start++;
+        while (start < token.length() && token.charAt(start) == '.') start++;
+        if (start == token.length()) return null;
+        if (start > 0) token.delete(0, start);
+        int move = San.parse(pos, token, scratch);
+        if (move == Move.NONE) {
+            return "Illegal or ambiguous move " + token + " at ply " + (game.moveCount() + 1);
+        }
+        pos.makeMove(move);
+        game.addMove(move);
+        return null;
+    }
+
+    private static boolean isResult(CharSequence s) {
+        return contentEquals(s, GameRecord.WHITE_WINS) || contentEquals(s, GameRecord.BLACK_WINS)
+                || contentEquals(s, GameRecord.DRAW) || contentEquals(s, GameRecord.UNKNOWN);
+    }
+
+    private static boolean contentEquals(CharSequence s, String value) {
+        if (s.length() != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (s.charAt(i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Reads [Name "value"] after the '['
+    private void readTag(GameRecord game) throws IOException {
+        token.setLength(0);
+        int c = read();
+        while (c > ' ' && c != '"' && c != ']') {
+            token.append((char) c);
+            c = read();
+        }
+        while (c != '"' && c != ']' && c != '\n' && c != -1) c = read();
+        int length = 0;
+        if (c == '"') {
+            for (c = read(); c != '"' && c != '\n' && c != -1; c = read()) {
+                if (c == '\\') c = read();
+                if (c == -1) break;
+                if (length == text.length) text = java.util.Arrays.copyOf(text, length * 2);
+                text[length++] = (byte) c;
+            }
+        }
+        while (c != ']' && c != '\n' && c != -1) c = read();
+        if (token.length() > 0) {
+            game.setTag(token.toString(), new String(text, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void readToken(int first) throws IOException {
+        token.setLength(0);
+        token.append((char) first);
+        for (int c = read(); c != -1; c = read()) {
+            if (c <= ' ' || c == '{' || c == '(' || c == ')' || c == '[' || c == ';' || c == '$') {
+                pushedBack = c;
+                return;
+            }
+            token.append((char) c);
+        }
+    }
+
+    private void skipPast(int end) throws IOException {
+        for (int c = read(); c != end && c != -1; c = read()) {
+        }
+    }
+
+    // Skips a variation after its '(', including nested variations and comments
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        for (int c = read(); c != -1; c = read()) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth == 0) return;
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack >= 0) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (bufferPos == bufferLimit && !fill()) return -1;
+        int c = buffer[bufferPos++] & 0xFF;
+        if (c == '\n') line++;
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        wrapped.clear();
+        int n;
+        do {
+            n = channel.read(wrapped);
+        } while (n == 0);
+        if (n < 0) return false;
+        bufferPos = 0;
+        bufferLimit = n;
+        bytesRead += n;
+        return true;
+    }
+}
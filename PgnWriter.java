@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes {@link GameRecord}s as PGN, one game at a time. Movetext is produced in SAN by
+ * replaying the moves from the record's starting position.
+ */
+public final class PgnWriter {
+    private static final int LINE_WIDTH = 80;
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+
+    private final Writer out;
+    private final Position pos = new Position();
+    private final StringBuilder line = new StringBuilder(LINE_WIDTH + 16);
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(GameRecord game) throws IOException {
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? game.result() : game.tags().getOrDefault(name, "?");
+            writeTag(name, value);
+        }
+        boolean customStart = !game.startFen().equals(Fen.START);
+        if (customStart) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", game.startFen());
+        }
+        for (Map.Entry<String, String> tag : game.tags().entrySet()) {
+            String name = tag.getKey();
+            if (!isRosterTag(name) && !name.equals("SetUp") && !name.equals("FEN")) {
+                writeTag(name, tag.getValue());
+            }
+        }
+        out.write('\n');
+
+        Fen.load(game.startFen(), pos);
+        line.setLength(0);
+        for (int i = 0; i < game.moveCount(); i++) {
+            int move = game.move(i);
+            if (pos.sideToMove() == Position.WHITE) {
+                appendToken(pos.fullmoveNumber() + ".");
+            } else if (i == 0) {
+                appendToken(pos.fullmoveNumber() + "...");
+            }
+            appendToken(San.format(pos, move));
+            pos.makeMove(move);
+        }
+        appendToken(game.result());
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void appendToken(String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_WIDTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) line.append(' ');
+        line.append(token);
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String roster : SEVEN_TAG_ROSTER) {
+            if (roster.equals(name)) return true;
+        }
+        return false;
+    }
+}
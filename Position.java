@@ -0,0 +1,497 @@
+/**
+ * Headless chess position built on bitboards: one 64-bit set per piece type and color,
+ * plus side to move, castling rights, en-passant square and the move clocks.
+ * Squares are numbered a1 = 0, b1 = 1, ... h8 = 63; a piece code is color * 6 + type.
+ */
+public final class Position {
+    public static final int WHITE = 0, BLACK = 1;
+    public static final int PAWN = 0, KNIGHT = 1, BISHOP = 2, ROOK = 3, QUEEN = 4, KING = 5;
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    // Material values in pawns, indexed by piece type; the board score and move ordering use these
+    public static final int[] PIECE_VALUE = {1, 3, 3, 5, 9, 0};
+
+    public static final int WHITE_KINGSIDE = 1, WHITE_QUEENSIDE = 2, BLACK_KINGSIDE = 4, BLACK_QUEENSIDE = 8;
+
+    final long[] pieces = new long[12];
+    final long[] occupancy = new long[2];
+    long occupied;
+    final byte[] mailbox = new byte[64];
+    int sideToMove = WHITE;
+    int castling;
+    int epSquare = NO_SQUARE;
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+    long key; // Zobrist key, maintained incrementally
+
+    // Tapered evaluation terms from white's point of view, maintained incrementally
+    int mgScore;
+    int egScore;
+    int phase;
+    Nnue.Accumulator accumulator; // Present only while a network is attached
+
+    // Undo records for makeMove/unmakeMove, packed as castling | ep << 4 | captured << 11 | halfmove clock << 15
+    int[] undoStack = new int[256];
+    int undoCount;
+    final HashHistory history = new HashHistory(); // Keys before each move, for repetitions
+
+    // Castling rights kept when a move touches the given square
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        java.util.Arrays.fill(CASTLE_MASK, 15);
+        CASTLE_MASK[0] = ~WHITE_QUEENSIDE & 15;
+        CASTLE_MASK[4] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) & 15;
+        CASTLE_MASK[7] = ~WHITE_KINGSIDE & 15;
+        CASTLE_MASK[56] = ~BLACK_QUEENSIDE & 15;
+        CASTLE_MASK[60] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE) & 15;
+        CASTLE_MASK[63] = ~BLACK_KINGSIDE & 15;
+    }
+
+    public Position() {
+        java.util.Arrays.fill(mailbox, (byte) NO_PIECE);
+    }
+
+    public static Position startPosition() {
+        Position pos = new Position();
+        int[] backRank = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK};
+        for (int file = 0; file < 8; file++) {
+            pos.putPiece(piece(WHITE, backRank[file]), square(file, 0));
+            pos.putPiece(piece(WHITE, PAWN), square(file, 1));
+            pos.putPiece(piece(BLACK, PAWN), square(file, 6));
+            pos.putPiece(piece(BLACK, backRank[file]), square(file, 7));
+        }
+        pos.setCastlingRights(WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        return pos;
+    }
+
+    public static int piece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+
+    public static int typeOf(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+
+    public static int square(int file, int rank) {
+        return rank * 8 + file;
+    }
+
+    public static int file(int sq) {
+        return sq & 7;
+    }
+
+    public static int rank(int sq) {
+        return sq >>> 3;
+    }
+
+    public void putPiece(int piece, int sq) {
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        occupancy[colorOf(piece)] |= bit;
+        occupied |= bit;
+        mailbox[sq] = (byte) piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        mgScore += Evaluation.MG[piece][sq];
+        egScore += Evaluation.EG[piece][sq];
+        phase += Evaluation.PHASE[typeOf(piece)];
+        if (accumulator != null) accumulator.add(piece, sq);
+    }
+
+    public void removePiece(int sq) {
+        int piece = mailbox[sq];
+        if (piece == NO_PIECE) return;
+        long bit = ~(1L << sq);
+        pieces[piece] &= bit;
+        occupancy[colorOf(piece)] &= bit;
+        occupied &= bit;
+        mailbox[sq] = (byte) NO_PIECE;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        mgScore -= Evaluation.MG[piece][sq];
+        egScore -= Evaluation.EG[piece][sq];
+        phase -= Evaluation.PHASE[typeOf(piece)];
+        if (accumulator != null) accumulator.remove(piece, sq);
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(pieces, 0L);
+        occupancy[WHITE] = 0L;
+        occupancy[BLACK] = 0L;
+        occupied = 0L;
+        java.util.Arrays.fill(mailbox, (byte) NO_PIECE);
+        sideToMove = WHITE;
+        castling = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0L;
+        mgScore = 0;
+        egScore = 0;
+        phase = 0;
+        if (accumulator != null) accumulator.reset();
+        undoCount = 0;
+        history.clear();
+    }
+
+    public Position copy() {
+        Position copy = new Position();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, 12);
+        occupancy[WHITE] = other.occupancy[WHITE];
+        occupancy[BLACK] = other.occupancy[BLACK];
+        occupied = other.occupied;
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        sideToMove = other.sideToMove;
+        castling = other.castling;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        mgScore = other.mgScore;
+        egScore = other.egScore;
+        phase = other.phase;
+        if (other.accumulator == null) {
+            accumulator = null;
+        } else {
+            if (accumulator == null || accumulator.net != other.accumulator.net) {
+                accumulator = other.accumulator.net.newAccumulator();
+            }
+            accumulator.copyFrom(other.accumulator);
+        }
+        undoCount = 0; // moves made before the copy cannot be taken back, but still count for repetitions
+        history.copyFrom(other.history);
+    }
+
+    /**
+     * Evaluates with {@code network} from now on, or with the hand-crafted evaluation when
+     * it is null. The accumulator is built from the current board and then kept up to date.
+     */
+    public void setNetwork(Nnue network) {
+        if (network == null) {
+            accumulator = null;
+            return;
+        }
+        accumulator = network.newAccumulator();
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] != NO_PIECE) accumulator.add(mailbox[sq], sq);
+        }
+    }
+
+    public Nnue network() {
+        return accumulator == null ? null : accumulator.net;
+    }
+
+    public int pieceAt(int sq) {
+        return mailbox[sq];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[piece(color, type)];
+    }
+
+    public long occupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        if (color != sideToMove) key ^= Zobrist.SIDE;
+        sideToMove = color;
+    }
+
+    public int castlingRights() {
+        return castling;
+    }
+
+    public void setCastlingRights(int rights) {
+        key ^= Zobrist.CASTLING[castling] ^ Zobrist.CASTLING[rights];
+        castling = rights;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    public void setEpSquare(int sq) {
+        if (epSquare != NO_SQUARE) key ^= Zobrist.EP_FILE[file(epSquare)];
+        if (sq != NO_SQUARE) key ^= Zobrist.EP_FILE[file(sq)];
+        epSquare = sq;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int clock) {
+        halfmoveClock = clock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int number) {
+        fullmoveNumber = number;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[piece(color, KING)]);
+    }
+
+    /** All pieces of either color attacking {@code sq}, given the occupancy {@code occ}. */
+    public long attackersTo(int sq, long occ) {
+        long queens = pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        long rooks = pieces[piece(WHITE, ROOK)] | pieces[piece(BLACK, ROOK)] | queens;
+        long bishops = pieces[piece(WHITE, BISHOP)] | pieces[piece(BLACK, BISHOP)] | queens;
+        return (Attacks.PAWN[BLACK][sq] & pieces[piece(WHITE, PAWN)])
+                | (Attacks.PAWN[WHITE][sq] & pieces[piece(BLACK, PAWN)])
+                | (Attacks.KNIGHT[sq] & (pieces[piece(WHITE, KNIGHT)] | pieces[piece(BLACK, KNIGHT)]))
+                | (Attacks.KING[sq] & (pieces[piece(WHITE, KING)] | pieces[piece(BLACK, KING)]))
+                | (Attacks.rook(sq, occ) & rooks)
+                | (Attacks.bishop(sq, occ) & bishops);
+    }
+
+    public boolean isSquareAttacked(int sq, int byColor) {
+        int them = byColor;
+        if ((Attacks.PAWN[them ^ 1][sq] & pieces[piece(them, PAWN)]) != 0) return true;
+        if ((Attacks.KNIGHT[sq] & pieces[piece(them, KNIGHT)]) != 0) return true;
+        if ((Attacks.KING[sq] & pieces[piece(them, KING)]) != 0) return true;
+        long queens = pieces[piece(them, QUEEN)];
+        if ((Attacks.rook(sq, occupied) & (pieces[piece(them, ROOK)] | queens)) != 0) return true;
+        return (Attacks.bishop(sq, occupied) & (pieces[piece(them, BISHOP)] | queens)) != 0;
+    }
+
+    public boolean inCheck() {
+        return isSquareAttacked(kingSquare(sideToMove), sideToMove ^ 1);
+    }
+
+    /** Squares the piece on {@code from} attacks, ignoring whose turn it is. */
+    public long attacksFrom(int from) {
+        int piece = mailbox[from];
+        if (piece == NO_PIECE) return 0L;
+        switch (typeOf(piece)) {
+            case PAWN:
+                return Attacks.PAWN[colorOf(piece)][from];
+            case KNIGHT:
+                return Attacks.KNIGHT[from];
+            case BISHOP:
+                return Attacks.bishop(from, occupied);
+            case ROOK:
+                return Attacks.rook(from, occupied);
+            case QUEEN:
+                return Attacks.queen(from, occupied);
+            default:
+                return Attacks.KING[from];
+        }
+    }
+
+    /**
+     * Whether the piece on {@code from} can reach {@code to} by its movement rules
+     * (pushes, captures and slides), without considering checks. This is the rule set
+     * the board GUI validates clicks against.
+     */
+    public boolean canReach(int from, int to) {
+        int piece = mailbox[from];
+        if (piece == NO_PIECE || from == to) return false;
+        int color = colorOf(piece);
+        long toBit = 1L << to;
+        if ((occupancy[color] & toBit) != 0) return false;
+        if (typeOf(piece) == PAWN) {
+            if ((occupied & toBit) != 0) {
+                return (Attacks.PAWN[color][from] & toBit) != 0;
+            }
+            int forward = color == WHITE ? 8 : -8;
+            if (to == from + forward) return true;
+            int startRank = color == WHITE ? 1 : 6;
+            return rank(from) == startRank && to == from + 2 * forward
+                    && (occupied & (1L << (from + forward))) == 0;
+        }
+        return (attacksFrom(from) & toBit) != 0;
+    }
+
+    /** Plays {@code move}, which must be pseudo-legal in this position. */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int us = sideToMove;
+        int piece = mailbox[from];
+        int captured = NO_PIECE;
+
+        int capSq = flag == Move.EP_CAPTURE ? (us == WHITE ? to - 8 : to + 8) : to;
+        if ((flag & Move.CAPTURE) != 0) {
+            captured = mailbox[capSq];
+        }
+        pushUndo(captured);
+        if (captured != NO_PIECE) {
+            removePiece(capSq);
+        }
+
+        removePiece(from);
+        putPiece(Move.isPromotion(move) ? piece(us, Move.promotionType(move)) : piece, to);
+        if (flag == Move.KING_CASTLE) {
+            movePiece(to + 1, to - 1);
+        } else if (flag == Move.QUEEN_CASTLE) {
+            movePiece(to - 2, to + 1);
+        }
+
+        int rights = castling & CASTLE_MASK[from] & CASTLE_MASK[to];
+        key ^= Zobrist.CASTLING[castling] ^ Zobrist.CASTLING[rights];
+        castling = rights;
+        if (epSquare != NO_SQUARE) {
+            key ^= Zobrist.EP_FILE[file(epSquare)];
+            epSquare = NO_SQUARE;
+        }
+        if (flag == Move.DOUBLE_PUSH) {
+            int passed = (from + to) >>> 1;
+            // Only record the square when an enemy pawn could actually take en passant
+            if ((Attacks.PAWN[us][passed] & pieces[piece(us ^ 1, PAWN)]) != 0) {
+                epSquare = passed;
+                key ^= Zobrist.EP_FILE[file(passed)];
+            }
+        }
+        if (typeOf(piece) == PAWN || captured != NO_PIECE) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        if (us == BLACK) fullmoveNumber++;
+        sideToMove = us ^ 1;
+        key ^= Zobrist.SIDE;
+    }
+
+    /** Takes back {@code move}, which must be the last move made. */
+    public void unmakeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int us = sideToMove ^ 1;
+        sideToMove = us;
+        if (us == BLACK) fullmoveNumber--;
+
+        int record = undoStack[--undoCount];
+        restoreState(record);
+        int captured = ((record >>> 11) & 15) - 1;
+
+        int piece = mailbox[to];
+        removePiece(to);
+        putPiece(Move.isPromotion(move) ? piece(us, PAWN) : piece, from);
+        if (flag == Move.KING_CASTLE) {
+            movePiece(to - 1, to + 1);
+        } else if (flag == Move.QUEEN_CASTLE) {
+            movePiece(to + 1, to - 2);
+        }
+        if (captured != NO_PIECE) {
+            putPiece(captured, flag == Move.EP_CAPTURE ? (us == WHITE ? to - 8 : to + 8) : to);
+        }
+    }
+
+    /** Passes the turn without moving, for null-move pruning. Not legal when in check. */
+    public void makeNullMove() {
+        pushUndo(NO_PIECE);
+        if (epSquare != NO_SQUARE) {
+            key ^= Zobrist.EP_FILE[file(epSquare)];
+            epSquare = NO_SQUARE;
+        }
+        halfmoveClock++;
+        sideToMove ^= 1;
+        key ^= Zobrist.SIDE;
+    }
+
+    public void unmakeNullMove() {
+        sideToMove ^= 1;
+        restoreState(undoStack[--undoCount]);
+    }
+
+    // Puts back castling rights, en-passant square and halfmove clock from an undo record, and
+    // the key to match; the piece moves and side to move have been undone by the caller
+    private void restoreState(int record) {
+        int rights = record & 15;
+        int ep = (record >>> 4) & 127;
+        int restoredEp = ep == 64 ? NO_SQUARE : ep;
+        key ^= Zobrist.SIDE ^ Zobrist.CASTLING[castling] ^ Zobrist.CASTLING[rights];
+        if (epSquare != NO_SQUARE) key ^= Zobrist.EP_FILE[file(epSquare)];
+        if (restoredEp != NO_SQUARE) key ^= Zobrist.EP_FILE[file(restoredEp)];
+        castling = rights;
+        epSquare = restoredEp;
+        halfmoveClock = record >>> 15;
+        history.pop();
+    }
+
+    /** Whether {@code color} has anything besides king and pawns. */
+    public boolean hasNonPawnMaterial(int color) {
+        return (occupancy[color] & ~pieces[piece(color, PAWN)] & ~pieces[piece(color, KING)]) != 0;
+    }
+
+    /**
+     * Number of earlier positions in the move history identical to the current one. Only
+     * looks back to the last capture or pawn move, since nothing before that can repeat.
+     */
+    public int repetitions() {
+        return history.count(key, halfmoveClock, false);
+    }
+
+    /** Whether the current position occurred before, the test the search uses for draws. */
+    public boolean isRepetition() {
+        return halfmoveClock >= 4 && history.count(key, halfmoveClock, true) > 0;
+    }
+
+    /** Whether neither side can possibly mate: bare kings, a single minor piece, or same-colored bishops only. */
+    public boolean hasInsufficientMaterial() {
+        long majorsAndPawns = pieces[piece(WHITE, PAWN)] | pieces[piece(BLACK, PAWN)]
+                | pieces[piece(WHITE, ROOK)] | pieces[piece(BLACK, ROOK)]
+                | pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        if (majorsAndPawns != 0) return false;
+        long knights = pieces[piece(WHITE, KNIGHT)] | pieces[piece(BLACK, KNIGHT)];
+        long bishops = pieces[piece(WHITE, BISHOP)] | pieces[piece(BLACK, BISHOP)];
+        if (Long.bitCount(knights | bishops) <= 1) return true;
+        final long darkSquares = 0xAA55AA55AA55AA55L;
+        return knights == 0 && ((bishops & darkSquares) == 0 || (bishops & ~darkSquares) == 0);
+    }
+
+    /** Piece captured by the last move made, or {@link #NO_PIECE}. */
+    public int lastCaptured() {
+        return undoCount == 0 ? NO_PIECE : ((undoStack[undoCount - 1] >>> 11) & 15) - 1;
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        removePiece(from);
+        putPiece(piece, to);
+    }
+
+    private void pushUndo(int captured) {
+        if (undoCount == undoStack.length) {
+            undoStack = java.util.Arrays.copyOf(undoStack, undoCount * 2);
+        }
+        history.push(key);
+        int ep = epSquare == NO_SQUARE ? 64 : epSquare;
+        undoStack[undoCount++] = castling | (ep << 4) | ((captured + 1) << 11) | (halfmoveClock << 15);
+    }
+
+    /** Whether the side that just moved left its own king in check. */
+    public boolean leftKingInCheck() {
+        int moved = sideToMove ^ 1;
+        return isSquareAttacked(kingSquare(moved), sideToMove);
+    }
+}
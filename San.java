@@ -0,0 +1,155 @@
+/**
+ * Standard Algebraic Notation, as used in PGN movetext.
+ */
+public final class San {
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    /** SAN for the legal {@code move} in {@code pos}, including check and mate suffixes. */
+    public static String format(Position pos, int move) {
+        int[] scratch = new int[MoveGen.MAX_MOVES];
+        StringBuilder sb = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Position.typeOf(pos.pieceAt(from));
+
+        if (Move.flag(move) == Move.KING_CASTLE) {
+            sb.append("O-O");
+        } else if (Move.flag(move) == Move.QUEEN_CASTLE) {
+            sb.append("O-O-O");
+        } else if (type == Position.PAWN) {
+            if (Move.isCapture(move)) {
+                sb.append((char) ('a' + Position.file(from))).append('x');
+            }
+            sb.append(Move.squareName(to));
+            if (Move.isPromotion(move)) {
+                sb.append('=').append(PIECE_LETTERS.charAt(Move.promotionType(move)));
+            }
+        } else {
+            sb.append(PIECE_LETTERS.charAt(type));
+            appendDisambiguation(sb, pos, move, type, scratch);
+            if (Move.isCapture(move)) {
+                sb.append('x');
+            }
+            sb.append(Move.squareName(to));
+        }
+
+        pos.makeMove(move);
+        if (pos.inCheck()) {
+            sb.append(MoveGen.hasLegalMove(pos, scratch) ? '+' : '#');
+        }
+        pos.unmakeMove(move);
+        return sb.toString();
+    }
+
+    /**
+     * The legal move {@code san} denotes in {@code pos}, or {@link Move#NONE} if it is malformed,
+     * illegal or ambiguous. Check and annotation suffixes are ignored, castling may be written
+     * with zeros, and the promotion '=' is optional.
+     */
+    public static int parse(Position pos, CharSequence san, int[] scratch) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) end--;
+        if (end < 2) return Move.NONE;
+
+        if (isCastle(san, end, 3) || isCastle(san, end, 5)) {
+            int flag = end == 3 ? Move.KING_CASTLE : Move.QUEEN_CASTLE;
+            int count = MoveGen.generateLegal(pos, scratch, 0);
+            for (int i = 0; i < count; i++) {
+                if (Move.flag(scratch[i]) == flag) return scratch[i];
+            }
+            return Move.NONE;
+        }
+
+        int start = 0;
+        int type = Position.PAWN;
+        int letter = PIECE_LETTERS.indexOf(san.charAt(0));
+        if (letter >= 0) {
+            type = letter;
+            start = 1;
+        }
+        int promotion = -1;
+        letter = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+        if (type == Position.PAWN && letter > Position.PAWN && letter < Position.KING) {
+            promotion = letter;
+            end--;
+            if (end > 0 && san.charAt(end - 1) == '=') end--;
+        }
+        if (end - start < 2) return Move.NONE;
+        int toFile = san.charAt(end - 2) - 'a';
+        int toRank = san.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) return Move.NONE;
+        int to = Position.square(toFile, toRank);
+
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        int count = MoveGen.generate(pos, scratch, 0);
+        for (int i = 0; i < count; i++) {
+            int move = scratch[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || Move.isCastle(move)
+                    || Position.typeOf(pos.pieceAt(from)) != type
+                    || (fromFile >= 0 && Position.file(from) != fromFile)
+                    || (fromRank >= 0 && Position.rank(from) != fromRank)
+                    || (Move.isPromotion(move) ? Move.promotionType(move) != promotion : promotion >= 0)
+                    || !MoveGen.isLegal(pos, move)) {
+                continue;
+            }
+            if (found != Move.NONE) return Move.NONE; // ambiguous
+            found = move;
+        }
+        return found;
+    }
+
+    private static boolean isCastle(CharSequence san, int end, int length) {
+        if (end != length) return false;
+        for (int i = 0; i < length; i++) {
+            char c = san.charAt(i);
+            if (i % 2 == 1 ? c != '-' : c != 'O' && c != '0') return false;
+        }
+        return true;
+    }
+
+    // Adds the file, rank or both when another piece of the same type can reach the same square
+    private static void appendDisambiguation(StringBuilder sb, Position pos, int move, int type, int[] scratch) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int count = MoveGen.generateLegal(pos, scratch, 0);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < count; i++) {
+            int other = scratch[i];
+            int otherFrom = Move.from(other);
+            if (other == move || Move.to(other) != to || otherFrom == from
+                    || Position.typeOf(pos.pieceAt(otherFrom)) != type) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= Position.file(otherFrom) == Position.file(from);
+            sameRank |= Position.rank(otherFrom) == Position.rank(from);
+        }
+        if (!ambiguous) return;
+        if (!sameFile) {
+            sb.append((char) ('a' + Position.file(from)));
+        } else if (!sameRank) {
+            sb.append((char) ('1' + Position.rank(from)));
+        } else {
+            sb.append(Move.squareName(from));
+        }
+    }
+}
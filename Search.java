@@ -0,0 +1,429 @@
+/**
+ * Single-threaded {@link Engine}: iterative-deepening negamax alpha-beta with principal
+ * variation search, null-move pruning, late-move reductions and quiescence search, backed by
+ * a {@link TranspositionTable}. Moves are ordered by the hash move, MVV-LVA for captures,
+ * then killer moves, then the history heuristic.
+ * All search state lives in preallocated arrays, so searching allocates nothing per node.
+ */
+public class Search implements Engine {
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32_000;
+    public static final int MATE = 31_000;
+    public static final int MATE_BOUND = MATE - MAX_PLY; // scores beyond this are mates
+
+    // Centipawn values by piece type, scaled from Position.PIECE_VALUE
+    static final int[] CP_VALUE = new int[6];
+
+    static {
+        for (int type = 0; type < 6; type++) {
+            CP_VALUE[type] = Position.PIECE_VALUE[type] * 100;
+        }
+    }
+
+    public static final int DEFAULT_HASH_MB = 16;
+
+    private static final int HASH_MOVE_SCORE = 2_000_000;
+    private static final int CAPTURE_SCORE = 1_000_000;
+    private static final int KILLER_1_SCORE = 900_000;
+    private static final int KILLER_2_SCORE = 800_000;
+    private static final int HISTORY_MAX = 500_000;
+
+    private final TranspositionTable tt;
+    private final int threadIndex; // 0 for the main search thread, 1.. for parallel helpers
+    private Nnue network; // null for the hand-crafted evaluation
+    private Tablebase tablebase; // null when endgame tables are not used
+    private final int[] tbSquares = new int[Tablebase.MAX_PIECES];
+    private Position pos;
+    private final int[] moves = new int[MAX_PLY * MoveGen.MAX_MOVES];
+    private final int[] moveScores = new int[MAX_PLY * MoveGen.MAX_MOVES];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[12][64];
+
+    private volatile boolean stopRequested;
+    private boolean stopped;
+    private long nodes;
+    private long qnodes;
+    private long moveGenCalls;
+    private long movesGenerated;
+    private final EngineMetrics metrics = EngineMetrics.global();
+    private long nodeLimit;
+    private long deadline;
+    private long startTime;
+
+    public Search() {
+        this(new TranspositionTable(DEFAULT_HASH_MB));
+    }
+
+    public Search(TranspositionTable tt) {
+        this(tt, 0);
+    }
+
+    /**
+     * Creates a searcher sharing {@code tt} with others. Helpers ({@code threadIndex > 0}) do
+     * not advance the table generation and odd helpers start one ply deeper, so parallel
+     * threads spread over different depths instead of repeating the main thread's work.
+     */
+    public Search(TranspositionTable tt, int threadIndex) {
+        this.tt = tt;
+        this.threadIndex = threadIndex;
+    }
+
+    public TranspositionTable transpositionTable() {
+        return tt;
+    }
+
+    /** Evaluates with {@code network}, or with the hand-crafted evaluation when null. */
+    public void setNetwork(Nnue network) {
+        this.network = network;
+    }
+
+    /** Probes {@code tablebase} for endings it covers, or never when null. */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    @Override
+    public SearchResult search(Position position, SearchLimits limits, SearchListener listener) {
+        prepare();
+        return searchPrepared(position, limits, listener);
+    }
+
+    /**
+     * Clears any earlier stop request. Callers that start the search on another thread call
+     * this first, so a {@link #stop()} issued before that thread gets going is not lost.
+     */
+    void prepare() {
+        stopRequested = false;
+        if (threadIndex == 0) {
+            tt.newSearch();
+        }
+    }
+
+    SearchResult searchPrepared(Position position, SearchLimits limits, SearchListener listener) {
+        pos = position.copy();
+        if (network != null) {
+            pos.setNetwork(network);
+        }
+        stopped = false;
+        nodes = 0;
+        qnodes = 0;
+        moveGenCalls = 0;
+        movesGenerated = 0;
+        long ttProbes = tt.probes();
+        long ttHits = tt.hits();
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        startTime = System.nanoTime();
+        deadline = limits.moveTimeMillis() > 0 ? startTime + limits.moveTimeMillis() * 1_000_000L : Long.MAX_VALUE;
+        for (int[] k : killers) {
+            k[0] = Move.NONE;
+            k[1] = Move.NONE;
+        }
+        for (int[] h : history) {
+            for (int i = 0; i < 64; i++) h[i] >>= 2;
+        }
+
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] bestPv = new int[0];
+
+        int legalCount = MoveGen.generateLegal(pos, moves, 0);
+        if (legalCount > 0) {
+            bestMove = moves[0]; // fallback if even depth 1 is interrupted
+        }
+        if (tablebase != null && legalCount > 0) {
+            // A covered root is solved outright: play the fastest mate or the move that holds
+            int value = tablebase.probe(pos, tbSquares);
+            // The move lists and PV table are free until the first iteration
+            int length = value == Tablebase.UNKNOWN ? 0 : tablebase.bestLine(pos, pvTable[0], moves, tbSquares);
+            if (length > 0) {
+                int[] line = java.util.Arrays.copyOf(pvTable[0], length);
+                SearchResult result = new SearchResult(line[0], Tablebase.score(value, 0), length, nodes,
+                        System.nanoTime() - startTime, line);
+                if (listener != null) listener.onIteration(result);
+                return finish(result, ttProbes, ttHits);
+            }
+        }
+        long previousIterationNodes = 0;
+        for (int depth = 1 + (threadIndex & 1); depth <= limits.depth() && legalCount > 0; depth++) {
+            long iterationStart = System.nanoTime();
+            long nodesBefore = nodes;
+            int score = negamax(depth, 0, -INFINITY, INFINITY, false);
+            if (!stopped && threadIndex == 0) {
+                metrics.recordIteration(depth, System.nanoTime() - iterationStart, nodes - nodesBefore,
+                        previousIterationNodes);
+                previousIterationNodes = nodes - nodesBefore;
+            }
+            if (stopped && completedDepth > 0) break;
+            if (pvLength[0] > 0) {
+                bestMove = pvTable[0][0];
+                bestScore = score;
+                completedDepth = depth;
+                bestPv = java.util.Arrays.copyOf(pvTable[0], pvLength[0]);
+                if (listener != null && !stopped) {
+                    listener.onIteration(new SearchResult(bestMove, bestScore, completedDepth, nodes,
+                            System.nanoTime() - startTime, bestPv));
+                }
+            }
+            if (stopped || Math.abs(score) >= MATE_BOUND) break;
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - startTime > (deadline - startTime) / 2) {
+                break; // the next iteration would most likely not finish in time
+            }
+        }
+        return finish(new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - startTime, bestPv),
+                ttProbes, ttHits);
+    }
+
+    // Publishes this search's counters; the main thread also counts the search itself
+    private SearchResult finish(SearchResult result, long ttProbesBefore, long ttHitsBefore) {
+        metrics.recordNodes(nodes, qnodes, moveGenCalls, movesGenerated);
+        if (threadIndex == 0) {
+            metrics.recordSearch(result.elapsedNanos(), tt.probes() - ttProbesBefore, tt.hits() - ttHitsBefore);
+        }
+        return result;
+    }
+
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** Nodes searched so far by the current or last search; may be read from other threads. */
+    public long nodes() {
+        return nodes;
+    }
+
+    public long quiescenceNodes() {
+        return qnodes;
+    }
+
+    private void checkLimits() {
+        if (stopRequested || nodes >= nodeLimit || ((nodes & 1023) == 0 && System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta, boolean allowNull) {
+        pvLength[ply] = 0;
+        boolean inCheck = pos.inCheck();
+        if (inCheck) depth++;
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiesce(ply, alpha, beta);
+        }
+        nodes++;
+        checkLimits();
+        if (stopped) return 0;
+        if (ply > 0 && (pos.halfmoveClock >= 100 || pos.isRepetition())) return 0; // a single repeat already scores as the draw
+        if (ply > 0 && tablebase != null) {
+            int value = tablebase.probe(pos, tbSquares);
+            if (value != Tablebase.UNKNOWN) return Tablebase.score(value, ply);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        long key = pos.key;
+        long entry = tt.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = TranspositionTable.scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+        if (allowNull && !pvNode && !inCheck && depth >= 3 && pos.hasNonPawnMaterial(pos.sideToMove)
+                && evaluate(pos) >= beta) {
+            int reduction = depth > 6 ? 3 : 2;
+            pos.makeNullMove();
+            int score = -negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1, false);
+            pos.unmakeNullMove();
+            if (stopped) return 0;
+            if (score >= beta) return score >= MATE_BOUND ? beta : score;
+        }
+
+        int start = ply * MoveGen.MAX_MOVES;
+        int end = MoveGen.generate(pos, moves, start);
+        moveGenCalls++;
+        movesGenerated += end - start;
+        scoreMoves(start, end, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int legal = 0;
+        for (int i = start; i < end; i++) {
+            int move = pickNext(i, end);
+            pos.makeMove(move);
+            if (pos.leftKingInCheck()) {
+                pos.unmakeMove(move);
+                continue;
+            }
+            legal++;
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+
+            int score;
+            if (legal == 1) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+            } else {
+                int reduction = 0;
+                if (depth >= 3 && legal > 3 && quiet && !inCheck && !pos.inCheck()) {
+                    reduction = legal > 8 ? 2 : 1;
+                }
+                score = -negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+                if (score > alpha && reduction > 0) {
+                    score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+                }
+            }
+            pos.unmakeMove(move);
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (quiet) {
+                            updateQuietStats(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (legal == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        tt.store(key, bestMove, TranspositionTable.scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        nodes++;
+        qnodes++;
+        checkLimits();
+        if (stopped) return 0;
+
+        int standPat = evaluate(pos);
+        if (standPat >= beta || ply >= MAX_PLY - 1) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        int start = ply * MoveGen.MAX_MOVES;
+        int end = MoveGen.generateCaptures(pos, moves, start);
+        moveGenCalls++;
+        movesGenerated += end - start;
+        scoreMoves(start, end, ply, Move.NONE);
+        int bestScore = standPat;
+        for (int i = start; i < end; i++) {
+            int move = pickNext(i, end);
+            pos.makeMove(move);
+            if (pos.leftKingInCheck()) {
+                pos.unmakeMove(move);
+                continue;
+            }
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            pos.unmakeMove(move);
+            if (stopped) return 0;
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) break;
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private void updateQuietStats(int ply, int move, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] row = history[pos.pieceAt(Move.from(move))];
+        int to = Move.to(move);
+        row[to] = Math.min(HISTORY_MAX, row[to] + depth * depth);
+    }
+
+    private void scoreMoves(int start, int end, int ply, int hashMove) {
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                int victim = Move.flag(move) == Move.EP_CAPTURE ? Position.PAWN
+                        : Move.isCapture(move) ? Position.typeOf(pos.pieceAt(Move.to(move))) : Position.PAWN;
+                int attacker = Position.typeOf(pos.pieceAt(Move.from(move)));
+                score = CAPTURE_SCORE + mvvLva(victim, attacker);
+                if (Move.isPromotion(move)) {
+                    score += CP_VALUE[Move.promotionType(move)];
+                }
+            } else if (move == killers[ply][0]) {
+                score = KILLER_1_SCORE;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_2_SCORE;
+            } else {
+                score = history[pos.pieceAt(Move.from(move))][Move.to(move)];
+            }
+            moveScores[i] = score;
+        }
+    }
+
+    // Most valuable victim first, least valuable attacker breaking ties
+    static int mvvLva(int victimType, int attackerType) {
+        return CP_VALUE[victimType] * 8 - attackerType;
+    }
+
+    // Selection sort step: swaps the best remaining move into slot i
+    private int pickNext(int i, int end) {
+        int best = i;
+        for (int j = i + 1; j < end; j++) {
+            if (moveScores[j] > moveScores[best]) best = j;
+        }
+        if (best != i) {
+            int move = moves[best];
+            moves[best] = moves[i];
+            moves[i] = move;
+            int score = moveScores[best];
+            moveScores[best] = moveScores[i];
+            moveScores[i] = score;
+        }
+        return moves[i];
+    }
+
+    /** Static evaluation in centipawns from the side to move's point of view. */
+    static int evaluate(Position pos) {
+        return Evaluation.evaluate(pos);
+    }
+
+    /** Prints depth, score, nodes/sec and best line for a position: {@code java Search [fen] [millis]}. */
+    public static void main(String[] args) {
+        Position pos = args.length > 0 ? Fen.parse(args[0]) : Position.startPosition();
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        Search search = new Search();
+        SearchResult result = search.search(pos, SearchLimits.moveTime(millis));
+        System.out.println(result);
+        System.out.println(search.transpositionTable());
+        System.out.println(EngineMetrics.global());
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Budget for one search: maximum depth, node count and wall-clock time. A value of zero
+ * means no limit for that dimension.
+ */
+public final class SearchLimits {
+    public static final int MAX_DEPTH = 64;
+
+    private final int depth;
+    private final long nodes;
+    private final long moveTimeMillis;
+
+    private SearchLimits(int depth, long nodes, long moveTimeMillis) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    public static SearchLimits infinite() {
+        return new SearchLimits(0, 0, 0);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(0, 0, millis);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, moveTimeMillis);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, moveTimeMillis);
+    }
+
+    public SearchLimits withMoveTime(long millis) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    /** Depth to stop iterating at; {@link #MAX_DEPTH} when unlimited. */
+    public int depth() {
+        return depth > 0 ? Math.min(depth, MAX_DEPTH) : MAX_DEPTH;
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long moveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchLimits[depth=" + depth + ", nodes=" + nodes + ", movetime=" + moveTimeMillis + "ms]";
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * Receives progress from a running search. Called on the search thread after every
+ * completed iteration, so implementations must be quick and must hand any UI work off
+ * to the appropriate thread.
+ */
+public interface SearchListener {
+    /** {@code progress} describes the deepest completed iteration so far. */
+    void onIteration(SearchResult progress);
+}
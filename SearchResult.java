@@ -0,0 +1,64 @@
+/**
+ * Outcome of a search: best move, its score and principal variation, and the effort spent.
+ */
+public final class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int[] pv;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.pv = pv;
+    }
+
+    public int bestMove() {
+        return bestMove;
+    }
+
+    /** Score in centipawns from the side to move's point of view. */
+    public int score() {
+        return score;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    public int[] pv() {
+        return pv.clone();
+    }
+
+    public String pvString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(Move.toUci(move));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bestmove %s score %d depth %d nodes %d time %dms nps %d pv %s",
+                Move.toUci(bestMove), score, depth, nodes, elapsedNanos / 1_000_000, nodesPerSecond(), pvString());
+    }
+}
@@ -0,0 +1,278 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Headless engine-vs-engine tournament for regression testing. Plays games in parallel
+ * from a list of opening FENs, each opening twice with colors reversed, adjudicates mate,
+ * stalemate, repetition, the fifty-move rule and insufficient material, writes PGN and
+ * prints an Elo estimate with an optional SPRT.
+ *
+ * <pre>
+ *   java SelfPlay [options]
+ *     -games N          games to play (default 100)
+ *     -concurrency N    games played at once (default: available processors)
+ *     -openings FILE    one FEN or EPD per line (default: a small built-in set)
+ *     -pgn FILE         write games to FILE (default selfplay.pgn)
+ *     -nodes N          node limit per move for both engines (default 20000)
+ *     -movetime MS      time limit per move for both engines, instead of nodes
+ *     -nodes2 N, -movetime2 MS   override the limit for engine B ("test")
+ *     -hash MB          transposition table per engine (default 8)
+ *     -nnue FILE, -nnue2 FILE    network weights for engine A or B (default: hand-crafted evaluation)
+ *     -sprt ELO0,ELO1   stop once the SPRT accepts or rejects (alpha = beta = 0.05)
+ * </pre>
+ */
+public class SelfPlay {
+    private static final int MAX_PLIES = 600; // adjudicated as a draw beyond this
+    private static final String[] DEFAULT_OPENINGS = {
+            Fen.START,
+            "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkbnr/ppp1pppp/8/3p4/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkb1r/pppppppp/5n2/8/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 1 2",
+            "rnbqkbnr/pppp1ppp/4p3/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkbnr/pp1ppppp/2p5/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkbnr/pppppppp/8/8/2P5/8/PP1PPPPP/RNBQKBNR b KQkq - 0 1",
+    };
+
+    private final SearchLimits limitsA;
+    private final SearchLimits limitsB;
+    private final int hashMb;
+    private Nnue networkA;
+    private Nnue networkB;
+
+    public SelfPlay(SearchLimits limitsA, SearchLimits limitsB, int hashMb) {
+        this.limitsA = limitsA;
+        this.limitsB = limitsB;
+        this.hashMb = hashMb;
+    }
+
+    /** Network weights for each engine; null selects the hand-crafted evaluation. */
+    public void setNetworks(Nnue networkA, Nnue networkB) {
+        this.networkA = networkA;
+        this.networkB = networkB;
+    }
+
+    /** Plays one game; engine A has white when {@code aIsWhite}. */
+    public GameRecord play(String openingFen, boolean aIsWhite, int round) {
+        Search a = new Search(new TranspositionTable(hashMb));
+        Search b = new Search(new TranspositionTable(hashMb));
+        a.setNetwork(networkA);
+        b.setNetwork(networkB);
+        Position pos = Fen.parse(openingFen);
+        GameRecord game = new GameRecord();
+        game.setStartFen(openingFen);
+        game.setTag("Event", "SelfPlay");
+        game.setTag("Site", "localhost");
+        game.setTag("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        game.setTag("Round", Integer.toString(round));
+        game.setTag("White", aIsWhite ? "A" : "B");
+        game.setTag("Black", aIsWhite ? "B" : "A");
+
+        int[] scratch = new int[MoveGen.MAX_MOVES];
+        for (int ply = 0; ; ply++) {
+            GameStatus status = GameStatus.of(pos, scratch);
+            if (status.isOver()) {
+                game.setResult(status.result(pos));
+                game.setTag("Termination", status.reason());
+                return game;
+            }
+            if (ply >= MAX_PLIES) {
+                game.setResult(GameRecord.DRAW);
+                game.setTag("Termination", "ply limit");
+                return game;
+            }
+            boolean aToMove = (pos.sideToMove() == Position.WHITE) == aIsWhite;
+            SearchResult result = (aToMove ? a : b).search(pos, aToMove ? limitsA : limitsB);
+            pos.makeMove(result.bestMove());
+            game.addMove(result.bestMove());
+        }
+    }
+
+    /** Score of engine A in one game: 1, 0.5 or 0. */
+    static double scoreForA(GameRecord game) {
+        boolean aIsWhite = "A".equals(game.tag("White"));
+        switch (game.result()) {
+            case GameRecord.WHITE_WINS:
+                return aIsWhite ? 1.0 : 0.0;
+            case GameRecord.BLACK_WINS:
+                return aIsWhite ? 0.0 : 1.0;
+            default:
+                return 0.5;
+        }
+    }
+
+    /** Running win/draw/loss tally of engine B against engine A, with Elo and SPRT estimates. */
+    static final class Tally {
+        int wins;
+        int draws;
+        int losses;
+
+        void add(double scoreForB) {
+            if (scoreForB == 1.0) wins++;
+            else if (scoreForB == 0.0) losses++;
+            else draws++;
+        }
+
+        int games() {
+            return wins + draws + losses;
+        }
+
+        double score() {
+            return games() == 0 ? 0.5 : (wins + draws / 2.0) / games();
+        }
+
+        static double elo(double score) {
+            double s = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+            return -400 * Math.log10(1 / s - 1);
+        }
+
+        /** Half-width of the 95% confidence interval on the Elo difference. */
+        double eloMargin() {
+            int n = games();
+            if (n == 0) return 0;
+            double s = score();
+            double variance = (wins * Math.pow(1 - s, 2) + draws * Math.pow(0.5 - s, 2) + losses * Math.pow(s, 2)) / n;
+            double delta = 1.96 * Math.sqrt(variance / n);
+            return (elo(s + delta) - elo(s - delta)) / 2;
+        }
+
+        /** Log-likelihood ratio of H1 (elo1) against H0 (elo0), trinomial approximation. */
+        double llr(double elo0, double elo1) {
+            int n = games();
+            if (n == 0 || wins + losses == 0) return 0;
+            double s = score();
+            double variance = (wins + draws / 4.0) / n - s * s;
+            if (variance <= 0) return 0;
+            double s0 = 1 / (1 + Math.pow(10, -elo0 / 400));
+            double s1 = 1 / (1 + Math.pow(10, -elo1 / 400));
+            return (s1 - s0) * (2 * s - s0 - s1) / (2 * variance / n);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 100;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        String openingsFile = null;
+        String pgnFile = "selfplay.pgn";
+        long nodes = 20_000;
+        long moveTime = 0;
+        long nodes2 = -1;
+        long moveTime2 = -1;
+        int hashMb = 8;
+        Nnue networkA = null;
+        Nnue networkB = null;
+        double[] sprt = null;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "-games": games = Integer.parseInt(value); i++; break;
+                case "-concurrency": concurrency = Integer.parseInt(value); i++; break;
+                case "-openings": openingsFile = value; i++; break;
+                case "-pgn": pgnFile = value; i++; break;
+                case "-nodes": nodes = Long.parseLong(value); i++; break;
+                case "-movetime": moveTime = Long.parseLong(value); nodes = 0; i++; break;
+                case "-nodes2": nodes2 = Long.parseLong(value); i++; break;
+                case "-movetime2": moveTime2 = Long.parseLong(value); i++; break;
+                case "-hash": hashMb = Integer.parseInt(value); i++; break;
+                case "-nnue": networkA = Nnue.load(Paths.get(value)); i++; break;
+                case "-nnue2": networkB = Nnue.load(Paths.get(value)); i++; break;
+                case "-sprt": {
+                    String[] bounds = value.split(",");
+                    sprt = new double[]{Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1])};
+                    i++;
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        SearchLimits limitsA = moveTime > 0 ? SearchLimits.moveTime(moveTime) : SearchLimits.nodes(nodes);
+        SearchLimits limitsB = limitsA;
+        if (moveTime2 > 0) limitsB = SearchLimits.moveTime(moveTime2);
+        else if (nodes2 > 0) limitsB = SearchLimits.nodes(nodes2);
+
+        List<String> openings = new ArrayList<>();
+        if (openingsFile != null) {
+            for (String line : Files.readAllLines(Paths.get(openingsFile), StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                openings.add(Fen.fromEpd(trimmed));
+            }
+        } else {
+            openings.addAll(Arrays.asList(DEFAULT_OPENINGS));
+        }
+
+        SelfPlay runner = new SelfPlay(limitsA, limitsB, hashMb);
+        runner.setNetworks(networkA, networkB);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        ExecutorCompletionService<GameRecord> completion = new ExecutorCompletionService<>(pool);
+        AtomicBoolean stopScheduling = new AtomicBoolean();
+        List<Future<GameRecord>> submitted = new ArrayList<>();
+        for (int g = 0; g < games; g++) {
+            String opening = openings.get((g / 2) % openings.size());
+            boolean aIsWhite = g % 2 == 0;
+            int round = g + 1;
+            submitted.add(completion.submit(() -> stopScheduling.get() ? null : runner.play(opening, aIsWhite, round)));
+        }
+
+        Tally tally = new Tally();
+        double lower = sprt == null ? 0 : Math.log(0.05 / (1 - 0.05));
+        double upper = sprt == null ? 0 : Math.log((1 - 0.05) / 0.05);
+        long start = System.nanoTime();
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(Paths.get(pgnFile), StandardCharsets.UTF_8))) {
+            PgnWriter pgn = new PgnWriter(out);
+            for (int i = 0; i < submitted.size(); i++) {
+                GameRecord game;
+                try {
+                    game = completion.take().get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Game failed", e.getCause());
+                }
+                if (game == null) continue;
+                pgn.write(game);
+                tally.add(1.0 - scoreForA(game));
+                if (tally.games() % 10 == 0) {
+                    pgn.flush();
+                    printSummary(tally, sprt, start);
+                }
+                if (sprt != null && !stopScheduling.get()) {
+                    double llr = tally.llr(sprt[0], sprt[1]);
+                    if (llr >= upper || llr <= lower) {
+                        stopScheduling.set(true);
+                        System.out.println(llr >= upper ? "SPRT: H1 accepted" : "SPRT: H0 accepted");
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        printSummary(tally, sprt, start);
+    }
+
+    private static void printSummary(Tally tally, double[] sprt, long startNanos) {
+        double hours = (System.nanoTime() - startNanos) / 3.6e12;
+        System.out.printf("Games %d (B vs A): +%d =%d -%d  score %.1f%%  Elo %+.1f +/- %.1f  %.0f games/hour",
+                tally.games(), tally.wins, tally.draws, tally.losses, tally.score() * 100,
+                Tally.elo(tally.score()), tally.eloMargin(), tally.games() / Math.max(hours, 1e-9));
+        if (sprt != null) {
+            System.out.printf("  LLR %.2f [%.2f, %.2f] (elo0 %.1f, elo1 %.1f)",
+                    tally.llr(sprt[0], sprt[1]), Math.log(0.05 / 0.95), Math.log(0.95 / 0.05), sprt[0], sprt[1]);
+        }
+        System.out.println();
+    }
+}
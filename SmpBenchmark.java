@@ -0,0 +1,49 @@
+/**
+ * Time-to-depth benchmark for {@link LazySmp}: searches a fixed set of positions to a fixed
+ * depth with 1, 2, 4, ... up to N threads and reports the speedup over one thread.
+ *
+ * <pre>
+ *   java SmpBenchmark [maxThreads] [depth] [hashMb]
+ * </pre>
+ */
+public class SmpBenchmark {
+    private static final String[] POSITIONS = {
+            Fen.START,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int hashMb = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        System.out.printf("Lazy SMP time-to-depth %d, %d MB hash, %d hardware threads%n",
+                depth, hashMb, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %12s %14s %14s %8s%n", "threads", "time ms", "nodes", "nps", "speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            LazySmp engine = new LazySmp(threads, hashMb);
+            long nanos = 0;
+            long nodes = 0;
+            for (String fen : POSITIONS) {
+                engine.transpositionTable().clear();
+                SearchResult result = engine.search(Fen.parse(fen), SearchLimits.depth(depth));
+                nanos += result.elapsedNanos();
+                nodes += result.nodes();
+            }
+            engine.shutdown();
+            double millis = nanos / 1e6;
+            if (threads == 1) baseline = millis;
+            System.out.printf("%8d %12.0f %,14d %,14d %8.2f%n",
+                    threads, millis, nodes, Perft.nodesPerSecond(nodes, nanos), baseline / millis);
+        }
+    }
+
+    // 1, 2, 4, ... doubling, always ending with exactly maxThreads
+    private static int nextThreadCount(int threads, int maxThreads) {
+        return threads == maxThreads ? maxThreads + 1 : Math.min(threads * 2, maxThreads);
+    }
+}
@@ -0,0 +1,329 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Endgame tablebases for positions with few pieces, generated by {@link TablebaseGenerator}
+ * and stored one file per material balance. Every entry is a distance to mate for the side
+ * to move, so probes give both the result and the fastest win or slowest loss.
+ *
+ * <p>Files hold fixed-size blocks of entries, each compressed with Deflate and memory-mapped.
+ * A probe decompresses the block it needs into a bounded cache shared by all threads, so a
+ * search that stays in one ending keeps hitting the same few blocks. The cache is four-way
+ * set-associative on a primitive block key and is read without locks; a miss replaces a
+ * block of its set that has not been used since the last miss there.
+ *
+ * <p>Values: 0 draw, {@code d > 0} win in d plies, {@code -d - 1} loss in d plies (so -1 is
+ * checkmated). Positions with castling rights or an en-passant square are not covered, and
+ * the fifty-move rule is ignored.
+ */
+public final class Tablebase {
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    public static final int MAX_PIECES = 4;
+
+    static final int MAGIC = 0x31425443; // "CTB1" little-endian
+    static final int BLOCK_SIZE = 1 << 15;
+    static final int HEADER_SIZE = 16;
+    static final byte ILLEGAL = -128;
+    private static final int WAYS = 4;
+
+    private final int maxPieces;
+    private final long cacheCapacity;
+    private int[] keys = new int[0]; // material keys, sorted
+    private EndgameTable[] tables = new EndgameTable[0];
+    private MappedByteBuffer[] files = new MappedByteBuffer[0];
+    private int[] ids = new int[0]; // cache key prefix of each table
+
+    private final AtomicReferenceArray<Block> cache; // WAYS consecutive slots per set
+    private final int setMask;
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private Tablebase(int maxPieces, long cacheCapacity) {
+        this.maxPieces = maxPieces;
+        this.cacheCapacity = cacheCapacity;
+        int sets = (int) Long.highestOneBit(Math.max(1, Math.min(cacheCapacity / BLOCK_SIZE / WAYS, 1 << 20)));
+        this.cache = new AtomicReferenceArray<>(sets * WAYS);
+        this.setMask = sets - 1;
+    }
+
+    // A decompressed block; used gives it a second chance when its set needs room
+    private static final class Block {
+        final long key;
+        final byte[] data;
+        volatile boolean used;
+
+        Block(long key, byte[] data) {
+            this.key = key;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Opens the tables for up to {@code maxPieces} pieces in {@code dir}, first generating
+     * any that are missing. Generation takes a moment for three pieces and many minutes for
+     * four, so larger sets are best built ahead of time with {@link TablebaseGenerator}.
+     */
+    public static Tablebase open(Path dir, int maxPieces, int cacheMegabytes) throws IOException {
+        if (maxPieces < 3 || maxPieces > MAX_PIECES) {
+            throw new IllegalArgumentException("Tablebases cover 3 to " + MAX_PIECES + " pieces: " + maxPieces);
+        }
+        Files.createDirectories(dir);
+        Tablebase tb = new Tablebase(maxPieces, (long) cacheMegabytes << 20);
+        // Tables come in dependency order, so every capture or promotion leads to one already open
+        for (EndgameTable table : TablebaseGenerator.tables(maxPieces)) {
+            Path file = dir.resolve(table.name + ".ctb");
+            if (!Files.exists(file)) {
+                new TablebaseGenerator(table, tb).generate(file);
+            }
+            tb.add(table, file);
+        }
+        return tb;
+    }
+
+    private void add(EndgameTable table, Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != table.size
+                || data.getInt(8) != BLOCK_SIZE) {
+            throw new IOException("Not a " + table.name + " table: " + file);
+        }
+        int n = keys.length;
+        int at = -Arrays.binarySearch(keys, table.materialKey) - 1;
+        int id = n;
+        keys = insert(keys, at, table.materialKey);
+        ids = insert(ids, at, id);
+        tables = Arrays.copyOf(tables, n + 1);
+        files = Arrays.copyOf(files, n + 1);
+        System.arraycopy(tables, at, tables, at + 1, n - at);
+        System.arraycopy(files, at, files, at + 1, n - at);
+        tables[at] = table;
+        files[at] = data;
+    }
+
+    private static int[] insert(int[] array, int at, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(array, at, result, at + 1, array.length - at);
+        return result;
+    }
+
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /** Number of tables open. */
+    public int size() {
+        return tables.length;
+    }
+
+    /**
+     * Distance-to-mate value of {@code pos} for the side to move, or {@link #UNKNOWN} if no
+     * table covers it. {@code squares} must hold {@link #MAX_PIECES} ints.
+     */
+    public int probe(Position pos, int[] squares) {
+        if (Long.bitCount(pos.occupied) > maxPieces || pos.castling != 0 || pos.epSquare != Position.NO_SQUARE) {
+            return UNKNOWN;
+        }
+        int key = EndgameTable.materialKey(pos);
+        if (key == 0) return 0; // bare kings
+        boolean flip = false;
+        int slot = Arrays.binarySearch(keys, key);
+        if (slot < 0) {
+            flip = true;
+            slot = Arrays.binarySearch(keys, EndgameTable.flipColors(key));
+            if (slot < 0) return UNKNOWN;
+        }
+        int value = value(slot, tables[slot].index(pos, flip, squares));
+        return value == ILLEGAL ? UNKNOWN : value;
+    }
+
+    private int value(int slot, int index) {
+        int block = index / BLOCK_SIZE;
+        long key = (long) ids[slot] << 32 | block;
+        int set = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & setMask;
+        for (int way = 0; way < WAYS; way++) {
+            Block cached = cache.get(set * WAYS + way);
+            if (cached != null && cached.key == key) {
+                hits.increment();
+                if (!cached.used) cached.used = true;
+                return cached.data[index % BLOCK_SIZE];
+            }
+        }
+        misses.increment();
+        // Two threads missing on one block just both inflate it
+        byte[] data = inflate(files[slot], block);
+        store(set, new Block(key, data));
+        return data[index % BLOCK_SIZE];
+    }
+
+    // Replaces an empty or unused way of the set, clearing the used marks it passes over
+    private void store(int set, Block block) {
+        int victim = set * WAYS;
+        for (int way = 0; way < WAYS; way++) {
+            Block cached = cache.get(set * WAYS + way);
+            if (cached == null || !cached.used) {
+                victim = set * WAYS + way;
+                break;
+            }
+            cached.used = false;
+        }
+        Block old = cache.getAndSet(victim, block);
+        cachedBytes.addAndGet(block.data.length - (old == null ? 0 : old.data.length));
+    }
+
+    private static byte[] inflate(MappedByteBuffer file, int block) {
+        int entries = file.getInt(4);
+        long start = file.getLong(HEADER_SIZE + block * Long.BYTES);
+        long end = file.getLong(HEADER_SIZE + (block + 1) * Long.BYTES);
+        byte[] out = new byte[Math.min(BLOCK_SIZE, entries - block * BLOCK_SIZE)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(file.slice((int) start, (int) (end - start)));
+            int n = 0;
+            while (n < out.length && !inflater.finished()) {
+                int read = inflater.inflate(out, n, out.length - n);
+                if (read == 0 && inflater.needsInput()) break;
+                n += read;
+            }
+            if (n != out.length) throw new IllegalStateException("Truncated tablebase block " + block);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt tablebase block " + block, e);
+        } finally {
+            inflater.end();
+        }
+        return out;
+    }
+
+    /** Writes {@code values} in the block format {@link #add} reads. */
+    static void write(Path file, byte[] values) throws IOException {
+        int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + (blocks + 1) * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(values.length).putInt(BLOCK_SIZE).putInt(blocks);
+        java.util.zip.Deflater deflater = new java.util.zip.Deflater(java.util.zip.Deflater.BEST_COMPRESSION);
+        byte[] buf = new byte[BLOCK_SIZE + 1024];
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = header.capacity();
+            out.position(offset);
+            for (int b = 0; b < blocks; b++) {
+                header.putLong(offset);
+                deflater.reset();
+                deflater.setInput(values, b * BLOCK_SIZE, Math.min(BLOCK_SIZE, values.length - b * BLOCK_SIZE));
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf);
+                    ByteBuffer chunk = ByteBuffer.wrap(buf, 0, n);
+                    while (chunk.hasRemaining()) offset += out.write(chunk);
+                }
+            }
+            header.putLong(offset);
+            header.flip();
+            out.position(0);
+            while (header.hasRemaining()) out.write(header);
+        } finally {
+            deflater.end();
+        }
+        // Move into place only when complete, so an interrupted run is regenerated next time
+        Files.move(tmp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Search score for {@code value} at distance {@code ply} from the root, mates counted from the root. */
+    public static int score(int value, int ply) {
+        if (value > 0) return Search.MATE - ply - value;
+        if (value < 0) return -Search.MATE + ply + (-value - 1);
+        return 0;
+    }
+
+    /**
+     * The move that wins fastest, holds the draw, or loses slowest, or {@link Move#NONE} if
+     * {@code pos} is not covered or has no legal move. {@code scratch} must hold
+     * {@link MoveGen#MAX_MOVES} moves and {@code squares} {@link #MAX_PIECES} ints.
+     */
+    public int bestMove(Position pos, int[] scratch, int[] squares) {
+        if (probe(pos, squares) == UNKNOWN) return Move.NONE;
+        int count = MoveGen.generateLegal(pos, scratch, 0);
+        int best = Move.NONE;
+        int bestScore = -Search.INFINITY;
+        for (int i = 0; i < count; i++) {
+            pos.makeMove(scratch[i]);
+            int value = probe(pos, squares);
+            pos.unmakeMove(scratch[i]);
+            if (value == UNKNOWN) continue;
+            int score = -score(value, 1);
+            if (score > bestScore) {
+                bestScore = score;
+                best = scratch[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fills {@code pv} with the line of best moves from {@code pos}, to mate for a decided
+     * position, otherwise a single drawing move, and returns its length. {@code pos} is
+     * played forward and back, so it ends as it started; {@code scratch} and {@code squares}
+     * are as for {@link #bestMove}.
+     */
+    public int bestLine(Position pos, int[] pv, int[] scratch, int[] squares) {
+        int value = probe(pos, squares);
+        if (value == UNKNOWN) return 0;
+        int length = Math.min(value == 0 ? 1 : value > 0 ? value : -value - 1, pv.length);
+        int n = 0;
+        while (n < length) {
+            int move = bestMove(pos, scratch, squares);
+            if (move == Move.NONE) break;
+            pos.makeMove(move);
+            pv[n++] = move;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            pos.unmakeMove(pv[i]);
+        }
+        return n;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long probed = hits() + misses();
+        return probed == 0 ? 0.0 : (double) hits() / probed;
+    }
+
+    public long cachedBytes() {
+        return cachedBytes.get();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TB[%d tables, cache %d/%d KB, hits=%d, misses=%d, hitRate=%.1f%%]",
+                size(), cachedBytes() >> 10, cacheCapacity >> 10, hits(), misses(), hitRate() * 100);
+    }
+}
@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds one {@link EndgameTable} by retrograde analysis:
+ * {@code java TablebaseGenerator dir [maxPieces]} writes every missing table up to
+ * {@code maxPieces} (default 3) into {@code dir}.
+ *
+ * <p>A first pass visits every entry, marks illegal ones, scores checkmates and stalemates,
+ * and resolves captures and promotions by probing the smaller tables they lead to. The rest
+ * is solved backwards one ply at a time: every position that can move into a loss at depth
+ * d is a win at d + 1, and a position whose moves all reach wins is lost once the last of
+ * them is resolved. Whatever is left unresolved is a draw.
+ *
+ * <p>Tables with pawns on both sides are skipped, since en passant is not modelled.
+ */
+public final class TablebaseGenerator {
+    private static final int MAX_DEPTH = 126;
+    private static final byte RESOLVED = 1, DRAW_EXIT = 2;
+
+    private final EndgameTable table;
+    private final Tablebase smaller; // tables reached by captures and promotions
+    private final byte[] values;
+    private final byte[] state;
+    private final byte[] win; // fastest win found so far in plies, 0 if none
+    private final byte[] remaining; // moves that stay in the table and are not yet known to lose
+    private final byte[] exitLoss; // slowest loss through a capture or promotion in plies, 0 if none
+    private final IntList[] wins = new IntList[MAX_DEPTH + 1];
+    private final IntList[] losses = new IntList[MAX_DEPTH + 1];
+
+    private final Position pos = new Position();
+    private final int[] squares = new int[Tablebase.MAX_PIECES];
+    private final int[] work = new int[Tablebase.MAX_PIECES];
+    private final int[] moves = new int[MoveGen.MAX_MOVES];
+    private final int[] predecessors = new int[MoveGen.MAX_MOVES];
+
+    TablebaseGenerator(EndgameTable table, Tablebase smaller) {
+        this.table = table;
+        this.smaller = smaller;
+        values = new byte[table.size];
+        state = new byte[table.size];
+        win = new byte[table.size];
+        remaining = new byte[table.size];
+        exitLoss = new byte[table.size];
+        for (int d = 0; d < wins.length; d++) {
+            wins[d] = new IntList();
+            losses[d] = new IntList();
+        }
+    }
+
+    /** Tables for up to {@code maxPieces} pieces, each after every table it depends on. */
+    static List<EndgameTable> tables(int maxPieces) {
+        List<EndgameTable> result = new ArrayList<>();
+        for (int others = 1; others <= maxPieces - 2; others++) {
+            collect(new int[others], 0, 0, result);
+        }
+        // Fewer pieces first; among equals, fewer pawns, since promotions turn pawns into pieces
+        result.sort(Comparator.comparingInt((EndgameTable t) -> t.pieces.length).thenComparingInt(t -> pawns(t)));
+        return result;
+    }
+
+    private static void collect(int[] others, int at, int minPiece, List<EndgameTable> result) {
+        if (at == others.length) {
+            int[] counts = new int[12];
+            int whitePawns = 0, blackPawns = 0, whiteValue = 0, blackValue = 0;
+            for (int piece : others) {
+                counts[piece]++;
+                int type = Position.typeOf(piece);
+                if (Position.colorOf(piece) == Position.WHITE) {
+                    whiteValue += Position.PIECE_VALUE[type];
+                    if (type == Position.PAWN) whitePawns++;
+                } else {
+                    blackValue += Position.PIECE_VALUE[type];
+                    if (type == Position.PAWN) blackPawns++;
+                }
+            }
+            if (whitePawns > 0 && blackPawns > 0) return;
+            // Keep one orientation of each material balance: the stronger side plays white
+            int key = EndgameTable.materialKey(counts);
+            int flipped = EndgameTable.flipColors(key);
+            if (whiteValue < blackValue || (whiteValue == blackValue && (key & 0x7FFF) < (flipped & 0x7FFF))) return;
+            result.add(new EndgameTable(others.clone()));
+            return;
+        }
+        for (int piece = minPiece; piece < 12; piece++) {
+            if (Position.typeOf(piece) == Position.KING) continue;
+            others[at] = piece;
+            collect(others, at + 1, piece, result);
+        }
+    }
+
+    private static int pawns(EndgameTable table) {
+        int n = 0;
+        for (int piece : table.pieces) {
+            if (Position.typeOf(piece) == Position.PAWN) n++;
+        }
+        return n;
+    }
+
+    /** Solves the table and writes it to {@code file}. */
+    void generate(Path file) throws IOException {
+        for (int index = 0; index < table.size; index++) {
+            initialize(index);
+        }
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            IntList won = wins[depth];
+            for (int i = 0; i < won.size; i++) {
+                int index = won.items[i];
+                if ((state[index] & RESOLVED) == 0 && win[index] == depth) resolveWin(index, depth);
+            }
+            IntList lost = losses[depth];
+            for (int i = 0; i < lost.size; i++) {
+                int index = lost.items[i];
+                if ((state[index] & RESOLVED) == 0) resolveLoss(index, depth);
+            }
+            wins[depth] = null;
+            losses[depth] = null;
+        }
+        Tablebase.write(file, values);
+    }
+
+    // Sets up the position at index on pos; false if the entry is not a legal position
+    private boolean setUp(int index) {
+        int stm = table.decode(index, squares);
+        if (!table.isCanonical(squares)) return false;
+        pos.clear();
+        for (int i = 0; i < table.pieces.length; i++) {
+            int sq = squares[i];
+            int piece = table.pieces[i];
+            if (pos.pieceAt(sq) != Position.NO_PIECE) return false;
+            if (Position.typeOf(piece) == Position.PAWN && (Position.rank(sq) == 0 || Position.rank(sq) == 7)) {
+                return false;
+            }
+            pos.putPiece(piece, sq);
+        }
+        pos.setSideToMove(stm);
+        return !pos.isSquareAttacked(pos.kingSquare(stm ^ 1), stm);
+    }
+
+    private void initialize(int index) {
+        if (!setUp(index)) {
+            values[index] = Tablebase.ILLEGAL;
+            state[index] = RESOLVED;
+            return;
+        }
+        int count = MoveGen.generateLegal(pos, moves, 0);
+        if (count == 0) {
+            if (pos.inCheck()) {
+                losses[0].add(index);
+            } else {
+                state[index] = RESOLVED; // stalemate
+            }
+            return;
+        }
+        int inTable = 0;
+        int bestWin = 0;
+        int slowestLoss = 0;
+        boolean draw = false;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                inTable++;
+                continue;
+            }
+            pos.makeMove(move);
+            int value = smaller.probe(pos, work);
+            pos.unmakeMove(move);
+            if (value == Tablebase.UNKNOWN) {
+                throw new IllegalStateException("No table for a capture or promotion from " + table.name);
+            }
+            if (value < 0) {
+                int plies = -value; // the reply is lost in -value - 1 plies, so this wins in one more
+                if (bestWin == 0 || plies < bestWin) bestWin = plies;
+            } else if (value == 0) {
+                draw = true;
+            } else {
+                slowestLoss = Math.max(slowestLoss, value + 1);
+            }
+        }
+        if (bestWin > MAX_DEPTH || slowestLoss > MAX_DEPTH) throw tooDeep();
+        remaining[index] = (byte) inTable;
+        exitLoss[index] = (byte) slowestLoss;
+        if (draw) state[index] |= DRAW_EXIT;
+        if (bestWin > 0) {
+            win[index] = (byte) bestWin;
+            wins[bestWin].add(index);
+        } else if (inTable == 0) {
+            if (draw) {
+                state[index] |= RESOLVED;
+            } else {
+                losses[slowestLoss].add(index);
+            }
+        }
+    }
+
+    private void resolveWin(int index, int depth) {
+        values[index] = (byte) depth;
+        state[index] |= RESOLVED;
+        int n = predecessors(index);
+        for (int i = 0; i < n; i++) {
+            int p = predecessors[i];
+            if ((state[p] & RESOLVED) != 0 || --remaining[p] > 0) continue;
+            if ((state[p] & DRAW_EXIT) != 0 || win[p] != 0) continue;
+            // Every move from p now reaches a win for the opponent
+            int loss = Math.max(depth + 1, exitLoss[p]);
+            if (loss > MAX_DEPTH) throw tooDeep();
+            losses[loss].add(p);
+        }
+    }
+
+    private void resolveLoss(int index, int depth) {
+        values[index] = (byte) (-depth - 1);
+        state[index] |= RESOLVED;
+        int n = predecessors(index);
+        for (int i = 0; i < n; i++) {
+            int p = predecessors[i];
+            if ((state[p] & RESOLVED) != 0) continue;
+            if (win[p] == 0 || win[p] > depth + 1) {
+                if (depth + 1 > MAX_DEPTH) throw tooDeep();
+                win[p] = (byte) (depth + 1);
+                wins[depth + 1].add(p);
+            }
+        }
+    }
+
+    private IllegalStateException tooDeep() {
+        return new IllegalStateException("Distance to mate does not fit a byte in " + table.name);
+    }
+
+    // Writes the indices of the legal positions one move (that stays in the table) before
+    // index into predecessors and returns how many there are
+    private int predecessors(int index) {
+        setUp(index);
+        int stm = pos.sideToMove();
+        int mover = stm ^ 1;
+        long empty = ~pos.occupied();
+        int n = 0;
+        for (int slot = 0; slot < table.pieces.length; slot++) {
+            int piece = table.pieces[slot];
+            if (Position.colorOf(piece) != mover) continue;
+            int to = squares[slot];
+            long froms;
+            switch (Position.typeOf(piece)) {
+                case Position.PAWN:
+                    froms = pawnOrigins(mover, to, empty);
+                    break;
+                case Position.KNIGHT:
+                    froms = Attacks.KNIGHT[to] & empty;
+                    break;
+                case Position.BISHOP:
+                    froms = Attacks.bishop(to, pos.occupied()) & empty;
+                    break;
+                case Position.ROOK:
+                    froms = Attacks.rook(to, pos.occupied()) & empty;
+                    break;
+                case Position.QUEEN:
+                    froms = Attacks.queen(to, pos.occupied()) & empty;
+                    break;
+                default:
+                    froms = Attacks.KING[to] & empty;
+                    break;
+            }
+            for (; froms != 0; froms &= froms - 1) {
+                int from = Long.numberOfTrailingZeros(froms);
+                pos.removePiece(to);
+                pos.putPiece(piece, from);
+                // Before the move, the side now to move must not have been left in check
+                boolean legal = !pos.isSquareAttacked(pos.kingSquare(stm), mover);
+                pos.removePiece(from);
+                pos.putPiece(piece, to);
+                if (!legal) continue;
+                System.arraycopy(squares, 0, work, 0, table.pieces.length);
+                work[slot] = from;
+                predecessors[n++] = table.index(mover, work);
+            }
+        }
+        return n;
+    }
+
+    private static long pawnOrigins(int color, int to, long empty) {
+        int rank = Position.rank(to);
+        int back = color == Position.WHITE ? -8 : 8;
+        int relativeRank = color == Position.WHITE ? rank : 7 - rank;
+        long origins = 0;
+        if (relativeRank >= 2 && (empty >>> (to + back) & 1) != 0) {
+            origins |= 1L << (to + back);
+            if (relativeRank == 3 && (empty >>> (to + 2 * back) & 1) != 0) origins |= 1L << (to + 2 * back);
+        }
+        return origins;
+    }
+
+    // Growable list of entry indices
+    private static final class IntList {
+        int[] items = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: java TablebaseGenerator dir [maxPieces]");
+            System.exit(2);
+        }
+        int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long start = System.nanoTime();
+        Tablebase tb = Tablebase.open(Paths.get(args[0]), maxPieces, 16);
+        System.out.printf("%d tables ready in %.1f s%n", tb.size(), (System.nanoTime() - start) / 1e9);
+    }
+}
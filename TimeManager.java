@@ -0,0 +1,94 @@
+import java.util.function.LongSupplier;
+
+/**
+ * Decides how long the engine spends on one move. A clock gives two budgets: the optimum
+ * time, a share of what is left plus most of the increment, and a hard maximum the search
+ * is never allowed to pass. Between the two, {@link #onIteration(SearchResult)} stretches
+ * the optimum while the best move keeps changing and shrinks it once the best move has held
+ * for several iterations, since more depth is unlikely to change it.
+ */
+public final class TimeManager {
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+    public static final long MOVE_OVERHEAD_MILLIS = 30; // kept back for the GUI and the operating system
+    private static final int STABLE_ITERATIONS = 4;
+
+    private final long optimum;
+    private final long maximum;
+    private final boolean adaptive; // false for a fixed time per move
+    private volatile long startNanos; // 0 until the clock starts, e.g. while pondering
+    private int bestMove = Move.NONE;
+    private int stableIterations;
+    private double changes; // recent best-move changes, halved every iteration
+    LongSupplier nanoTime = System::nanoTime; // tests substitute a clock they advance by hand
+
+    private TimeManager(long optimum, long maximum, boolean adaptive) {
+        this.optimum = optimum;
+        this.maximum = maximum;
+        this.adaptive = adaptive;
+    }
+
+    /** Exactly {@code millis} per move. */
+    public static TimeManager fixed(long millis) {
+        return new TimeManager(millis, millis, false);
+    }
+
+    /**
+     * Budgets for a move with {@code time} left and {@code increment} added per move;
+     * {@code movesToGo} is the moves until the next time control, 0 if unknown. Neither
+     * budget passes half the usable time, however large the increment or close the control.
+     */
+    public static TimeManager forClock(long time, long increment, int movesToGo) {
+        long usable = Math.max(1, time - MOVE_OVERHEAD_MILLIS);
+        long share = time / (movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO) + increment * 3 / 4;
+        long optimum = Math.max(1, Math.min(share, usable / 2));
+        long maximum = Math.max(optimum, Math.min(optimum * 3, usable / 2));
+        return new TimeManager(optimum, maximum, true);
+    }
+
+    public long optimumMillis() {
+        return optimum;
+    }
+
+    public long maximumMillis() {
+        return maximum;
+    }
+
+    /** Starts the clock for this move; iterations before this only count towards stability. */
+    public void start() {
+        start(0);
+    }
+
+    /** Starts the clock as if {@code creditMillis} had already been spent, e.g. pondering the right move. */
+    public void start(long creditMillis) {
+        startNanos = nanoTime.getAsLong() - creditMillis * 1_000_000;
+    }
+
+    public boolean started() {
+        return startNanos != 0;
+    }
+
+    public long elapsedMillis() {
+        long start = startNanos;
+        return start == 0 ? 0 : (nanoTime.getAsLong() - start) / 1_000_000;
+    }
+
+    /**
+     * Takes in a completed iteration and returns true if the search should stop now rather
+     * than start another one. Called on the search thread.
+     */
+    public boolean onIteration(SearchResult progress) {
+        boolean changed = bestMove != Move.NONE && progress.bestMove() != bestMove;
+        bestMove = progress.bestMove();
+        changes = changes / 2 + (changed ? 1 : 0);
+        stableIterations = changed ? 0 : stableIterations + 1;
+        if (!adaptive || !started()) return false;
+        double scale = 1 + changes; // up to about twice the optimum while the best move flips
+        if (stableIterations >= STABLE_ITERATIONS) scale *= 0.6;
+        return elapsedMillis() >= Math.min(maximum, (long) (optimum * scale));
+    }
+
+    @Override
+    public String toString() {
+        return "optimum " + optimum + " ms, maximum " + maximum + " ms";
+    }
+}
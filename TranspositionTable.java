@@ -0,0 +1,197 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table stored in a single {@code long[]}. Each bucket holds two
+ * entries of two longs (key, data): a depth-preferred slot that keeps the deepest result
+ * for the current search, and an always-replace slot that takes everything else.
+ *
+ * <p>The table is shared by all search threads without locks. The first long of an entry
+ * holds {@code key ^ data}, so an entry torn by two concurrent writers fails verification
+ * on probe and reads as a miss instead of returning another position's data.
+ *
+ * <p>Data layout: bits 0-15 move, 16-31 score, 32-39 depth, 40-41 bound, 42-49 generation.
+ */
+public final class TranspositionTable {
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_UPPER = 1; // score <= value (fail low)
+    public static final int BOUND_LOWER = 2; // score >= value (fail high)
+    public static final int BOUND_EXACT = 3;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    final long[] table; // package-private so tests can tear an entry
+    private final long bucketMask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /** Creates a table using at most {@code megabytes} MB, rounded down to a power-of-two bucket count. */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table size must be at least 1 MB: " + megabytes);
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+        if (buckets * LONGS_PER_BUCKET > Integer.MAX_VALUE - 8) {
+            buckets = Long.highestOneBit((Integer.MAX_VALUE - 8) / LONGS_PER_BUCKET);
+        }
+        table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        bucketMask = buckets - 1;
+    }
+
+    public long sizeBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /** Marks the start of a new search so entries from older searches are replaced first. */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+        generation = 0;
+        resetStats();
+    }
+
+    private int bucketIndex(long key) {
+        return (int) (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    /** Returns the data word stored for {@code key}, or 0 if the position is not in the table. */
+    public long probe(long key) {
+        probes.increment();
+        int index = bucketIndex(key);
+        long data = table[index + 1];
+        if (data != 0 && (table[index] ^ data) == key) {
+            hits.increment();
+            return data;
+        }
+        data = table[index + 3];
+        if (data != 0 && (table[index + 2] ^ data) == key) {
+            hits.increment();
+            return data;
+        }
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        stores.increment();
+        int gen = generation;
+        int index = bucketIndex(key);
+        long data = pack(move, score, depth, bound, gen);
+        long deepData = table[index + 1];
+        boolean sameKey = deepData != 0 && (table[index] ^ deepData) == key;
+        if (sameKey || deepData == 0 || depth >= depth(deepData) || generation(deepData) != gen) {
+            if (!sameKey && deepData != 0) {
+                collisions.increment();
+            }
+            if (sameKey && move == Move.NONE) {
+                data = pack(move(deepData), score, depth, bound, gen); // keep the known best move
+            }
+            table[index] = key ^ data;
+            table[index + 1] = data;
+        } else {
+            long otherData = table[index + 3];
+            if (otherData != 0 && (table[index + 2] ^ otherData) != key) {
+                collisions.increment();
+            }
+            table[index + 2] = key ^ data;
+            table[index + 3] = data;
+        }
+    }
+
+    static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+
+    /** Mate scores are stored relative to the node so they stay valid at any ply. */
+    public static int scoreToTable(int score, int ply) {
+        if (score >= Search.MATE_BOUND) return score + ply;
+        if (score <= -Search.MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    public static int scoreFromTable(int score, int ply) {
+        if (score >= Search.MATE_BOUND) return score - ply;
+        if (score <= -Search.MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    public long probes() {
+        return probes.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return probes() - hits();
+    }
+
+    /** Stores that evicted an entry belonging to a different position. */
+    public long collisions() {
+        return collisions.sum();
+    }
+
+    public long stores() {
+        return stores.sum();
+    }
+
+    public double hitRate() {
+        long probed = probes();
+        return probed == 0 ? 0.0 : (double) hits() / probed;
+    }
+
+    /** Per-mille of sampled entries written during the current search, as reported by UCI "hashfull". */
+    public int hashfull() {
+        int used = 0;
+        int sampled = Math.min(1000, table.length / 2);
+        for (int i = 0; i < sampled; i++) {
+            long data = table[i * 2 + 1];
+            if (data != 0 && generation(data) == generation) used++;
+        }
+        return sampled == 0 ? 0 : used * 1000 / sampled;
+    }
+
+    public void resetStats() {
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        collisions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TT[%d MB, probes=%d, hits=%d, misses=%d, collisions=%d, hitRate=%.1f%%]",
+                sizeBytes() >> 20, probes(), hits(), misses(), collisions(), hitRate() * 100);
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Universal Chess Interface front end on stdin/stdout: {@code java Uci}. Commands are read
+ * on the main thread while searches run on their own thread, so {@code stop},
+ * {@code ponderhit} and {@code isready} are handled immediately; a stop reaches the search
+ * within one node and {@code bestmove} follows within milliseconds.
+ *
+ * <p>Supported: {@code uci}, {@code isready}, {@code ucinewgame}, {@code setoption} (Hash,
+ * Threads, Ponder, EvalFile, BookFile, TablebaseDir, TablebasePieces), {@code position},
+ * {@code go} (wtime, btime, winc, binc, movestogo, movetime, depth, nodes, infinite, ponder),
+ * {@code stop}, {@code ponderhit} and {@code quit}.
+ */
+public final class Uci {
+    private static final String NAME = "Chessboard";
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final LazySmp smp = new LazySmp(1, Search.DEFAULT_HASH_MB);
+    private Engine engine = smp;
+    private String tablebaseDir = "";
+    private int tablebasePieces = 3;
+    private final Position position = Position.startPosition();
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(r -> daemon(r, "uci-search"));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "uci-timer"));
+    private Future<?> running;
+    private volatile Go current;
+
+    // One go command: whether bestmove must wait for stop or ponderhit, and its time budget (null without a clock)
+    private static final class Go {
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean hold;
+        volatile boolean stopped;
+        final TimeManager time;
+        volatile ScheduledFuture<?> deadline;
+
+        Go(boolean hold, TimeManager time) {
+            this.hold = hold;
+            this.time = time;
+        }
+    }
+
+    public Uci(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    /** Reads and executes commands until {@code quit} or end of input. */
+    public void run() throws IOException {
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].isEmpty()) continue;
+            try {
+                if (!execute(tokens, line.trim())) break;
+            } catch (IllegalArgumentException | IOException e) {
+                send("info string " + e.getMessage());
+            }
+        }
+        stopSearch();
+        smp.shutdown();
+    }
+
+    // Returns false on quit
+    private boolean execute(String[] tokens, String line) throws IOException {
+        switch (tokens[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author Hruthikvardhan");
+                send("option name Hash type spin default " + Search.DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("option name EvalFile type string default <empty>");
+                send("option name BookFile type string default <empty>");
+                send("option name TablebaseDir type string default <empty>");
+                send("option name TablebasePieces type spin default 3 min 3 max " + Tablebase.MAX_PIECES);
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "ucinewgame":
+                stopSearch();
+                smp.transpositionTable().clear();
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(line);
+                break;
+            case "position":
+                setPosition(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stop();
+                break;
+            case "ponderhit":
+                ponderHit();
+                break;
+            case "quit":
+                return false;
+            default:
+                send("info string Unknown command: " + tokens[0]);
+        }
+        return true;
+    }
+
+    private void setOption(String line) throws IOException {
+        // setoption name <id> [value <x>]; names and values may contain spaces
+        int nameAt = line.indexOf(" name ");
+        if (nameAt < 0) throw new IllegalArgumentException("Missing option name: " + line);
+        int valueAt = line.indexOf(" value ", nameAt);
+        String name = (valueAt < 0 ? line.substring(nameAt + 6) : line.substring(nameAt + 6, valueAt)).trim();
+        String value = valueAt < 0 ? "" : line.substring(valueAt + 7).trim();
+        if (value.equals("<empty>")) value = "";
+        switch (name.toLowerCase()) {
+            case "hash":
+                smp.setHashMegabytes(clamp(value, 1, MAX_HASH_MB));
+                break;
+            case "threads":
+                smp.setThreads(clamp(value, 1, MAX_THREADS));
+                break;
+            case "ponder":
+                break; // pondering is driven by "go ponder"; nothing to set up
+            case "evalfile":
+                smp.setNetwork(value.isEmpty() ? null : Nnue.load(Paths.get(value)));
+                break;
+            case "bookfile":
+                engine = value.isEmpty() ? smp : new BookEngine(OpeningBook.open(Paths.get(value)), smp);
+                break;
+            case "tablebasedir":
+                tablebaseDir = value;
+                openTablebase();
+                break;
+            case "tablebasepieces":
+                tablebasePieces = clamp(value, 3, Tablebase.MAX_PIECES);
+                openTablebase();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + name);
+        }
+    }
+
+    private void openTablebase() throws IOException {
+        smp.setTablebase(tablebaseDir.isEmpty() ? null : Tablebase.open(Paths.get(tablebaseDir), tablebasePieces, 16));
+    }
+
+    private static int clamp(String value, int min, int max) {
+        try {
+            return Math.max(min, Math.min(max, Integer.parseInt(value)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    // position [startpos | fen <fen>] [moves <m1> ...]
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        String fen;
+        if (i < tokens.length && tokens[i].equals("startpos")) {
+            fen = Fen.START;
+            i++;
+        } else if (i < tokens.length && tokens[i].equals("fen")) {
+            StringBuilder sb = new StringBuilder();
+            for (i++; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(tokens[i]);
+            }
+            fen = sb.toString();
+        } else {
+            throw new IllegalArgumentException("Expected startpos or fen");
+        }
+        Fen.load(fen, position);
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                int move = Move.parseUci(position, tokens[i], scratch);
+                if (move == Move.NONE) throw new IllegalArgumentException("Illegal move: " + tokens[i]);
+                position.makeMove(move);
+            }
+        }
+    }
+
+    private void go(String[] tokens) {
+        long wtime = 0, btime = 0, winc = 0, binc = 0, moveTime = 0, nodes = 0;
+        int movesToGo = 0, depth = 0;
+        boolean infinite = false, ponder = false;
+        for (int i = 1; i < tokens.length; i++) {
+            String key = tokens[i];
+            switch (key) {
+                case "infinite": infinite = true; break;
+                case "ponder": ponder = true; break;
+                case "wtime": wtime = number(tokens, ++i); break;
+                case "btime": btime = number(tokens, ++i); break;
+                case "winc": winc = number(tokens, ++i); break;
+                case "binc": binc = number(tokens, ++i); break;
+                case "movestogo": movesToGo = (int) number(tokens, ++i); break;
+                case "movetime": moveTime = number(tokens, ++i); break;
+                case "depth": depth = (int) number(tokens, ++i); break;
+                case "nodes": nodes = number(tokens, ++i); break;
+                default: break; // searchmoves and mate are not supported
+            }
+        }
+        boolean white = position.sideToMove() == Position.WHITE;
+        long clock = white ? wtime : btime;
+        TimeManager time = infinite ? null
+                : moveTime > 0 ? TimeManager.fixed(Math.max(1, moveTime - TimeManager.MOVE_OVERHEAD_MILLIS))
+                : clock > 0 ? TimeManager.forClock(clock, white ? winc : binc, movesToGo) : null;
+        SearchLimits limits = SearchLimits.infinite().withDepth(depth).withNodes(nodes);
+        if (!ponder && time != null) {
+            limits = limits.withMoveTime(time.maximumMillis());
+            time.start();
+        }
+        Go go = new Go(infinite || ponder, time);
+        current = go;
+        Position snapshot = position.copy();
+        SearchLimits searchLimits = limits;
+        running = searchThread.submit(() -> search(go, snapshot, searchLimits));
+    }
+
+    private static long number(String[] tokens, int i) {
+        if (i >= tokens.length) throw new IllegalArgumentException("Missing value for " + tokens[i - 1]);
+        try {
+            return Long.parseLong(tokens[i]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + tokens[i]);
+        }
+    }
+
+    private void search(Go go, Position pos, SearchLimits limits) {
+        SearchResult result = engine.search(pos, limits, progress -> {
+            if (go.stopped) {
+                engine.stop(); // a stop that arrived before the search started would have been reset
+                return;
+            }
+            sendInfo(progress);
+            // Stop between iterations once the best move looks settled; the move time is only the hard limit
+            TimeManager time = go.time;
+            if (time != null && time.onIteration(progress) && !go.hold) engine.stop();
+        });
+        // In infinite and ponder mode the GUI expects bestmove only after stop or ponderhit
+        if (go.hold) {
+            try {
+                go.release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ScheduledFuture<?> deadline = go.deadline;
+        if (deadline != null) deadline.cancel(false);
+        int[] pv = result.pv();
+        send("bestmove " + Move.toUci(result.bestMove()) + (pv.length > 1 ? " ponder " + Move.toUci(pv[1]) : ""));
+    }
+
+    // The opponent played the expected move: keep searching, now against the clock
+    private void ponderHit() {
+        Go go = current;
+        if (go == null || !go.hold) return;
+        go.hold = false;
+        if (go.time != null) {
+            go.time.start();
+            go.deadline = timer.schedule(() -> {
+                if (current == go) engine.stop();
+            }, go.time.maximumMillis(), TimeUnit.MILLISECONDS);
+        }
+        go.release.countDown();
+    }
+
+    private void sendInfo(SearchResult progress) {
+        int score = progress.score();
+        String scoreText;
+        if (score >= Search.MATE_BOUND) {
+            scoreText = "mate " + (Search.MATE - score + 1) / 2;
+        } else if (score <= -Search.MATE_BOUND) {
+            scoreText = "mate -" + (Search.MATE + score) / 2;
+        } else {
+            scoreText = "cp " + score;
+        }
+        send(String.format("info depth %d score %s nodes %d nps %d time %d hashfull %d pv %s",
+                progress.depth(), scoreText, progress.nodes(), progress.nodesPerSecond(),
+                progress.elapsedNanos() / 1_000_000, smp.transpositionTable().hashfull(), progress.pvString()));
+    }
+
+    private void stop() {
+        Go go = current;
+        if (go != null) {
+            go.stopped = true;
+            go.hold = false;
+            go.release.countDown();
+        }
+        engine.stop();
+    }
+
+    // Stops any running search and waits for its bestmove to go out
+    private void stopSearch() {
+        stop();
+        if (running != null) {
+            try {
+                running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                send("info string Search failed: " + e.getCause());
+            }
+            running = null;
+        }
+        current = null;
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        EngineMetrics.global().registerMBean(); // stdout belongs to the protocol, so metrics go to JMX only
+        new Uci(in, out).run();
+    }
+}
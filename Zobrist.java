@@ -0,0 +1,59 @@
+/**
+ * Zobrist hashing keys. A position's key is the XOR of one key per (piece, square), the
+ * castling-rights key, the en-passant file key when a capture is possible, and the side key
+ * when black is to move. The keys come from a fixed-seed generator, so they are stable
+ * across runs and can be stored on disk.
+ */
+public final class Zobrist {
+    public static final long[][] PIECE_SQUARE = new long[12][64];
+    public static final long[] CASTLING = new long[16];
+    public static final long[] EP_FILE = new long[8];
+    public static final long SIDE;
+
+    static {
+        long[] state = {0x2C6FE96EE78B6955L};
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECE_SQUARE[piece][sq] = next(state);
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            CASTLING[i] = next(state);
+        }
+        CASTLING[0] = 0L; // no rights contributes nothing
+        for (int i = 0; i < 8; i++) {
+            EP_FILE[i] = next(state);
+        }
+        SIDE = next(state);
+    }
+
+    private Zobrist() {
+    }
+
+    // SplitMix64
+    private static long next(long[] state) {
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Computes the key of {@code pos} from scratch; make/unmake maintain it incrementally. */
+    public static long compute(Position pos) {
+        long key = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = pos.pieceAt(sq);
+            if (piece != Position.NO_PIECE) {
+                key ^= PIECE_SQUARE[piece][sq];
+            }
+        }
+        key ^= CASTLING[pos.castlingRights()];
+        if (pos.epSquare() != Position.NO_SQUARE) {
+            key ^= EP_FILE[Position.file(pos.epSquare())];
+        }
+        if (pos.sideToMove() == Position.BLACK) {
+            key ^= SIDE;
+        }
+        return key;
+    }
+}
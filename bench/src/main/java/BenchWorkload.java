@@ -0,0 +1,156 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.image.BufferedImage;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+
+/**
+ * {@link chess.bench.Workload} over the chess classes, which live in the unnamed package.
+ * The redraw is the GUI's: a grid of 64 buttons updated through {@link BoardRedraw}, which
+ * sets the text only on squares whose glyph changed.
+ */
+public final class BenchWorkload implements chess.bench.Workload {
+    private static final int SEARCH_HASH_MB = 16;
+
+    private final int[] moves = new int[Search.MAX_PLY * MoveGen.MAX_MOVES];
+    private final Perft perft = new Perft();
+    private final TranspositionTable table = new TranspositionTable(SEARCH_HASH_MB);
+    private final Search search = new Search(table);
+    private final Position scratch = new Position();
+    private Position position;
+    private String[][] glyphs;
+    private boolean whiteToMove;
+
+    private JPanel panel;
+    private JButton[][] squares;
+    private BoardRedraw view;
+    private int redrawMove;
+    private boolean moved;
+    private BufferedImage image;
+
+    @Override
+    public void load(String fen) {
+        position = Fen.parse(fen);
+        glyphs = new String[8][8];
+        BoardAdapter.store(position, glyphs);
+        whiteToMove = position.sideToMove() == Position.WHITE;
+    }
+
+    @Override
+    public int validateClicks() {
+        int legal = 0;
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (MoveGen.findLegal(position, from, to, Position.QUEEN, moves) != Move.NONE) legal++;
+            }
+        }
+        return legal;
+    }
+
+    @Override
+    public int reachable() {
+        int count = 0;
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (position.canReach(from, to)) count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int generatePseudoLegal() {
+        return MoveGen.generate(position, moves, 0);
+    }
+
+    @Override
+    public int generateLegal() {
+        return MoveGen.generateLegal(position, moves, 0);
+    }
+
+    @Override
+    public int generateCaptures() {
+        return MoveGen.generateCaptures(position, moves, 0);
+    }
+
+    @Override
+    public long perft(int depth) {
+        return perft.perft(position, depth);
+    }
+
+    @Override
+    public int evaluate() {
+        return Search.evaluate(position);
+    }
+
+    @Override
+    public int search(int depth) {
+        table.clear();
+        return search.search(position, SearchLimits.depth(depth)).bestMove();
+    }
+
+    @Override
+    public Object copy() {
+        return position.copy();
+    }
+
+    @Override
+    public long copyInto() {
+        scratch.copyFrom(position);
+        return scratch.key();
+    }
+
+    @Override
+    public Object fromGlyphs() {
+        return BoardAdapter.toPosition(glyphs, whiteToMove);
+    }
+
+    @Override
+    public void createView() {
+        panel = new JPanel(new GridLayout(8, 8));
+        squares = new JButton[8][8];
+        view = new BoardRedraw((row, col, glyph) -> squares[row][col].setText(glyph));
+        Font font = new Font("Serif", Font.PLAIN, 36);
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                JButton button = new JButton("");
+                button.setFont(font);
+                button.setOpaque(true);
+                button.setBackground((row + col) % 2 == 0 ? Color.WHITE : Color.GRAY);
+                squares[row][col] = button;
+                panel.add(button);
+            }
+        }
+        panel.setSize(640, 640);
+        panel.doLayout();
+        image = new BufferedImage(640, 640, BufferedImage.TYPE_INT_RGB);
+        MoveGen.generateLegal(position, moves, 0);
+        redrawMove = moves[0];
+        view.draw(glyphs);
+    }
+
+    @Override
+    public int redraw() {
+        if (moved) {
+            position.unmakeMove(redrawMove);
+        } else {
+            position.makeMove(redrawMove);
+        }
+        moved = !moved;
+        BoardAdapter.store(position, glyphs);
+        return view.draw(glyphs);
+    }
+
+    @Override
+    public int paint() {
+        Graphics2D g = image.createGraphics();
+        try {
+            panel.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return image.getRGB(320, 320);
+    }
+}
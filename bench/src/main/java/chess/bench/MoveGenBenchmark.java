@@ -0,0 +1,54 @@
+package chess.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Move generation for a single position, and perft to a fixed depth. */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoveGenBenchmark {
+    @Param({"start", "kiwipete", "endgame", "middlegame"})
+    public String position;
+
+    @Param({"3"})
+    public int perftDepth;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create();
+        workload.load(Positions.fen(position));
+    }
+
+    @Benchmark
+    public int pseudoLegal() {
+        return workload.generatePseudoLegal();
+    }
+
+    @Benchmark
+    public int legal() {
+        return workload.generateLegal();
+    }
+
+    @Benchmark
+    public int captures() {
+        return workload.generateCaptures();
+    }
+
+    @Benchmark
+    public long perft() {
+        return workload.perft(perftDepth);
+    }
+}
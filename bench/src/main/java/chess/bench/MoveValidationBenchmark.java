@@ -0,0 +1,41 @@
+package chess.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Click validation over all 4096 from/to pairs, the work behind the GUI's move checks. */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoveValidationBenchmark {
+    @Param({"start", "kiwipete", "endgame", "middlegame"})
+    public String position;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create();
+        workload.load(Positions.fen(position));
+    }
+
+    @Benchmark
+    public int findLegal() {
+        return workload.validateClicks();
+    }
+
+    @Benchmark
+    public int canReach() {
+        return workload.reachable();
+    }
+}
@@ -0,0 +1,49 @@
+package chess.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of copying game state: a fresh position, a copy into a reused one, and a rebuild from
+ * the GUI's glyph grid (what restoring an old board snapshot amounted to).
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PositionCopyBenchmark {
+    @Param({"start", "middlegame"})
+    public String position;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create();
+        workload.load(Positions.fen(position));
+    }
+
+    @Benchmark
+    public Object copy() {
+        return workload.copy();
+    }
+
+    @Benchmark
+    public long copyInto() {
+        return workload.copyInto();
+    }
+
+    @Benchmark
+    public Object fromGlyphs() {
+        return workload.fromGlyphs();
+    }
+}
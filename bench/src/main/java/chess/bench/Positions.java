@@ -0,0 +1,22 @@
+package chess.bench;
+
+/** Named benchmark positions: the opening, Kiwipete, a rook endgame and a busy middlegame. */
+final class Positions {
+    private Positions() {
+    }
+
+    static String fen(String name) {
+        switch (name) {
+            case "start":
+                return "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+            case "kiwipete":
+                return "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            case "endgame":
+                return "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+            case "middlegame":
+                return "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+            default:
+                throw new IllegalArgumentException("Unknown position " + name);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package chess.bench;
+
+/**
+ * The operations the benchmarks measure. JMH rejects benchmark classes in the unnamed
+ * package, and named packages cannot refer to it, so the benchmarks reach the chess classes
+ * through this interface. Its only implementation is {@code BenchWorkload}; with a single
+ * receiver type the JIT inlines these calls, so they add nothing to the measurements.
+ */
+public interface Workload {
+    /** Sets up the position every other call works on. */
+    void load(String fen);
+
+    /** Tries every from/to square pair the way a board click is validated; returns the legal count. */
+    int validateClicks();
+
+    /** Checks the movement rule for every from/to square pair; returns the reachable count. */
+    int reachable();
+
+    int generatePseudoLegal();
+
+    int generateLegal();
+
+    int generateCaptures();
+
+    long perft(int depth);
+
+    int evaluate();
+
+    /** Searches to {@code depth} from an empty transposition table; returns the best move. */
+    int search(int depth);
+
+    /** A fresh copy of the position. */
+    Object copy();
+
+    /** Copies the position into a reused instance; returns its hash key. */
+    long copyInto();
+
+    /** Rebuilds the position from the GUI's glyph grid, as a board snapshot restore did. */
+    Object fromGlyphs();
+
+    /** Builds the Swing board headlessly; call after {@link #load}. */
+    void createView();
+
+    /** Plays or takes back the position's first legal move and redraws the changed squares; returns how many changed. */
+    int redraw();
+
+    /** Paints the whole board into an offscreen image; returns one pixel so the work is not eliminated. */
+    int paint();
+
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("BenchWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchWorkload is not on the class path", e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Clock arithmetic on a hand-advanced time source: increment against delay, takebacks,
+ * flag fall, and the time control and display formats.
+ */
+class ChessClockTest {
+    private static final int WHITE = Position.WHITE;
+    private static final int BLACK = Position.BLACK;
+
+    private long now = 1_000_000_000L;
+
+    private ChessClock clock(long initialMillis, long bonusMillis, ChessClock.Mode mode) {
+        ChessClock clock = new ChessClock(initialMillis, bonusMillis, mode);
+        clock.nanoTime = () -> now;
+        return clock;
+    }
+
+    private void advance(long millis) {
+        now += millis * 1_000_000;
+    }
+
+    @Test
+    void incrementIsAddedAfterEachMove() {
+        ChessClock clock = clock(60_000, 2_000, ChessClock.Mode.INCREMENT);
+        clock.press(WHITE); // white's first move: nothing charged, black to think
+        assertEquals(BLACK, clock.runningSide());
+        advance(5_000);
+        assertEquals(55_000, clock.remaining(BLACK));
+        clock.press(BLACK);
+        assertEquals(57_000, clock.remaining(BLACK));
+        advance(500);
+        clock.press(WHITE);
+        assertEquals(61_500, clock.remaining(WHITE)); // a quick move gains time
+    }
+
+    @Test
+    void delayIsFreeButNeverGainsTime() {
+        ChessClock clock = clock(60_000, 2_000, ChessClock.Mode.DELAY);
+        clock.press(WHITE);
+        advance(5_000);
+        assertEquals(57_000, clock.remaining(BLACK)); // the first two seconds are free
+        clock.press(BLACK);
+        assertEquals(57_000, clock.remaining(BLACK));
+        advance(1_500);
+        clock.press(WHITE);
+        assertEquals(60_000, clock.remaining(WHITE));
+    }
+
+    @Test
+    void switchToAfterTakebackGivesNoBonus() {
+        ChessClock clock = clock(60_000, 2_000, ChessClock.Mode.INCREMENT);
+        clock.press(WHITE);
+        advance(4_000);
+        clock.press(BLACK); // black 58 s, white to think
+        advance(3_000);
+        clock.switchTo(BLACK); // white takes back black's move: white is charged, black thinks again
+        assertEquals(57_000, clock.remaining(WHITE));
+        assertEquals(BLACK, clock.runningSide());
+        advance(1_000);
+        assertEquals(57_000, clock.remaining(BLACK));
+        clock.stop();
+        assertFalse(clock.isRunning());
+        advance(10_000);
+        assertEquals(57_000, clock.remaining(BLACK));
+    }
+
+    @Test
+    void flagFalls() {
+        ChessClock clock = clock(1_000, 5_000, ChessClock.Mode.INCREMENT);
+        clock.press(WHITE);
+        advance(999);
+        assertEquals(-1, clock.flagged());
+        assertEquals(1, clock.remaining(BLACK));
+        advance(2);
+        assertEquals(0, clock.remaining(BLACK));
+        assertEquals(BLACK, clock.flagged());
+        assertFalse(clock.isRunning());
+        clock.press(BLACK); // too late: no increment, and the flag stays down
+        assertEquals(0, clock.remaining(BLACK));
+        assertEquals(BLACK, clock.flagged());
+        assertEquals(1_000, clock.remaining(WHITE));
+        clock.reset();
+        assertEquals(-1, clock.flagged());
+        assertEquals(1_000, clock.remaining(BLACK));
+    }
+
+    @Test
+    void flagFallsWhenPressedLate() {
+        ChessClock clock = clock(1_000, 5_000, ChessClock.Mode.DELAY);
+        clock.press(WHITE);
+        advance(6_500); // five seconds of delay, then a second and a half
+        clock.press(BLACK);
+        assertEquals(BLACK, clock.flagged());
+        assertEquals(-1, clock.runningSide());
+    }
+
+    @Test
+    void parseAndFormat() {
+        ChessClock blitz = ChessClock.parse(" 5+3 ", ChessClock.Mode.INCREMENT);
+        assertEquals(300_000, blitz.initialMillis());
+        assertEquals(3_000, blitz.bonusMillis());
+        assertEquals("5+3", blitz.toString());
+        assertEquals(30_000, ChessClock.parse("0.5", ChessClock.Mode.DELAY).initialMillis());
+        assertEquals("90+30 delay", ChessClock.parse("90+30", ChessClock.Mode.DELAY).toString());
+        for (String bad : new String[] {"", "x", "+3", "5+3+1", "0", "-1"}) {
+            assertThrows(IllegalArgumentException.class, () -> ChessClock.parse(bad, ChessClock.Mode.INCREMENT), bad);
+        }
+
+        String[][] formats = {
+            {"0", "0.0"}, {"9950", "9.9"}, {"9999", "9.9"}, {"10000", "0:10"}, {"59001", "1:00"},
+            {"65000", "1:05"}, {"3599999", "1:00:00"}, {"5025000", "1:23:45"},
+        };
+        for (String[] test : formats) {
+            assertEquals(test[1], ChessClock.format(Long.parseLong(test[0])), test[0]);
+        }
+    }
+}
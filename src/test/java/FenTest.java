@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FEN round trips, the normalisation applied on load (en-passant squares nobody can capture
+ * on and castling rights without their king or rook), and malformed input.
+ */
+class FenTest {
+    // Loaded and written back unchanged
+    private static final String[] ROUND_TRIP = {
+        "8/8/8/8/8/8/8/K6k b - - 37 112",
+        "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+        "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3",
+        "r3k2r/8/8/8/8/8/8/R3K2R w Qk - 5 40",
+    };
+
+    // Input and the FEN written after loading it
+    private static final String[][] NORMALISED = {
+        {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"},
+        {"4k3/8/8/8/8/8/8/4K2R w KQkq - 0 1", "4k3/8/8/8/8/8/8/4K2R w K - 0 1"},
+        {"r3k2r/8/8/8/8/8/8/R4K1R w KQkq - 0 1", "r3k2r/8/8/8/8/8/8/R4K1R w kq - 0 1"},
+        {"  4k3/8/8/8/8/8/8/4K3   w  -  -  ", "4k3/8/8/8/8/8/8/4K3 w - - 0 1"},
+        {"4k3/8/8/8/8/8/8/4K3 b - - 3 0", "4k3/8/8/8/8/8/8/4K3 b - - 3 1"},
+    };
+
+    private static final String[] MALFORMED = {
+        "",
+        "4k3/8/8/8/8/8/8/4K3 w -",
+        "4k3/8/8/8/8/8/4K3 w - - 0 1",
+        "4k3/8/8/8/8/8/8/4K4 w - - 0 1",
+        "4k3/8/8/8/8/8/8/4X3 w - - 0 1",
+        "8/8/8/8/8/8/8/4K3 w - - 0 1",
+        "4k3/8/8/8/8/8/8/4K3 x - - 0 1",
+        "4k3/8/8/8/8/8/8/4K3 w KX - 0 1",
+        "4k3/8/8/8/8/8/8/4K3 w - e9 0 1",
+        "4k3/8/8/8/8/8/8/4K3 w - - x 1",
+    };
+
+    @Test
+    void roundTrip() {
+        for (String fen : ROUND_TRIP) {
+            assertEquals(fen, Fen.toFen(Fen.parse(fen)));
+        }
+        for (String fen : PerftTest.POSITIONS) {
+            assertEquals(fen, Fen.toFen(Fen.parse(fen)));
+        }
+    }
+
+    @Test
+    void normalisedOnLoad() {
+        for (String[] test : NORMALISED) {
+            assertEquals(test[1], Fen.toFen(Fen.parse(test[0])), test[0]);
+        }
+    }
+
+    @Test
+    void malformedIsRejected() {
+        for (String fen : MALFORMED) {
+            assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+
+    @Test
+    void epdOperationsAreDropped() {
+        assertEquals("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1",
+                Fen.fromEpd("4k3/8/8/8/8/8/8/R3K3 w Q - bm Ra8+; id \"mate\";"));
+        assertEquals("4k3/8/8/8/8/8/8/R3K3 w Q - 4 9", Fen.fromEpd("4k3/8/8/8/8/8/8/R3K3 w Q - 4 9"));
+    }
+}
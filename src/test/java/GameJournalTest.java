@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Crash recovery of a single journal: torn final records, and undos that cross a
+ * checkpoint followed by more moves.
+ */
+class GameJournalTest {
+    @TempDir
+    Path dir;
+
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+    private final int[] reply = new int[MoveGen.MAX_MOVES];
+    private final int[] played = new int[1024];
+    private int playedCount;
+
+    // A random legal move that leaves the opponent a move, so games run as long as needed
+    private int randomMove(Position pos, Random random) {
+        int count = MoveGen.generateLegal(pos, scratch, 0);
+        int offset = random.nextInt(count);
+        for (int i = 0; i < count; i++) {
+            int move = scratch[(offset + i) % count];
+            pos.makeMove(move);
+            boolean goesOn = MoveGen.hasLegalMove(pos, reply);
+            pos.unmakeMove(move);
+            if (goesOn) return move;
+        }
+        throw new IllegalStateException("Every move ends the game: " + Fen.toFen(pos));
+    }
+
+    // Plays a random legal move, the same ones for the same seed
+    private int playRandom(Position pos, Random random) {
+        int move = randomMove(pos, random);
+        pos.makeMove(move);
+        played[playedCount++] = move;
+        return move;
+    }
+
+    private void takeBack(Position pos) {
+        pos.unmakeMove(played[--playedCount]);
+    }
+
+    private GameJournal create(Path file) throws IOException {
+        return GameJournal.create(file, Fen.START, "test", 8, 1000);
+    }
+
+    // Appends plies random moves to both the journal and pos
+    private void play(GameJournal journal, Position pos, Random random, int plies) throws IOException {
+        for (int i = 0; i < plies; i++) {
+            int move = playRandom(pos, random);
+            journal.append(move, pos);
+        }
+    }
+
+    private static void truncate(Path file, long bytesLess) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytesLess);
+        }
+    }
+
+    @Test
+    void tornMoveIsDroppedAndOverwritten() throws IOException {
+        Path file = dir.resolve("g.cgj");
+        Position pos = Position.startPosition();
+        Random random = new Random(1);
+        try (GameJournal journal = create(file)) {
+            play(journal, pos, random, 10);
+        }
+        truncate(file, 1); // half of the tenth move
+        takeBack(pos);
+
+        GameJournal.Recovered torn = GameJournal.read(file);
+        assertEquals(9, torn.plies());
+        assertEquals(Fen.toFen(pos), Fen.toFen(torn.position()));
+        assertEquals(Files.size(file) - 1, torn.validLength);
+
+        try (GameJournal journal = GameJournal.open(file, 8, 1000)) {
+            assertEquals(9, journal.plies());
+            assertEquals(torn.validLength, Files.size(file)); // the torn byte is cut off
+            play(journal, pos, random, 5);
+        }
+        GameJournal.Recovered read = GameJournal.read(file);
+        assertEquals(14, read.plies());
+        assertEquals(Fen.toFen(pos), Fen.toFen(read.position()));
+    }
+
+    @Test
+    void tornCheckpointIsDropped() throws IOException {
+        Path file = dir.resolve("g.cgj");
+        Position pos = Position.startPosition();
+        Random random = new Random(2);
+        try (GameJournal journal = create(file)) {
+            play(journal, pos, random, GameJournal.CHECKPOINT_INTERVAL);
+            assertEquals(GameJournal.CHECKPOINT_INTERVAL, journal.lastCheckpoint());
+        }
+        GameJournal.Recovered whole = GameJournal.read(file);
+        assertEquals(GameJournal.CHECKPOINT_INTERVAL, whole.checkpointPly);
+        assertEquals(Fen.toFen(pos), whole.checkpointFen);
+
+        truncate(file, 5); // inside the checkpoint FEN; the move before it is intact
+        GameJournal.Recovered torn = GameJournal.read(file);
+        assertEquals(GameJournal.CHECKPOINT_INTERVAL, torn.plies());
+        assertEquals(0, torn.checkpointPly);
+        assertEquals(Fen.toFen(pos), Fen.toFen(torn.position()));
+
+        try (GameJournal journal = GameJournal.open(file, 8, 1000)) {
+            assertEquals(0, journal.lastCheckpoint());
+            play(journal, pos, random, 1); // due again, so a new checkpoint follows at once
+            assertEquals(GameJournal.CHECKPOINT_INTERVAL + 1, journal.lastCheckpoint());
+        }
+        GameJournal.Recovered read = GameJournal.read(file);
+        assertEquals(GameJournal.CHECKPOINT_INTERVAL + 1, read.checkpointPly);
+        assertEquals(Fen.toFen(pos), Fen.toFen(read.position()));
+    }
+
+    @Test
+    void undoAcrossCheckpointThenMoreMoves() throws IOException {
+        Path file = dir.resolve("g.cgj");
+        Position pos = Position.startPosition();
+        Random random = new Random(3);
+        int interval = GameJournal.CHECKPOINT_INTERVAL;
+        try (GameJournal journal = create(file)) {
+            play(journal, pos, random, interval + 1);
+            assertEquals(interval, journal.lastCheckpoint());
+            for (int i = 0; i < 3; i++) {
+                journal.undo();
+                takeBack(pos);
+            }
+            assertEquals(interval - 2, journal.plies());
+            assertEquals(interval - 2, journal.lastCheckpoint()); // clamped to the current ply
+
+            play(journal, pos, random, 5);
+            assertEquals(interval + 3, journal.plies());
+            assertEquals(interval - 2, journal.lastCheckpoint()); // next one is due at interval - 2 + interval
+        }
+        GameJournal.Recovered read = GameJournal.read(file);
+        assertEquals(interval + 3, read.plies());
+        assertEquals(0, read.checkpointPly); // the checkpoint at 64 was taken back with its moves
+        assertEquals(Fen.toFen(pos), Fen.toFen(read.position()));
+
+        // Reopened from disk the count starts at the start position, so the next move checkpoints
+        try (GameJournal journal = GameJournal.open(file, 8, 1000)) {
+            assertEquals(0, journal.lastCheckpoint());
+            play(journal, pos, random, 1);
+            assertEquals(interval + 4, journal.lastCheckpoint());
+        }
+        read = GameJournal.read(file);
+        assertEquals(interval + 4, read.plies());
+        assertEquals(interval + 4, read.checkpointPly);
+        assertEquals(Fen.toFen(pos), read.checkpointFen);
+        assertEquals(Fen.toFen(pos), Fen.toFen(read.position()));
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Game-ending rules: mate and stalemate, and the draws by repetition, the fifty-move rule
+ * and insufficient material, including repetitions found after {@link HashHistory} wraps.
+ */
+class GameStatusTest {
+    private static final String[] KNIGHT_SHUFFLE = {"Nf3", "Nf6", "Ng1", "Ng8"};
+
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+
+    private GameStatus status(Position pos) {
+        return GameStatus.of(pos, scratch);
+    }
+
+    @Test
+    void threefoldKnightShuffle() {
+        Position twice = Chess.play(Chess.startPosition(), KNIGHT_SHUFFLE);
+        assertEquals(1, twice.repetitions());
+        assertTrue(twice.isRepetition());
+        assertEquals(GameStatus.ONGOING, status(twice));
+
+        Position thrice = Chess.play(twice, KNIGHT_SHUFFLE);
+        assertEquals(2, thrice.repetitions());
+        assertEquals(GameStatus.THREEFOLD_REPETITION, status(thrice));
+        assertEquals(GameRecord.DRAW, status(thrice).result(thrice));
+    }
+
+    @Test
+    void fiftyMoveRuleAtHalfmoveHundred() {
+        Position pos = Chess.position("8/8/8/4k3/8/8/8/R3K3 w - - 99 80");
+        assertEquals(GameStatus.ONGOING, status(pos));
+        Position after = Chess.play(pos, "Ra2");
+        assertEquals(100, after.halfmoveClock());
+        assertEquals(GameStatus.FIFTY_MOVE_RULE, status(after));
+        assertEquals(GameRecord.DRAW, status(after).result(after));
+    }
+
+    @Test
+    void mateOnTheHundredthHalfmoveIsMate() {
+        Position pos = Chess.play(Chess.position("k7/8/1K6/8/8/8/8/7R w - - 99 80"), "Rh8");
+        assertEquals(100, pos.halfmoveClock());
+        assertEquals(GameStatus.CHECKMATE, status(pos));
+        assertEquals(GameRecord.WHITE_WINS, status(pos).result(pos));
+    }
+
+    @Test
+    void bishopsOnSameColorCannotMate() {
+        // c1 and f4 are both dark squares
+        Position pos = Chess.position("8/8/4k3/8/5b2/8/4K3/2B5 w - - 0 1");
+        assertTrue(pos.hasInsufficientMaterial());
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, status(pos));
+    }
+
+    @Test
+    void bishopsOnOppositeColorsPlayOn() {
+        // c1 is dark, f5 light: a mate is possible, if only with help
+        Position pos = Chess.position("8/8/4k3/5b2/8/8/4K3/2B5 w - - 0 1");
+        assertFalse(pos.hasInsufficientMaterial());
+        assertEquals(GameStatus.ONGOING, status(pos));
+    }
+
+    @Test
+    void checkmate() {
+        Position pos = Chess.play(Chess.startPosition(), "f3", "e5", "g4", "Qh4");
+        assertEquals(GameStatus.CHECKMATE, status(pos));
+        assertEquals(GameRecord.BLACK_WINS, status(pos).result(pos));
+    }
+
+    @Test
+    void stalemate() {
+        Position pos = Chess.position("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(GameStatus.STALEMATE, status(pos));
+        assertEquals(GameRecord.DRAW, status(pos).result(pos));
+    }
+
+    @Test
+    void repetitionFoundAfterHistoryWraps() {
+        Position pos = Chess.startPosition();
+        for (int i = 0; i < 75; i++) {
+            pos = Chess.play(pos, KNIGHT_SHUFFLE); // 300 plies without a pawn move or capture
+        }
+        assertEquals(HashHistory.CAPACITY, pos.history.size());
+        assertEquals(300, pos.halfmoveClock());
+        assertTrue(pos.isRepetition());
+        // Every fourth ply back is the start position, as far back as the ring reaches
+        assertEquals(HashHistory.CAPACITY / 4, pos.repetitions());
+
+        Position moved = Chess.play(pos, "Nc3");
+        assertFalse(moved.isRepetition());
+        assertTrue(Chess.play(moved, "Nf6", "Nb1", "Ng8").isRepetition());
+    }
+}
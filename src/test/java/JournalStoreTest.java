@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Many games through one store: more games than open files, so journals are evicted and
+ * reopened from their in-memory tails while the commit thread forces evicted files by name.
+ */
+class JournalStoreTest {
+    private static final int GAMES = 10;
+    private static final int MAX_OPEN = 3;
+
+    @TempDir
+    Path dir;
+
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+    private final int[] reply = new int[MoveGen.MAX_MOVES];
+    private final int[][] played = new int[GAMES][256]; // moves on the board, by game
+    private final int[] plies = new int[GAMES];
+
+    private static String id(int game) {
+        return "game" + game;
+    }
+
+    // A random legal move that leaves the opponent a move, so games run as long as needed
+    private int randomMove(Position pos, Random random) {
+        int count = MoveGen.generateLegal(pos, scratch, 0);
+        int offset = random.nextInt(count);
+        for (int i = 0; i < count; i++) {
+            int move = scratch[(offset + i) % count];
+            pos.makeMove(move);
+            boolean goesOn = MoveGen.hasLegalMove(pos, reply);
+            pos.unmakeMove(move);
+            if (goesOn) return move;
+        }
+        throw new IllegalStateException("Every move ends the game: " + Fen.toFen(pos));
+    }
+
+    // One random legal move in game g, recorded in the store
+    private void playRandom(JournalStore store, int g, Position pos, Random random) throws IOException {
+        int move = randomMove(pos, random);
+        pos.makeMove(move);
+        played[g][plies[g]++] = move;
+        store.append(id(g), move, pos);
+    }
+
+    private void takeBack(JournalStore store, int g, Position pos) throws IOException {
+        pos.unmakeMove(played[g][--plies[g]]);
+        store.undo(id(g));
+    }
+
+    private void assertRecovered(int g, Position expected, GameJournal.Recovered read) {
+        assertEquals(plies[g], read.plies());
+        assertEquals(Fen.toFen(expected), Fen.toFen(read.position()));
+    }
+
+    @Test
+    void moreGamesThanOpenFiles() throws Exception {
+        Position[] games = new Position[GAMES];
+        Random random = new Random(7);
+        try (JournalStore store = new JournalStore(dir, MAX_OPEN, 4, 5)) {
+            for (int g = 0; g < GAMES; g++) {
+                games[g] = Position.startPosition();
+                store.create(id(g), Fen.START, "round robin");
+            }
+            // Round robin, so every append reopens an evicted journal; past a checkpoint each
+            // game takes back three moves across it, and the commit thread gets time to run
+            for (int round = 0; round < 80; round++) {
+                for (int g = 0; g < GAMES; g++) {
+                    playRandom(store, g, games[g], random);
+                }
+                if (round == GameJournal.CHECKPOINT_INTERVAL + 1) {
+                    for (int g = 0; g < GAMES; g++) {
+                        for (int i = 0; i < 3; i++) {
+                            takeBack(store, g, games[g]);
+                        }
+                    }
+                }
+                if (round % 20 == 0) Thread.sleep(20);
+            }
+            // Everything written is readable while the store is still open
+            for (int g = 0; g < GAMES; g++) {
+                assertRecovered(g, games[g], store.read(id(g)));
+            }
+        }
+
+        try (JournalStore store = new JournalStore(dir, MAX_OPEN, 4, 5)) {
+            Map<String, GameJournal.Recovered> recovered = store.recoverAll();
+            assertEquals(GAMES, recovered.size());
+            for (int g = 0; g < GAMES; g++) {
+                assertRecovered(g, games[g], recovered.get(id(g)));
+            }
+            store.delete(id(0));
+            assertFalse(store.exists(id(0)));
+            assertTrue(store.exists(id(1)));
+        }
+    }
+
+    @Test
+    void continuesJournalOfEarlierProcessAfterTornWrite() throws IOException {
+        Position pos = Position.startPosition();
+        Random random = new Random(8);
+        try (JournalStore store = new JournalStore(dir, MAX_OPEN, 4, 5)) {
+            store.create(id(0), Fen.START, "");
+            for (int i = 0; i < 12; i++) {
+                playRandom(store, 0, pos, random);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(dir.resolve(id(0) + ".cgj"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1); // crash in the middle of the last move
+        }
+        pos.unmakeMove(played[0][--plies[0]]);
+
+        try (JournalStore store = new JournalStore(dir, MAX_OPEN, 4, 5)) {
+            assertRecovered(0, pos, store.read(id(0)));
+            for (int i = 0; i < 5; i++) {
+                playRandom(store, 0, pos, random);
+            }
+        }
+        try (JournalStore store = new JournalStore(dir)) {
+            assertRecovered(0, pos, store.read(id(0)));
+        }
+    }
+}
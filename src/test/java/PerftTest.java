@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perft regression: leaf counts of the legal move tree for the standard test positions, at
+ * depths small enough to run on every build. Any move-generation bug that changes a count
+ * fails here; {@code java Perft} runs the same positions deeper.
+ */
+class PerftTest {
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    static final String POSITION_4_MIRRORED = "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1";
+    static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    /** The standard perft positions, also walked by other move-making tests. */
+    static final String[] POSITIONS = {
+        Fen.START, KIWIPETE, POSITION_3, POSITION_4, POSITION_4_MIRRORED, POSITION_5, POSITION_6,
+    };
+
+    private final Perft perft = new Perft();
+
+    // Runs each depth and checks that make/unmake left the position as it was
+    private void check(String fen, long... expected) {
+        Position pos = Fen.parse(fen);
+        String before = Fen.toFen(pos);
+        long key = pos.key();
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], perft.perft(pos, depth), fen + " depth " + depth);
+        }
+        assertEquals(before, Fen.toFen(pos));
+        assertEquals(key, pos.key());
+    }
+
+    @Test
+    void startPosition() {
+        check(Fen.START, 20, 400, 8902, 197281);
+    }
+
+    @Test
+    void kiwipete() {
+        check(KIWIPETE, 48, 2039, 97862);
+    }
+
+    @Test
+    void position3() {
+        check(POSITION_3, 14, 191, 2812, 43238);
+    }
+
+    @Test
+    void position4() {
+        check(POSITION_4, 6, 264, 9467);
+    }
+
+    @Test
+    void position4Mirrored() {
+        check(POSITION_4_MIRRORED, 6, 264, 9467);
+    }
+
+    @Test
+    void position5() {
+        check(POSITION_5, 44, 1486, 62379);
+    }
+
+    @Test
+    void position6() {
+        check(POSITION_6, 46, 2079, 89890);
+    }
+}
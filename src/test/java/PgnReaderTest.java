@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Movetext with comments, variations and NAGs, games with a FEN tag or no result, and a
+ * game with an illegal move that is consumed so the next game reads cleanly.
+ */
+class PgnReaderTest {
+    private final GameRecord game = new GameRecord();
+
+    private static PgnReader reader(String pgn) {
+        return new PgnReader(Channels.newChannel(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static String moves(GameRecord game) {
+        Position pos = Fen.parse(game.startFen());
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < game.moveCount(); i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(San.format(pos, game.move(i)));
+            pos.makeMove(game.move(i));
+        }
+        return sb.toString();
+    }
+
+    // PGN text, expected moves in SAN, expected result
+    private static final String[][] GAMES = {
+        {"[Event \"plain\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0\n",
+            "e4 e5 Qh5 Nc6 Bc4 Nf6 Qxf7#", GameRecord.WHITE_WINS},
+        {"1. e4 {best by test} e5 ; to the end of the line\n2. Nf3 $1 Nc6 {a ( and a ; inside} 1/2-1/2",
+            "e4 e5 Nf3 Nc6", GameRecord.DRAW},
+        {"1. d4 (1. e4 e5 (1... c5 2. Nf3) 2. Nf3) 1... d5 2. c4 (2. Bf4 {London}) dxc4 0-1",
+            "d4 d5 c4 dxc4", GameRecord.BLACK_WINS},
+        {"1.e4 e5 2.Nf3 Nc6 3.Bb5 a6 4.Ba4 Nf6 5.O-O *", "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6 O-O", GameRecord.UNKNOWN},
+        {"[FEN \"4k3/8/8/8/8/8/8/R3K3 w Q - 0 1\"]\n[Result \"1-0\"]\n\n1. O-O-O Kf7 2. Rd7+ *",
+            "O-O-O Kf7 Rd7+", GameRecord.UNKNOWN},
+    };
+
+    @Test
+    void commentsVariationsAndNags() throws IOException {
+        for (String[] test : GAMES) {
+            try (PgnReader reader = reader(test[0])) {
+                assertTrue(reader.next(game), test[0]);
+                assertEquals(test[1], moves(game), test[0]);
+                assertEquals(test[2], game.result(), test[0]);
+                assertFalse(reader.next(game));
+            }
+        }
+    }
+
+    @Test
+    void resultFromTagWhenMovetextHasNone() throws IOException {
+        String pgn = "[Result \"0-1\"]\n\n1. f3 e5 2. g4 Qh4#\n\n[Result \"1-0\"]\n\n1. e4 1-0\n";
+        try (PgnReader reader = reader(pgn)) {
+            assertTrue(reader.next(game));
+            assertEquals("f3 e5 g4 Qh4#", moves(game));
+            assertEquals(GameRecord.BLACK_WINS, game.result());
+            assertTrue(reader.next(game));
+            assertEquals("e4", moves(game));
+            assertEquals(2, reader.games());
+        }
+    }
+
+    @Test
+    void badMoveConsumesTheGame() throws IOException {
+        String pgn = "[Event \"bad\"]\n\n1. e4 e5 2. Ke3 {illegal} Nc6 (2... d6) 3. Bb5 1-0\n\n"
+                + "[Event \"good\"]\n\n1. d4 d5 0-1\n";
+        try (PgnReader reader = reader(pgn)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> reader.next(game));
+            assertTrue(e.getMessage().contains("Ke3"), e.getMessage());
+            assertTrue(reader.next(game));
+            assertEquals("good", game.tag("Event"));
+            assertEquals("d4 d5", moves(game));
+            assertEquals(GameRecord.BLACK_WINS, game.result());
+            assertFalse(reader.next(game));
+            assertEquals(2, reader.games());
+        }
+    }
+
+    @Test
+    void badFenTagConsumesTheGame() throws IOException {
+        String pgn = "[FEN \"8/8/8 w - - 0 1\"]\n\n1. e4 *\n\n1. e4 *\n";
+        try (PgnReader reader = reader(pgn)) {
+            assertThrows(IllegalArgumentException.class, () -> reader.next(game));
+            assertTrue(reader.next(game));
+            assertEquals("e4", moves(game));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The example positions and keys of the Polyglot book format description. Together they
+ * touch every kind of piece, the castling rights, the turn, and en-passant squares both with
+ * and without a pawn ready to capture.
+ */
+class PolyglotKeyTest {
+    private static final String[] FENS = {
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+        "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2",
+        "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+        "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+        "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3",
+        "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4",
+        "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3",
+        "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4",
+    };
+    private static final long[] KEYS = {
+        0x463B96181691FC9CL, 0x823C9B50FD114196L, 0x0756B94461C50FB0L,
+        0x662FAFB965DB29D4L, 0x22A48B5A8E47FF78L, 0x652A607CA3F242C1L,
+        0x00FDD303C946BDD9L, 0x3C8123EA7B067637L, 0x5C3F9B829B279560L,
+    };
+
+    @Test
+    void formatDescriptionExamples() {
+        for (int i = 0; i < FENS.length; i++) {
+            assertEquals(KEYS[i], PolyglotKey.compute(Fen.parse(FENS[i])), FENS[i]);
+        }
+    }
+
+    @Test
+    void examplesReachedByPlayingTheMoves() {
+        Position pos = Chess.play(Chess.startPosition(), "e4", "d5", "e5", "f5", "Ke2", "Kf7");
+        assertEquals(KEYS[6], PolyglotKey.compute(pos));
+        pos = Chess.play(Chess.startPosition(), "a4", "b5", "h4", "b4", "c4", "bxc3", "Ra3");
+        assertEquals(KEYS[8], PolyglotKey.compute(pos));
+    }
+}
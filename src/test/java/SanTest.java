@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * SAN written and read back: disambiguation by file, rank or both, promotions, castling,
+ * en passant and the check and mate suffixes; then the looser forms accepted on input.
+ */
+class SanTest {
+    // Position, move in UCI, its SAN
+    private static final String[][] FORMAT = {
+        {"4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "a1d1", "Rad1"},
+        {"4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "h1d1", "Rhd1"},
+        {"4k3/8/8/R7/8/8/4K3/R7 w - - 0 1", "a1a3", "R1a3"},
+        {"4k3/8/8/R7/8/8/4K3/R7 w - - 0 1", "a5a3", "R5a3"},
+        {"4k3/8/8/8/8/Q7/4K3/Q1Q5 w - - 0 1", "a1b2", "Qa1b2"},
+        {"4k3/8/8/8/8/Q7/4K3/Q1Q5 w - - 0 1", "c1b2", "Qcb2"},
+        {"4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1", "b1d2", "Nbd2"},
+        {"4k3/8/8/8/8/8/4K3/R7 w - - 0 1", "a1a7", "Ra7"},
+        {"8/4P3/8/8/8/8/k7/4K3 w - - 0 1", "e7e8q", "e8=Q"},
+        {"8/4P3/8/8/8/8/k7/4K3 w - - 0 1", "e7e8n", "e8=N"},
+        {"3r4/4P3/8/k7/8/8/8/4K3 w - - 0 1", "e7d8q", "exd8=Q+"},
+        {"4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", "exd6"},
+        {"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1", "e1g1", "O-O"},
+        {"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1", "e1c1", "O-O-O"},
+        {"4k3/8/8/8/8/8/8/R3K3 w - - 0 1", "a1a8", "Ra8+"},
+        {"6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", "a1a8", "Ra8#"},
+        {"4k3/8/8/8/8/8/3n4/R3K2R b KQ - 0 1", "d2f3", "Nf3+"},
+    };
+
+    // Position, SAN as found in the wild, the move in UCI or "0000" if there is none
+    private static final String[][] PARSE = {
+        {Fen.START, "e4!?", "e2e4"},
+        {Fen.START, "Ng1f3", "g1f3"},
+        {Fen.START, "Nf3-", "0000"},
+        {"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1", "0-0", "e1g1"},
+        {"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1", "0-0-0+", "e1c1"},
+        {"8/4P3/8/8/8/8/k7/4K3 w - - 0 1", "e8Q", "e7e8q"},
+        {"8/4P3/8/8/8/8/k7/4K3 w - - 0 1", "e8", "0000"},
+        {"4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "Rd1", "0000"},
+        {"4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "R1d1", "0000"},
+        {"4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "Ra1d1", "a1d1"},
+        {"4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "Rh1:d1", "h1d1"},
+        {"4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "ed6", "e5d6"},
+        {"4k3/4r3/8/8/8/8/4B3/4K3 w - - 0 1", "Bd3", "0000"},
+        {Fen.START, "Ke2", "0000"},
+        {Fen.START, "O-O", "0000"},
+        {Fen.START, "+", "0000"},
+        {Fen.START, "Zf3", "0000"},
+    };
+
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+
+    @Test
+    void formatAndParseBack() {
+        for (String[] test : FORMAT) {
+            Position pos = Fen.parse(test[0]);
+            int move = Move.parseUci(pos, test[1], scratch);
+            assertEquals(test[2], San.format(pos, move), test[0] + " " + test[1]);
+            assertEquals(move, San.parse(pos, test[2], scratch), test[0] + " " + test[2]);
+        }
+    }
+
+    @Test
+    void parseLooseForms() {
+        for (String[] test : PARSE) {
+            Position pos = Fen.parse(test[0]);
+            assertEquals(test[2], Move.toUci(San.parse(pos, test[1], scratch)), test[0] + " " + test[1]);
+        }
+    }
+}
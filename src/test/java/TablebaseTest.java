@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Generated KQK and KRK tables checked against what is known about them: a few mate
+ * distances, the longest mates, which positions are drawn, and symmetry under mirroring
+ * and swapping colors.
+ */
+class TablebaseTest {
+    private static final int WHITE_KING = Position.piece(Position.WHITE, Position.KING);
+    private static final int BLACK_KING = Position.piece(Position.BLACK, Position.KING);
+
+    @TempDir
+    static Path dir;
+    private static Tablebase tb;
+
+    private final int[] squares = new int[Tablebase.MAX_PIECES];
+    private final int[] scratch = new int[MoveGen.MAX_MOVES];
+
+    @BeforeAll
+    static void generate() throws IOException {
+        tb = Tablebase.open(dir, 3, 4);
+    }
+
+    private int probe(String fen) {
+        return tb.probe(Fen.parse(fen), squares);
+    }
+
+    private static void setUp(Position pos, int whiteKing, int piece, int sq, int blackKing, int sideToMove) {
+        pos.clear();
+        pos.putPiece(WHITE_KING, whiteKing);
+        pos.putPiece(piece, sq);
+        pos.putPiece(BLACK_KING, blackKing);
+        pos.setSideToMove(sideToMove);
+    }
+
+    private static boolean legal(int whiteKing, int sq, int blackKing) {
+        return whiteKing != sq && blackKing != sq && whiteKing != blackKing
+                && (Attacks.KING[whiteKing] & 1L << blackKing) == 0;
+    }
+
+    @Test
+    void knownMateDistances() {
+        assertEquals(1, probe("k7/8/1K6/8/8/8/7Q/8 w - - 0 1")); // Qh8#
+        assertEquals(1, probe("k7/8/1K6/8/8/8/8/7R w - - 0 1")); // Rh8#
+        assertEquals(-1, probe("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"));
+        assertEquals(-1, probe("R6k/8/6K1/8/8/8/8/8 b - - 0 1"));
+        assertEquals(3, probe("k7/8/2K5/8/8/8/8/7R w - - 0 1")); // Kb6 Kb8 Rh8#
+        assertEquals(-3, probe("k7/8/1K6/8/8/8/8/7R b - - 0 1")); // Kb8, the only move, Rh8#
+        assertEquals(0, probe("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1")); // stalemate
+        assertEquals(0, probe("k7/1R6/8/8/8/8/8/K7 b - - 0 1")); // Kxb7
+    }
+
+    // Longest mates with white to move: ten moves with a queen, sixteen with a rook
+    @Test
+    void longestMates() {
+        for (int type : new int[] {Position.QUEEN, Position.ROOK}) {
+            int piece = Position.piece(Position.WHITE, type);
+            int longest = 0;
+            Position pos = new Position();
+            for (int wk = 0; wk < 64; wk++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    for (int bk = 0; bk < 64; bk++) {
+                        if (!legal(wk, sq, bk)) continue;
+                        setUp(pos, wk, piece, sq, bk, Position.WHITE);
+                        if (pos.isSquareAttacked(bk, Position.WHITE)) continue; // black would be in check
+                        longest = Math.max(longest, tb.probe(pos, squares));
+                    }
+                }
+            }
+            assertEquals(type == Position.QUEEN ? 19 : 31, longest);
+        }
+    }
+
+    // White always wins when to move; black draws only by taking the piece or by stalemate
+    @Test
+    void drawsAreCapturesOfAnUndefendedPieceOrStalemate() {
+        for (int type : new int[] {Position.QUEEN, Position.ROOK}) {
+            int piece = Position.piece(Position.WHITE, type);
+            Position pos = new Position();
+            int draws = 0;
+            for (int wk = 0; wk < 64; wk++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    for (int bk = 0; bk < 64; bk++) {
+                        if (!legal(wk, sq, bk)) continue;
+                        for (int stm = Position.WHITE; stm <= Position.BLACK; stm++) {
+                            setUp(pos, wk, piece, sq, bk, stm);
+                            if (stm == Position.WHITE && pos.isSquareAttacked(bk, Position.WHITE)) continue;
+                            boolean takes = stm == Position.BLACK && (Attacks.KING[bk] & 1L << sq) != 0
+                                    && (Attacks.KING[wk] & 1L << sq) == 0;
+                            boolean stalemate = !pos.inCheck() && !MoveGen.hasLegalMove(pos, scratch);
+                            int value = tb.probe(pos, squares);
+                            assertEquals(takes || stalemate, value == 0, Fen.toFen(pos) + " " + value);
+                            if (value == 0) draws++;
+                        }
+                    }
+                }
+            }
+            assertTrue(draws > 0);
+        }
+    }
+
+    // The same position reflected left to right, top to bottom, or with colors swapped
+    @Test
+    void mirroredPositionsProbeTheSame() {
+        Position pos = new Position();
+        Position mirrored = new Position();
+        for (int type : new int[] {Position.QUEEN, Position.ROOK}) {
+            for (int wk = 0; wk < 64; wk++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    for (int bk = 0; bk < 64; bk++) {
+                        if (!legal(wk, sq, bk)) continue;
+                        for (int stm = Position.WHITE; stm <= Position.BLACK; stm++) {
+                            int white = Position.piece(Position.WHITE, type);
+                            setUp(pos, wk, white, sq, bk, stm);
+                            int value = tb.probe(pos, squares);
+                            setUp(mirrored, wk ^ 7, white, sq ^ 7, bk ^ 7, stm);
+                            assertEquals(value, tb.probe(mirrored, squares), Fen.toFen(mirrored));
+                            setUp(mirrored, wk ^ 56, white, sq ^ 56, bk ^ 56, stm);
+                            assertEquals(value, tb.probe(mirrored, squares), Fen.toFen(mirrored));
+                            // Colors swapped: the black king takes the white king's place and so on
+                            mirrored.clear();
+                            mirrored.putPiece(WHITE_KING, bk ^ 56);
+                            mirrored.putPiece(Position.piece(Position.BLACK, type), sq ^ 56);
+                            mirrored.putPiece(BLACK_KING, wk ^ 56);
+                            mirrored.setSideToMove(stm ^ 1);
+                            assertEquals(value, tb.probe(mirrored, squares), Fen.toFen(mirrored));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
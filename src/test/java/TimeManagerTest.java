@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Budgets from the clock, and when a search stops, on a hand-advanced time source.
+ */
+class TimeManagerTest {
+    private static final int MOVE = Move.encode(12, 28, Move.DOUBLE_PUSH);
+    private static final int OTHER_MOVE = Move.encode(11, 27, Move.DOUBLE_PUSH);
+
+    private long now = 1_000_000_000L;
+
+    private TimeManager manager(TimeManager tm) {
+        tm.nanoTime = () -> now;
+        return tm;
+    }
+
+    private void advance(long millis) {
+        now += millis * 1_000_000;
+    }
+
+    private static SearchResult iteration(int bestMove, int depth) {
+        return new SearchResult(bestMove, 0, depth, 0, 0, new int[] {bestMove});
+    }
+
+    // Time left, increment, moves to go
+    private static final long[][] CLOCKS = {
+        {60_000, 0, 0}, {60_000, 1_000, 0}, {300_000, 3_000, 40}, {5_000, 0, 0}, {1_000, 2_000, 0},
+        {100, 0, 0}, {100, 10_000, 1}, {10_000, 0, 1}, {10_000, 0, 2}, {3_600_000, 30_000, 0},
+        {120_000, 0, 60}, {500, 500, 0},
+    };
+
+    @Test
+    void budgetsStayWithinHalfTheUsableTime() {
+        for (long[] c : CLOCKS) {
+            TimeManager tm = TimeManager.forClock(c[0], c[1], (int) c[2]);
+            long usable = c[0] - TimeManager.MOVE_OVERHEAD_MILLIS;
+            String clock = c[0] + "+" + c[1] + "/" + c[2] + ": " + tm;
+            assertTrue(tm.optimumMillis() >= 1, clock);
+            assertTrue(tm.optimumMillis() <= tm.maximumMillis(), clock);
+            assertTrue(tm.maximumMillis() <= usable / 2, clock);
+        }
+    }
+
+    @Test
+    void typicalBudgets() {
+        TimeManager tm = TimeManager.forClock(60_000, 0, 0);
+        assertEquals(60_000 / TimeManager.DEFAULT_MOVES_TO_GO, tm.optimumMillis());
+        assertEquals(3 * tm.optimumMillis(), tm.maximumMillis());
+        assertEquals(10_000 / 40 + 750, TimeManager.forClock(10_000, 1_000, 40).optimumMillis());
+    }
+
+    @Test
+    void stableBestMoveStopsEarly() {
+        TimeManager tm = manager(TimeManager.forClock(60_000, 0, 0)); // optimum 2 s
+        assertFalse(tm.onIteration(iteration(MOVE, 1))); // not started: pondering
+        tm.start();
+        for (int depth = 2; depth <= 4; depth++) {
+            assertFalse(tm.onIteration(iteration(MOVE, depth)));
+        }
+        advance(1_100);
+        assertFalse(tm.onIteration(iteration(MOVE, 5)));
+        advance(100);
+        assertTrue(tm.onIteration(iteration(MOVE, 6)), "stable iterations stop at 60% of the optimum");
+    }
+
+    @Test
+    void changingBestMoveStretchesToTheMaximum() {
+        TimeManager tm = manager(TimeManager.forClock(60_000, 0, 0)); // optimum 2 s, maximum 6 s
+        tm.start();
+        assertFalse(tm.onIteration(iteration(MOVE, 1)));
+        advance(2_500);
+        assertFalse(tm.onIteration(iteration(OTHER_MOVE, 2)));
+        assertFalse(tm.onIteration(iteration(MOVE, 3)));
+        advance(1_500);
+        assertTrue(tm.onIteration(iteration(MOVE, 4)), "past 1.75 times the optimum");
+
+        tm = manager(TimeManager.forClock(60_000, 0, 0));
+        tm.start();
+        int move = MOVE;
+        for (int depth = 1; depth < 20; depth++) {
+            move = move == MOVE ? OTHER_MOVE : MOVE;
+            advance(500);
+            boolean stop = tm.onIteration(iteration(move, depth));
+            assertEquals(tm.elapsedMillis() >= tm.maximumMillis(), stop, "at " + tm.elapsedMillis() + " ms");
+            if (stop) break;
+        }
+        assertEquals(tm.maximumMillis(), tm.elapsedMillis());
+    }
+
+    @Test
+    void ponderCreditCounts() {
+        TimeManager tm = manager(TimeManager.forClock(60_000, 0, 0));
+        assertFalse(tm.started());
+        assertEquals(0, tm.elapsedMillis());
+        tm.start(1_500);
+        assertTrue(tm.started());
+        assertEquals(1_500, tm.elapsedMillis());
+        advance(500);
+        assertTrue(tm.onIteration(iteration(MOVE, 1)));
+    }
+
+    @Test
+    void fixedTimeNeverStopsBetweenIterations() {
+        TimeManager tm = manager(TimeManager.fixed(100));
+        assertEquals(100, tm.optimumMillis());
+        assertEquals(100, tm.maximumMillis());
+        tm.start();
+        advance(1_000);
+        assertFalse(tm.onIteration(iteration(MOVE, 1)));
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Store, probe and replacement: the depth-preferred and always-replace slots of a bucket,
+ * generations, and the {@code key ^ data} check that turns torn entries into misses.
+ */
+class TranspositionTableTest {
+    private static final long KEY = 0x1234_5678_9ABC_DEF0L;
+    // Same low bits, so the same bucket in any table smaller than 2^40 buckets
+    private static final long OTHER = KEY ^ (1L << 50);
+    private static final long THIRD = KEY ^ (1L << 51);
+
+    private final int move = Move.encode(12, 28, Move.DOUBLE_PUSH);
+    private final int otherMove = Move.encode(6, 21, Move.QUIET);
+    private TranspositionTable tt;
+
+    @BeforeEach
+    void create() {
+        tt = new TranspositionTable(1);
+    }
+
+    @Test
+    void storeAndProbe() {
+        assertEquals(0L, tt.probe(KEY));
+        tt.store(KEY, move, -345, 7, TranspositionTable.BOUND_UPPER);
+        long data = tt.probe(KEY);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-345, TranspositionTable.score(data));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.BOUND_UPPER, TranspositionTable.bound(data));
+        assertEquals(0L, tt.probe(OTHER));
+    }
+
+    @Test
+    void shallowerEntryGoesToAlwaysReplaceSlot() {
+        tt.store(KEY, move, 10, 8, TranspositionTable.BOUND_EXACT);
+        tt.store(OTHER, otherMove, 20, 3, TranspositionTable.BOUND_LOWER);
+        assertEquals(8, TranspositionTable.depth(tt.probe(KEY)));
+        assertEquals(3, TranspositionTable.depth(tt.probe(OTHER)));
+
+        // Another shallow entry replaces the always-replace slot, never the deep one
+        tt.store(THIRD, move, 30, 2, TranspositionTable.BOUND_LOWER);
+        assertEquals(8, TranspositionTable.depth(tt.probe(KEY)));
+        assertEquals(0L, tt.probe(OTHER));
+        assertEquals(30, TranspositionTable.score(tt.probe(THIRD)));
+    }
+
+    @Test
+    void deeperEntryTakesDepthPreferredSlot() {
+        tt.store(KEY, move, 10, 4, TranspositionTable.BOUND_EXACT);
+        tt.store(OTHER, otherMove, 20, 6, TranspositionTable.BOUND_EXACT);
+        assertEquals(0L, tt.probe(KEY));
+        assertEquals(6, TranspositionTable.depth(tt.probe(OTHER)));
+    }
+
+    @Test
+    void olderSearchIsReplacedWhateverItsDepth() {
+        tt.store(KEY, move, 10, 20, TranspositionTable.BOUND_EXACT);
+        tt.newSearch();
+        tt.store(OTHER, otherMove, 20, 1, TranspositionTable.BOUND_EXACT);
+        assertEquals(0L, tt.probe(KEY));
+        assertEquals(1, TranspositionTable.depth(tt.probe(OTHER)));
+    }
+
+    @Test
+    void sameKeyWithoutMoveKeepsBestMove() {
+        tt.store(KEY, move, 10, 9, TranspositionTable.BOUND_LOWER);
+        tt.store(KEY, Move.NONE, -5, 2, TranspositionTable.BOUND_UPPER); // shallower, but the same position
+        long data = tt.probe(KEY);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-5, TranspositionTable.score(data));
+        assertEquals(2, TranspositionTable.depth(data));
+    }
+
+    @Test
+    void tornEntryIsAMiss() {
+        tt.store(KEY, move, 10, 5, TranspositionTable.BOUND_EXACT);
+        int data = -1;
+        for (int i = 1; i < tt.table.length; i += 2) {
+            if (tt.table[i] != 0) data = i;
+        }
+        // Another writer's key word next to this entry's data
+        tt.table[data - 1] = KEY ^ TranspositionTable.pack(otherMove, 99, 5, TranspositionTable.BOUND_EXACT, 0);
+        assertEquals(0L, tt.probe(KEY));
+    }
+
+    @Test
+    void mateScoresAreRelativeToTheNode() {
+        int mate = Search.MATE - 5; // mate 5 plies from the root, stored at ply 2
+        int stored = TranspositionTable.scoreToTable(mate, 2);
+        assertEquals(Search.MATE - 3, stored);
+        assertEquals(Search.MATE - 7, TranspositionTable.scoreFromTable(stored, 4));
+        assertEquals(-Search.MATE + 7, TranspositionTable.scoreFromTable(TranspositionTable.scoreToTable(-mate, 2), 4));
+        assertEquals(123, TranspositionTable.scoreFromTable(TranspositionTable.scoreToTable(123, 9), 1));
+    }
+}
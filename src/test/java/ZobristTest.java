@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The key kept up to date by make/unmake must equal the key computed from scratch at every
+ * node, including after castling, en passant, promotions and null moves.
+ */
+class ZobristTest {
+    private static final int DEPTH = 3;
+
+    private final int[] moves = new int[(DEPTH + 1) * MoveGen.MAX_MOVES];
+    private int castles;
+    private int enPassants;
+    private int promotions;
+
+    private void walk(Position pos, int depth, int start) {
+        assertEquals(Zobrist.compute(pos), pos.key(), Fen.toFen(pos));
+        if (depth == 0) return;
+        if (!pos.inCheck()) {
+            pos.makeNullMove();
+            assertEquals(Zobrist.compute(pos), pos.key(), "null move in " + Fen.toFen(pos));
+            pos.unmakeNullMove();
+        }
+        int end = MoveGen.generate(pos, moves, start);
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            long before = pos.key();
+            pos.makeMove(move);
+            if (!pos.leftKingInCheck()) {
+                if (Move.isCastle(move)) castles++;
+                if (Move.flag(move) == Move.EP_CAPTURE) enPassants++;
+                if (Move.isPromotion(move)) promotions++;
+                walk(pos, depth - 1, end);
+            }
+            pos.unmakeMove(move);
+            assertEquals(before, pos.key(), "after taking back " + Move.toUci(move));
+        }
+    }
+
+    @Test
+    void incrementalKeyMatchesComputedKey() {
+        for (String fen : PerftTest.POSITIONS) {
+            walk(Fen.parse(fen), DEPTH, 0);
+        }
+        assertTrue(castles > 0, "no castling walked");
+        assertTrue(enPassants > 0, "no en passant walked");
+        assertTrue(promotions > 0, "no promotion walked");
+    }
+
+    @Test
+    void transpositionsShareAKey() {
+        Position a = Chess.play(Chess.startPosition(), "Nf3", "Nf6", "Nc3", "Nc6");
+        Position b = Chess.play(Chess.startPosition(), "Nc3", "Nc6", "Nf3", "Nf6");
+        assertEquals(a.key(), b.key());
+        assertEquals(Zobrist.compute(a), a.key());
+    }
+}